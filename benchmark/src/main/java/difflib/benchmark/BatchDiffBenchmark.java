@@ -0,0 +1,85 @@
+package difflib.benchmark;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import difflib.BatchDiff;
+import difflib.BatchDiff.Pair;
+import difflib.DiffUtils;
+import difflib.EditScript;
+import difflib.IgnoreMode;
+import difflib.myers.DiffWorkspace;
+
+/**
+ * Diffs 1000 small pairs of 5 to 50 lines, one by one and as a batch. The lines of the revised
+ * texts are copies, so equal lines are not the same instances.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BatchDiffBenchmark {
+    private static final long SEED = 42;
+
+    private static final Set<IgnoreMode> NO_MODES = EnumSet.noneOf(IgnoreMode.class);
+
+    private final List<Pair> pairs = new ArrayList<Pair>();
+    private final BatchDiff batch = new BatchDiff.Builder().build();
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(SEED);
+        for (int i = 0; i < 1000; i++) {
+            List<String> original = Inputs.lines(random, 5 + random.nextInt(46));
+            // copies, as if the revised records were read from another source
+            List<String> revised = new ArrayList<String>();
+            for (String line : Inputs.edit(random, original, 0.1, false)) {
+                revised.add(new String(line));
+            }
+            pairs.add(BatchDiff.pair(original, revised));
+        }
+    }
+
+    @Benchmark
+    public void diffEach(Blackhole blackhole) {
+        for (Pair pair : pairs) {
+            blackhole.consume(DiffUtils.diff(pair.getOriginal(), pair.getRevised()));
+        }
+    }
+
+    @Benchmark
+    public void keyedDiffEach(Blackhole blackhole) {
+        DiffWorkspace workspace = new DiffWorkspace();
+        for (Pair pair : pairs) {
+            blackhole.consume(DiffUtils.diffRanges(pair.getOriginal(), pair.getRevised(), NO_MODES, workspace));
+        }
+    }
+
+    @Benchmark
+    public long batchDiff(final Blackhole blackhole) {
+        return batch.run(pairs.iterator(), new BatchDiff.Callback<Pair>() {
+            @Override
+            public void onDiff(Pair pair, EditScript script) {
+                blackhole.consume(script);
+            }
+        });
+    }
+}
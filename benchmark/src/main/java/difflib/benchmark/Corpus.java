@@ -0,0 +1,139 @@
+package difflib.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Joiner;
+import com.google.common.io.Files;
+
+/**
+ * Generates pairs of texts for the typical kinds of changes. The same workload, size and seed
+ * always give the same texts, so results can be compared across library versions.
+ */
+public enum Corpus {
+    /** Source code with some blocks of lines moved elsewhere, and a few changed lines. */
+    SOURCE_MOVED_BLOCKS {
+        @Override
+        List<List<String>> generate(Random random, int size) {
+            List<String> original = new ArrayList<String>(size);
+            for (int i = 0; i < size; i++) {
+                original.add(sourceLine(random));
+            }
+            List<String> revised = new ArrayList<String>(original);
+            int blockSize = Math.max(1, size / 20);
+            for (int block = 0; block < 3 && revised.size() > blockSize; block++) {
+                int from = random.nextInt(revised.size() - blockSize + 1);
+                List<String> moved = new ArrayList<String>(revised.subList(from, from + blockSize));
+                revised.subList(from, from + blockSize).clear();
+                revised.addAll(random.nextInt(revised.size() + 1), moved);
+            }
+            for (int i = 0; i < Math.max(1, size / 100); i++) {
+                int pos = random.nextInt(revised.size());
+                revised.set(pos, revised.get(pos) + " // changed");
+            }
+            return pair(original, revised);
+        }
+    },
+    /** A log file and the same file after more lines were appended. */
+    LOG_APPENDED_TAIL {
+        @Override
+        List<List<String>> generate(Random random, int size) {
+            List<String> revised = new ArrayList<String>(size + size / 10);
+            long time = 1400000000000L;
+            for (int i = 0; i < size + size / 10; i++) {
+                time += random.nextInt(1000);
+                revised.add(String.format(Locale.ROOT, "%d %s [worker-%d] request %d took %d ms", time,
+                        random.nextInt(10) == 0 ? "WARN" : "INFO", random.nextInt(8), random.nextInt(1000000),
+                        random.nextInt(500)));
+            }
+            return pair(new ArrayList<String>(revised.subList(0, size)), revised);
+        }
+    },
+    /** A CSV file with edited fields in rows spread over the whole file. */
+    CSV_SCATTERED_EDITS {
+        @Override
+        List<List<String>> generate(Random random, int size) {
+            List<String> original = new ArrayList<String>(size);
+            original.add("id,name,amount,currency");
+            for (int i = 1; i < size; i++) {
+                original.add(i + ",customer" + random.nextInt(10000) + "," + random.nextInt(100000) + ".00,"
+                        + (random.nextBoolean() ? "EUR" : "USD"));
+            }
+            List<String> revised = new ArrayList<String>(original);
+            for (int i = 0; i < Math.max(1, size / 50); i++) {
+                int pos = 1 + random.nextInt(size - 1);
+                String[] fields = revised.get(pos).split(",");
+                fields[2] = random.nextInt(100000) + ".00";
+                revised.set(pos, Joiner.on(',').join(fields));
+            }
+            return pair(original, revised);
+        }
+    },
+    /** Two texts without any common line, the worst case of the Myers algorithm. */
+    DISJOINT {
+        @Override
+        List<List<String>> generate(Random random, int size) {
+            List<String> original = new ArrayList<String>(size);
+            List<String> revised = new ArrayList<String>(size);
+            for (int i = 0; i < size; i++) {
+                original.add("a" + i + " " + random.nextInt());
+                revised.add("b" + i + " " + random.nextInt());
+            }
+            return pair(original, revised);
+        }
+    };
+
+    /**
+     * @return the original and the revised text
+     */
+    abstract List<List<String>> generate(Random random, int size);
+
+    /**
+     * Generates the texts of this workload.
+     *
+     * @param size the number of lines of the original text
+     * @param seed the seed of the random numbers
+     * @return the original and the revised text
+     */
+    public List<List<String>> generate(int size, long seed) {
+        if (size <= 1) {
+            throw new IllegalArgumentException("size must be greater than 1");
+        }
+        return generate(new Random(seed), size);
+    }
+
+    /**
+     * Writes the texts of this workload to <code>directory/name-size.orig</code> and
+     * <code>directory/name-size.rev</code>, e.g. to feed them to other diff tools.
+     */
+    public void write(File directory, int size, long seed) throws IOException {
+        List<List<String>> texts = generate(size, seed);
+        String name = name().toLowerCase(Locale.ROOT) + "-" + size;
+        Files.write(Joiner.on('\n').join(texts.get(0)) + "\n", new File(directory, name + ".orig"), Charsets.UTF_8);
+        Files.write(Joiner.on('\n').join(texts.get(1)) + "\n", new File(directory, name + ".rev"), Charsets.UTF_8);
+    }
+
+    private static String sourceLine(Random random) {
+        switch (random.nextInt(8)) {
+        case 0:
+            return "";
+        case 1:
+            return "    }";
+        default:
+            return "        int value" + random.nextInt(1000) + " = compute(" + random.nextInt(100000) + ");";
+        }
+    }
+
+    private static List<List<String>> pair(List<String> original, List<String> revised) {
+        List<List<String>> result = new ArrayList<List<String>>(2);
+        result.add(Collections.unmodifiableList(original));
+        result.add(Collections.unmodifiableList(revised));
+        return result;
+    }
+}
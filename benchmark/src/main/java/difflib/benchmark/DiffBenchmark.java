@@ -0,0 +1,57 @@
+package difflib.benchmark;
+
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import difflib.DiffUtils;
+import difflib.EditScript;
+import difflib.IgnoreMode;
+import difflib.Patch;
+import difflib.myers.DiffWorkspace;
+import difflib.myers.MyersDiff;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DiffBenchmark {
+
+    private static final Set<IgnoreMode> NO_MODES = EnumSet.noneOf(IgnoreMode.class);
+
+    @State(Scope.Thread)
+    public static class Workspace {
+        final DiffWorkspace workspace = new DiffWorkspace();
+    }
+
+    @Benchmark
+    public Patch<String> myersDiff(Inputs inputs) {
+        return new MyersDiff<String>().diff(inputs.original, inputs.revised);
+    }
+
+    @Benchmark
+    public EditScript myersDiffRanges(Inputs inputs) {
+        return new MyersDiff<String>().diffRanges(inputs.original, inputs.revised);
+    }
+
+    @Benchmark
+    public EditScript keyedDiffRanges(Inputs inputs) {
+        return DiffUtils.diffRanges(inputs.original, inputs.revised, NO_MODES);
+    }
+
+    @Benchmark
+    public EditScript keyedDiffRangesWithWorkspace(Inputs inputs, Workspace workspace) {
+        return DiffUtils.diffRanges(inputs.original, inputs.revised, NO_MODES, workspace.workspace);
+    }
+}
@@ -0,0 +1,42 @@
+package difflib.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import difflib.DiffRow;
+import difflib.DiffRowGenerator;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DiffRowBenchmark {
+    @Param({ "false", "true" })
+    public boolean showInlineDiffs;
+
+    private DiffRowGenerator generator;
+
+    @Setup
+    public void setUp() {
+        generator = new DiffRowGenerator.Builder().showInlineDiffs(showInlineDiffs).build();
+    }
+
+    @Benchmark
+    public List<DiffRow> generateDiffRows(Inputs inputs) {
+        return generator.generateDiffRows(inputs.original, inputs.revised, inputs.patch);
+    }
+}
@@ -0,0 +1,73 @@
+package difflib.benchmark;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import difflib.DiffUtils;
+import difflib.EditScript;
+import difflib.IncrementalDiff;
+import difflib.Patch;
+
+/**
+ * Edits one line of the revised side of a 50000 line pair with 1% edits, and diffs again: the
+ * whole texts, and incrementally. Each operation changes a line and changes it back, so the
+ * texts stay the same between operations.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class IncrementalDiffBenchmark {
+    private static final long SEED = 42;
+
+    private List<String> original;
+    private List<String> revised;
+    private IncrementalDiff incremental;
+    private int line;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(SEED);
+        original = Inputs.lines(random, 50000);
+        revised = new ArrayList<String>(Inputs.edit(random, original, 0.01, false));
+        incremental = new IncrementalDiff.Builder().build(original, revised);
+    }
+
+    @Benchmark
+    public Patch<String> fullDiff() {
+        int index = nextLine();
+        String old = revised.set(index, "edited");
+        DiffUtils.diff(original, revised);
+        revised.set(index, old);
+        return DiffUtils.diff(original, revised);
+    }
+
+    @Benchmark
+    public EditScript incrementalDiff() {
+        int index = nextLine();
+        String old = revised.get(index);
+        incremental.replaceRevised(index, index + 1, Collections.singletonList("edited"));
+        return incremental.replaceRevised(index, index + 1, Collections.singletonList(old));
+    }
+
+    private int nextLine() {
+        line = (line + 7919) % revised.size();
+        return line;
+    }
+}
@@ -0,0 +1,107 @@
+package difflib.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import difflib.DiffUtils;
+import difflib.Patch;
+
+/**
+ * A pair of texts, generated from a fixed seed, which differ by a given share of edited lines.
+ *
+ * <p>
+ * The edits are insertions, deletions and changes of single lines. With scattered locality they
+ * are spread over the whole text, with clustered locality they lie in one block of about four
+ * times their number of lines, like a typical refactoring of one method.
+ * </p>
+ */
+@State(Scope.Benchmark)
+public class Inputs {
+    private static final long SEED = 42;
+
+    /** The number of lines of the original text. */
+    @Param({ "1000", "10000" })
+    public int size;
+
+    /** The share of the lines which are edited. */
+    @Param({ "0.01", "0.1" })
+    public double density;
+
+    @Param({ "scattered", "clustered" })
+    public String locality;
+
+    public List<String> original;
+    public List<String> revised;
+    public Patch<String> patch;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(SEED);
+        original = lines(random, size);
+        revised = edit(random, original, density, "clustered".equals(locality));
+        patch = DiffUtils.diff(original, revised);
+    }
+
+    /**
+     * @return lines looking like source code, with some repeated lines like blank lines and braces
+     */
+    static List<String> lines(Random random, int size) {
+        List<String> result = new ArrayList<String>(size);
+        for (int i = 0; i < size; i++) {
+            result.add(line(random));
+        }
+        return result;
+    }
+
+    private static String line(Random random) {
+        switch (random.nextInt(8)) {
+        case 0:
+            return "";
+        case 1:
+            return "    }";
+        default:
+            return "        int value" + random.nextInt(1000) + " = compute(" + random.nextInt(100000) + ");";
+        }
+    }
+
+    static List<String> edit(Random random, List<String> original, double density, boolean clustered) {
+        int edits = Math.max(1, (int) (original.size() * density));
+        int window = clustered ? Math.min(original.size(), edits * 4) : original.size();
+        int windowStart = random.nextInt(original.size() - window + 1);
+        // decide per line, so the edits never overlap
+        boolean[] edited = new boolean[original.size()];
+        for (int i = 0; i < edits; i++) {
+            int pos = windowStart + random.nextInt(window);
+            while (edited[pos]) {
+                pos = windowStart + (pos - windowStart + 1) % window;
+            }
+            edited[pos] = true;
+        }
+        List<String> result = new ArrayList<String>(original.size() + edits);
+        for (int i = 0; i < original.size(); i++) {
+            if (!edited[i]) {
+                result.add(original.get(i));
+                continue;
+            }
+            switch (random.nextInt(3)) {
+            case 0:
+                // insertion before the line
+                result.add(line(random));
+                result.add(original.get(i));
+                break;
+            case 1:
+                // deletion
+                break;
+            default:
+                result.add(original.get(i) + " // changed");
+            }
+        }
+        return result;
+    }
+}
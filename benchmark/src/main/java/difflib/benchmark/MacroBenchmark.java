@@ -0,0 +1,179 @@
+package difflib.benchmark;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+
+import com.google.common.base.Charsets;
+
+import difflib.Delta;
+import difflib.DiffUtils;
+import difflib.IgnoreMode;
+import difflib.Patch;
+import difflib.myers.MyersDiff;
+
+/**
+ * Diffs the {@link Corpus} workloads with each algorithm and writes one CSV line per workload,
+ * size and algorithm: the median time of some runs, the bytes allocated by the median run, and
+ * the number of deltas and changed lines of the patch.
+ *
+ * <p>
+ * Usage:
+ * <code>
+ *    java -cp target/benchmarks.jar difflib.benchmark.MacroBenchmark [--output results.csv]
+ *        [--label 1.5.1] [--seed 42] [--sizes 1000,5000] [--runs 5] [--corpus directory]
+ * </code>
+ * The label, e.g. the library version, is written to each line, so the results of several versions
+ * can be appended to one file. With <code>--corpus</code> the texts are written to the given
+ * directory as well.
+ * </p>
+ */
+public final class MacroBenchmark {
+    private static final String HEADER = "label,workload,size,algorithm,medianNanos,allocatedBytes,deltas,changedLines";
+    private static final int WARMUP_RUNS = 2;
+    private static final String USAGE = "usage: MacroBenchmark [--output results.csv] [--label 1.5.1] [--seed 42]"
+            + " [--sizes 1000,5000] [--runs 5] [--corpus directory]";
+
+    /** The algorithms to compare. */
+    enum Algorithm {
+        MYERS {
+            @Override
+            Patch<String> diff(List<String> original, List<String> revised) {
+                return new MyersDiff<String>().diff(original, revised);
+            }
+        },
+        /** Lines interned to int keys and diffed by {@link difflib.myers.PrimitiveDiff}. */
+        KEYED {
+            @Override
+            Patch<String> diff(List<String> original, List<String> revised) {
+                return DiffUtils.diff(original, revised, EnumSet.noneOf(IgnoreMode.class));
+            }
+        };
+
+        abstract Patch<String> diff(List<String> original, List<String> revised);
+    }
+
+    private MacroBenchmark() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        File output = null;
+        String label = "dev";
+        long seed = 42;
+        List<Integer> sizes = Arrays.asList(1000, 5000);
+        int runs = 5;
+        File corpus = null;
+        for (int i = 0; i < args.length; i += 2) {
+            if (i + 1 == args.length) {
+                throw new IllegalArgumentException("missing value for option " + args[i] + "\n" + USAGE);
+            }
+            String value = args[i + 1];
+            if ("--output".equals(args[i])) {
+                output = new File(value);
+            } else if ("--label".equals(args[i])) {
+                label = value;
+            } else if ("--seed".equals(args[i])) {
+                seed = Long.parseLong(value);
+            } else if ("--sizes".equals(args[i])) {
+                sizes = new ArrayList<Integer>();
+                for (String size : value.split(",")) {
+                    sizes.add(Integer.valueOf(size.trim()));
+                }
+            } else if ("--runs".equals(args[i])) {
+                runs = Integer.parseInt(value);
+                if (runs <= 0) {
+                    throw new IllegalArgumentException("--runs must be positive\n" + USAGE);
+                }
+            } else if ("--corpus".equals(args[i])) {
+                corpus = new File(value);
+            } else {
+                throw new IllegalArgumentException("unknown option " + args[i] + "\n" + USAGE);
+            }
+        }
+
+        boolean header = output == null || !output.exists() || output.length() == 0;
+        PrintWriter out = new PrintWriter(output == null ? new OutputStreamWriter(System.out, Charsets.UTF_8)
+                : new OutputStreamWriter(new FileOutputStream(output, true), Charsets.UTF_8));
+        try {
+            if (header) {
+                out.println(HEADER);
+            }
+            for (Corpus workload : Corpus.values()) {
+                for (int size : sizes) {
+                    if (corpus != null) {
+                        workload.write(corpus, size, seed);
+                    }
+                    List<List<String>> texts = workload.generate(size, seed);
+                    for (Algorithm algorithm : Algorithm.values()) {
+                        out.println(label + "," + workload.name().toLowerCase(Locale.ROOT) + "," + size + ","
+                                + algorithm.name().toLowerCase(Locale.ROOT) + ","
+                                + measure(algorithm, texts.get(0), texts.get(1), runs));
+                        out.flush();
+                    }
+                }
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * @return the CSV fields from medianNanos to changedLines
+     */
+    private static String measure(Algorithm algorithm, List<String> original, List<String> revised, int runs) {
+        for (int i = 0; i < WARMUP_RUNS; i++) {
+            algorithm.diff(original, revised);
+        }
+        long[] nanos = new long[runs];
+        long[] allocated = new long[runs];
+        Patch<String> patch = null;
+        for (int i = 0; i < runs; i++) {
+            long allocatedBefore = allocatedBytes();
+            long start = System.nanoTime();
+            patch = algorithm.diff(original, revised);
+            nanos[i] = System.nanoTime() - start;
+            allocated[i] = allocatedBefore < 0 ? -1 : allocatedBytes() - allocatedBefore;
+        }
+        int median = medianIndex(nanos);
+        int changedLines = 0;
+        for (Delta<String> delta : patch.getDeltas()) {
+            changedLines += delta.getOriginal().size() + delta.getRevised().size();
+        }
+        return nanos[median] + "," + allocated[median] + "," + patch.getDeltas().size() + "," + changedLines;
+    }
+
+    private static int medianIndex(long[] values) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        long median = sorted[sorted.length / 2];
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] == median) {
+                return i;
+            }
+        }
+        throw new AssertionError();
+    }
+
+    /**
+     * @return the bytes allocated by the current thread so far, or -1 if the JVM cannot tell
+     */
+    private static long allocatedBytes() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean) bean;
+            if (sunBean.isThreadAllocatedMemorySupported() && sunBean.isThreadAllocatedMemoryEnabled()) {
+                return sunBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+        return -1;
+    }
+}
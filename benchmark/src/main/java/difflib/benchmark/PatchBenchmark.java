@@ -0,0 +1,32 @@
+package difflib.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import difflib.PatchFailedException;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PatchBenchmark {
+
+    @Benchmark
+    public List<String> applyTo(Inputs inputs) throws PatchFailedException {
+        return inputs.patch.applyTo(inputs.original);
+    }
+
+    @Benchmark
+    public List<String> restore(Inputs inputs) {
+        return inputs.patch.restore(inputs.revised);
+    }
+}
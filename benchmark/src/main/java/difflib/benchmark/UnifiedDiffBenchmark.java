@@ -0,0 +1,75 @@
+package difflib.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Joiner;
+import com.google.common.io.Files;
+
+import difflib.DiffUtils;
+import difflib.Patch;
+import difflib.event.PatchHandler;
+import difflib.event.UnifiedPatchParser;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UnifiedDiffBenchmark {
+    private static final int CONTEXT_SIZE = 3;
+
+    private List<String> unifiedDiff;
+    private File unifiedDiffFile;
+
+    @Setup
+    public void setUp(Inputs inputs) throws IOException {
+        unifiedDiff = DiffUtils.generateUnifiedDiff("a.txt", "b.txt", inputs.original, inputs.patch, CONTEXT_SIZE);
+        unifiedDiffFile = File.createTempFile("benchmark", ".diff");
+        // UnifiedPatchParser expects a line before each diff
+        Files.write("diff -u a.txt b.txt\n" + Joiner.on('\n').join(unifiedDiff) + "\n", unifiedDiffFile,
+                Charsets.UTF_8);
+    }
+
+    @TearDown
+    public void tearDown() {
+        unifiedDiffFile.delete();
+    }
+
+    @Benchmark
+    public List<String> generateUnifiedDiff(Inputs inputs) {
+        return DiffUtils.generateUnifiedDiff("a.txt", "b.txt", inputs.original, inputs.patch, CONTEXT_SIZE);
+    }
+
+    @Benchmark
+    public Patch<String> parseUnifiedDiff() {
+        return DiffUtils.parseUnifiedDiff(unifiedDiff);
+    }
+
+    @Benchmark
+    public void unifiedPatchParser(final Blackhole blackhole) throws IOException {
+        new UnifiedPatchParser().parse(unifiedDiffFile, new PatchHandler<String>() {
+            @Override
+            public void handle(String originalPath, String revisedPath, Patch<String> patch) {
+                blackhole.consume(patch);
+            }
+        });
+    }
+}
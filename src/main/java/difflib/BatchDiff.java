@@ -0,0 +1,302 @@
+package difflib;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.google.common.base.Throwables;
+
+import difflib.myers.DiffWorkspace;
+
+/**
+ * Diffs many pairs of small texts, e.g. the lines of records of a bulk comparison, with the setup
+ * cost of one diff spread over all of them.
+ *
+ * <p>
+ * Each worker diffs its pairs like {@link DiffUtils#diffRanges(List, List, Set, DiffWorkspace)},
+ * with one {@link DiffWorkspace} for all its pairs. The ids of the lines are kept between pairs,
+ * so lines which occur in many pairs are interned only once; the table is cleared when it holds
+ * more than {@link Builder#maxInternedLines(int) a maximum} of lines. The results are passed to a
+ * {@link Callback} as {@link EditScript}s, which {@link EditScript#toPatch(List, List)} turns into
+ * patches if needed.
+ * </p>
+ *
+ * <p>
+ * Without an executor, all pairs are diffed on the calling thread, in order. With an executor,
+ * the given number of workers take batches of pairs from the input and call the callback
+ * concurrently, in no particular order. Instances are immutable and can be shared between
+ * threads. Example:
+ * <code>
+ *    BatchDiff batch = new BatchDiff.Builder().executor(executor).parallelism(4).build();
+ *    batch.run(pairs, new BatchDiff.Callback&lt;BatchDiff.Pair&gt;() {
+ *        public void onDiff(BatchDiff.Pair pair, EditScript script) {
+ *            ...
+ *        }
+ *    });
+ * </code>
+ * </p>
+ */
+public class BatchDiff {
+    /** The number of pairs a worker takes from the input at once. */
+    private static final int BATCH_SIZE = 64;
+
+    /**
+     * The texts of one pair.
+     */
+    public interface Pair {
+        @Nonnull
+        List<String> getOriginal();
+
+        @Nonnull
+        List<String> getRevised();
+    }
+
+    /**
+     * Receives the result of each pair.
+     *
+     * @param <P> the type of the pairs
+     */
+    public interface Callback<P extends Pair> {
+        /**
+         * Called once per pair, on the thread of the worker which diffed it. Must be thread-safe
+         * if the batch runs in parallel. An exception thrown here stops the batch.
+         *
+         * @param pair the pair
+         * @param script the deltas between the original and revised text of the pair
+         */
+        void onDiff(@Nonnull P pair, @Nonnull EditScript script);
+    }
+
+    private final Set<IgnoreMode> ignoreModes;
+    @Nullable
+    private final Executor executor;
+    private final int parallelism;
+    private final int maxInternedLines;
+
+    private BatchDiff(Builder builder) {
+        ignoreModes = builder.ignoreModes.isEmpty() ? Collections.<IgnoreMode>emptySet()
+                : EnumSet.copyOf(builder.ignoreModes);
+        executor = builder.executor;
+        parallelism = builder.parallelism;
+        maxInternedLines = builder.maxInternedLines;
+    }
+
+    /**
+     * Creates a pair of the given texts.
+     *
+     * @param original the original text. Must not be {@code null}.
+     * @param revised the revised text. Must not be {@code null}.
+     * @return the pair
+     */
+    @Nonnull
+    public static Pair pair(@Nonnull final List<String> original, @Nonnull final List<String> revised) {
+        if (original == null) {
+            throw new IllegalArgumentException("original must not be null");
+        }
+        if (revised == null) {
+            throw new IllegalArgumentException("revised must not be null");
+        }
+        return new Pair() {
+            @Override
+            public List<String> getOriginal() {
+                return original;
+            }
+
+            @Override
+            public List<String> getRevised() {
+                return revised;
+            }
+        };
+    }
+
+    /**
+     * Diffs all pairs of the given iterator and passes the results to the callback. Returns when
+     * all pairs are done, or when the callback or the diff of a pair failed.
+     *
+     * @param pairs the pairs. Must not be {@code null}. Only accessed by one thread at a time.
+     * @param callback the callback. Must not be {@code null}.
+     * @return the number of diffed pairs
+     */
+    @Nonnegative
+    public <P extends Pair> long run(@Nonnull Iterator<? extends P> pairs, @Nonnull Callback<? super P> callback) {
+        if (pairs == null) {
+            throw new IllegalArgumentException("pairs must not be null");
+        }
+        if (callback == null) {
+            throw new IllegalArgumentException("callback must not be null");
+        }
+        Worker<P> first = new Worker<P>(pairs, callback, new AtomicBoolean(), new AtomicLong());
+        if (executor == null || parallelism == 1) {
+            first.run();
+            return first.count.get();
+        }
+        List<FutureTask<Void>> tasks = new ArrayList<FutureTask<Void>>(parallelism);
+        for (int i = 0; i < parallelism; i++) {
+            Worker<P> worker = i == 0 ? first : new Worker<P>(pairs, callback, first.failed, first.count);
+            FutureTask<Void> task = new FutureTask<Void>(worker, null);
+            tasks.add(task);
+            executor.execute(task);
+        }
+        Throwable failure = null;
+        boolean interrupted = false;
+        for (FutureTask<Void> task : tasks) {
+            while (true) {
+                try {
+                    task.get();
+                    break;
+                } catch (InterruptedException e) {
+                    // stop the workers, but wait for them to end
+                    interrupted = true;
+                    first.failed.set(true);
+                } catch (Exception e) {
+                    if (failure == null) {
+                        failure = e.getCause() == null ? e : e.getCause();
+                    }
+                    break;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while waiting for the workers");
+        }
+        if (failure != null) {
+            throw Throwables.propagate(failure);
+        }
+        return first.count.get();
+    }
+
+    /**
+     * Takes batches of pairs from the shared input and diffs them with its own workspace.
+     */
+    private final class Worker<P extends Pair> implements Runnable {
+        private final Iterator<? extends P> pairs;
+        private final Callback<? super P> callback;
+        private final AtomicBoolean failed;
+        private final AtomicLong count;
+        private final List<P> batch = new ArrayList<P>(BATCH_SIZE);
+
+        Worker(Iterator<? extends P> pairs, Callback<? super P> callback, AtomicBoolean failed, AtomicLong count) {
+            this.pairs = pairs;
+            this.callback = callback;
+            this.failed = failed;
+            this.count = count;
+        }
+
+        @Override
+        public void run() {
+            DiffWorkspace workspace = new DiffWorkspace();
+            try {
+                while (!failed.get() && nextBatch()) {
+                    for (P pair : batch) {
+                        if (workspace.getIdCount() > maxInternedLines) {
+                            workspace.clearIds();
+                        }
+                        List<String> original = pair.getOriginal();
+                        List<String> revised = pair.getRevised();
+                        callback.onDiff(pair, LineKeys.diffKeepingIds(original, revised, ignoreModes, workspace));
+                    }
+                    count.addAndGet(batch.size());
+                }
+            } catch (RuntimeException e) {
+                failed.set(true);
+                throw e;
+            } catch (Error e) {
+                failed.set(true);
+                throw e;
+            } finally {
+                batch.clear();
+                workspace.clearIds();
+            }
+        }
+
+        private boolean nextBatch() {
+            batch.clear();
+            synchronized (pairs) {
+                while (batch.size() < BATCH_SIZE && pairs.hasNext()) {
+                    batch.add(pairs.next());
+                }
+            }
+            return !batch.isEmpty();
+        }
+    }
+
+    /**
+     * This class used for building a BatchDiff.
+     */
+    public static class Builder {
+        private final Set<IgnoreMode> ignoreModes = EnumSet.noneOf(IgnoreMode.class);
+        @Nullable
+        private Executor executor;
+        private int parallelism = Runtime.getRuntime().availableProcessors();
+        private int maxInternedLines = 1024;
+
+        /**
+         * Ignores the given kinds of differences, like {@link DiffUtils#diff(List, List, Set)}.
+         *
+         * @param modes the differences to ignore
+         * @return builder with configured ignore modes
+         */
+        public Builder ignore(IgnoreMode... modes) {
+            Collections.addAll(ignoreModes, modes);
+            return this;
+        }
+
+        /**
+         * Runs the workers on the given executor. Default: null, i.e. all pairs are diffed on the
+         * calling thread.
+         *
+         * @param executor the executor, or null
+         * @return builder with configured executor
+         */
+        public Builder executor(@Nullable Executor executor) {
+            this.executor = executor;
+            return this;
+        }
+
+        /**
+         * The number of workers when an {@link #executor(Executor) executor} is set. Default: the
+         * number of available processors.
+         *
+         * @param parallelism the number of workers
+         * @return builder with configured parallelism
+         */
+        public Builder parallelism(int parallelism) {
+            if (parallelism <= 0) {
+                throw new IllegalArgumentException("parallelism must be positive");
+            }
+            this.parallelism = parallelism;
+            return this;
+        }
+
+        /**
+         * A worker forgets the interned lines when it holds more than this number. Default:
+         * 1024.
+         *
+         * @param maxInternedLines the maximum number of lines kept between pairs
+         * @return builder with configured maximum
+         */
+        public Builder maxInternedLines(@Nonnegative int maxInternedLines) {
+            if (maxInternedLines < 0) {
+                throw new IllegalArgumentException("maxInternedLines must not be negative");
+            }
+            this.maxInternedLines = maxInternedLines;
+            return this;
+        }
+
+        public BatchDiff build() {
+            return new BatchDiff(this);
+        }
+    }
+}
@@ -17,7 +17,9 @@ package difflib;
 
 import static com.google.common.base.Preconditions.checkArgument;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 import javax.annotation.Nonnegative;
@@ -40,6 +42,7 @@ public class Chunk<T> {
     @Nonnegative
     private final int position;
     private List<T> lines;
+    private boolean frozen;
     
     /**
      * Creates a chunk and saves a copy of affected lines
@@ -96,10 +99,27 @@ public class Chunk<T> {
         return position;
     }
 
+    /**
+     * @param lines the affected lines
+     * @throws IllegalStateException if the chunk is part of a {@link Patch#freeze() frozen} patch
+     */
     public void setLines(List<T> lines) {
+        if (frozen) {
+            throw new IllegalStateException("chunk is frozen");
+        }
         this.lines = lines;
     }
 
+    /**
+     * Replaces the lines with an unmodifiable copy and disallows {@link #setLines(List)}.
+     */
+    void freeze() {
+        if (!frozen) {
+            lines = Collections.unmodifiableList(new ArrayList<T>(lines));
+            frozen = true;
+        }
+    }
+
     /**
      * @return the affected lines
      */
@@ -30,6 +30,8 @@ public abstract class Delta<T> {
     
     /** The revised chunk. */
     private Chunk<T> revised;
+
+    private boolean frozen;
     
     /**
      * Specifies the type of the delta.
@@ -100,8 +102,12 @@ public abstract class Delta<T> {
     
     /**
      * @param original The Chunk describing the original text to set.
+     * @throws IllegalStateException if the delta is part of a {@link Patch#freeze() frozen} patch
      */
     public void setOriginal(Chunk<T> original) {
+        if (frozen) {
+            throw new IllegalStateException("delta is frozen");
+        }
         this.original = original;
     }
     
@@ -114,10 +120,23 @@ public abstract class Delta<T> {
     
     /**
      * @param revised The Chunk describing the revised text to set.
+     * @throws IllegalStateException if the delta is part of a {@link Patch#freeze() frozen} patch
      */
     public void setRevised(Chunk<T> revised) {
+        if (frozen) {
+            throw new IllegalStateException("delta is frozen");
+        }
         this.revised = revised;
     }
+
+    /**
+     * Freezes both chunks and disallows replacing them.
+     */
+    void freeze() {
+        original.freeze();
+        revised.freeze();
+        frozen = true;
+    }
     
     @Override
     public int hashCode() {
@@ -15,8 +15,10 @@
  */
 package difflib;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 
+import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
@@ -33,15 +35,28 @@ public class DiffRow {
     private String oldLine;
     @Nullable
     private String newLine;
+    @Nonnegative
+    private int skippedLines;
     
     public DiffRow(@Nonnull Tag tag, @Nullable String oldLine, @Nullable String newLine) {
+        this(tag, oldLine, newLine, 0);
+    }
+    
+    /**
+     * @param skippedLines the number of unchanged lines a {@link Tag#SKIP} row stands for
+     */
+    public DiffRow(@Nonnull Tag tag, @Nullable String oldLine, @Nullable String newLine, @Nonnegative int skippedLines) {
+        checkArgument(skippedLines >= 0);
         this.tag = checkNotNull(tag);
         this.oldLine = oldLine;
         this.newLine = newLine;
+        this.skippedLines = skippedLines;
     }
     
     public static enum Tag {
-        INSERT, DELETE, CHANGE, EQUAL
+        INSERT, DELETE, CHANGE, EQUAL,
+        /** Stands for a run of unchanged lines which are not shown. */
+        SKIP
     }
     
     /**
@@ -89,6 +104,14 @@ public class DiffRow {
         this.newLine = newLine;
     }
     
+    /**
+     * @return the number of unchanged lines a {@link Tag#SKIP} row stands for, 0 for other rows
+     */
+    @Nonnegative
+    public int getSkippedLines() {
+        return skippedLines;
+    }
+    
     /*
      * (non-Javadoc)
      * 
@@ -101,6 +124,7 @@ public class DiffRow {
         result = prime * result + ((newLine == null) ? 0 : newLine.hashCode());
         result = prime * result + ((oldLine == null) ? 0 : oldLine.hashCode());
         result = prime * result + ((tag == null) ? 0 : tag.hashCode());
+        result = prime * result + skippedLines;
         return result;
     }
     
@@ -133,6 +157,8 @@ public class DiffRow {
                 return false;
         } else if (!tag.equals(other.tag))
             return false;
+        if (skippedLines != other.skippedLines)
+            return false;
         return true;
     }
     
@@ -16,15 +16,26 @@
 package difflib;
 
 import difflib.DiffRow.Tag;
+import difflib.metrics.DiffEvent;
+import difflib.metrics.DiffEvent.Operation;
+import difflib.metrics.DiffMetrics;
+import difflib.metrics.DiffMetricsListener;
 import difflib.myers.Equalizer;
 
+import java.io.Closeable;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.regex.Pattern;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
 import com.google.common.base.Function;
-import com.google.common.base.Joiner;
+import com.google.common.base.Throwables;
+import com.google.common.collect.AbstractIterator;
 import com.google.common.collect.Lists;
 
 /**
@@ -45,10 +56,14 @@ import com.google.common.collect.Lists;
  *    	ignoreWhiteSpaces(true).columnWidth(100).build();
  * </code>
  *
+ * A generator is immutable and can be shared between threads, as long as its equalizer,
+ * tokenizer and executor are thread-safe. Generating rows does not modify the given patch, so a
+ * {@link Patch#freeze() frozen} patch can be rendered by many threads concurrently.
+ *
  * @author <a href="dm.naumenko@gmail.com">Dmitry Naumenko</a>
   */
 public class DiffRowGenerator {
-    private static final Joiner LF_JOINER = Joiner.on("\n");
+    private static final Pattern WHITE_SPACES = Pattern.compile("\\s+");
 
     private final boolean showInlineDiffs;
     private final boolean ignoreWhiteSpaces;
@@ -60,6 +75,14 @@ public class DiffRowGenerator {
     @Nullable
     private final String defaultString;
     private final Equalizer<String> equalizer;
+    private final Function<String, List<String>> inlineTokenizer;
+    private final int maxInlineDeltas;
+    private final int maxInlineLength;
+    private final int contextSize;
+    private final Set<IgnoreMode> ignoreModes;
+    @Nullable
+    private final Executor executor;
+    private final int maxPendingDeltas;
 
     /**
      * This class used for building the DiffRowGenerator.
@@ -81,6 +104,14 @@ public class DiffRowGenerator {
                 return Objects.equals(original, revised);
             }
         };
+        private Function<String, List<String>> inlineTokenizer = InlineTokenizers.CHARACTERS;
+        private int maxInlineDeltas = 2;
+        private int maxInlineLength = InlineDiff.DEFAULT_MAX_LENGTH;
+        private int contextSize = -1;
+        private final Set<IgnoreMode> ignoreModes = EnumSet.noneOf(IgnoreMode.class);
+        @Nullable
+        private Executor executor = null;
+        private int maxPendingDeltas = Runtime.getRuntime().availableProcessors() * 16;
 
         /**
          * Show inline diffs in generating diff rows or not.
@@ -170,6 +201,101 @@ public class DiffRowGenerator {
             return this;
         }
 
+        /**
+         * Set the tokenizer which defines the granularity of the inline diffs, e.g.
+         * {@link InlineTokenizers#WORDS}. The concatenated tokens must give the tokenized text.
+         * @param tokenizer the tokenizer to use. Default: {@link InlineTokenizers#CHARACTERS}.
+         * @return builder with configured inlineTokenizer
+         */
+        public Builder inlineTokenizer(Function<String, List<String>> tokenizer) {
+            if (tokenizer == null) {
+                throw new IllegalArgumentException("tokenizer must not be null");
+            }
+            this.inlineTokenizer = tokenizer;
+            return this;
+        }
+
+        /**
+         * Set the maximum number of inline deltas shown for a changed block. If there are more,
+         * the block is shown without inline diffs.
+         * @param max the value to set. Default: 2.
+         * @return builder with configured maxInlineDeltas
+         */
+        public Builder maxInlineDeltas(int max) {
+            if (max < 0) {
+                throw new IllegalArgumentException("maxInlineDeltas must not be negative");
+            }
+            maxInlineDeltas = max;
+            return this;
+        }
+
+        /**
+         * Set the maximum length of a changed block for which inline diffs are computed, counting
+         * the characters of both sides. A longer block is marked as changed as a whole, since the
+         * inline diff of a rewritten block takes time quadratic in its length.
+         * @param max the value to set. Default: 10000.
+         * @return builder with configured maxInlineLength
+         */
+        public Builder maxInlineLength(int max) {
+            if (max < 0) {
+                throw new IllegalArgumentException("maxInlineLength must not be negative");
+            }
+            maxInlineLength = max;
+            return this;
+        }
+
+        /**
+         * Set the number of unchanged lines shown around each change, like the context size of
+         * {@link DiffUtils#generateUnifiedDiff}. Longer runs of unchanged lines are replaced by
+         * one {@link DiffRow.Tag#SKIP} row, and their lines are never normalized or wrapped.
+         * @param size the value to set. If negative, all unchanged lines are shown. Default: -1.
+         * @return builder with configured contextSize
+         */
+        public Builder contextSize(int size) {
+            contextSize = size;
+            return this;
+        }
+
+        /**
+         * Ignore the given differences between lines. Unlike {@link #ignoreWhiteSpaces}, the rows
+         * show the unmodified lines. If any mode is set, the stringEqualizer is not used.
+         * @param modes the differences to ignore, added to the ones set before
+         * @return builder with configured ignoreModes
+         */
+        public Builder ignore(IgnoreMode... modes) {
+            ignoreModes.addAll(Arrays.asList(modes));
+            return this;
+        }
+
+        /**
+         * Set the executor which creates the rows of the deltas, including their inline diffs.
+         * The rows of several deltas are then created concurrently, and returned in order. The
+         * inline tokenizer must be thread-safe then.
+         * @param executor the executor to use, or null to create the rows on the calling thread.
+         *            Default: null.
+         * @return builder with configured executor
+         */
+        public Builder executor(@Nullable Executor executor) {
+            this.executor = executor;
+            return this;
+        }
+
+        /**
+         * Set how many deltas the executor may process ahead of the consumer of the rows. It
+         * bounds the number of rows held in memory at the same time. A consumer of
+         * {@link DiffRowGenerator#iterateDiffRows} which stops early should close the iterator, so
+         * these deltas are cancelled.
+         * @param maxPendingDeltas the value to set. Default: 16 per available processor.
+         * @return builder with configured maxPendingDeltas
+         */
+        public Builder maxPendingDeltas(int maxPendingDeltas) {
+            if (maxPendingDeltas <= 0) {
+                throw new IllegalArgumentException("maxPendingDeltas must be positive");
+            }
+            this.maxPendingDeltas = maxPendingDeltas;
+            return this;
+        }
+
         /**
          * Build the DiffRowGenerator using the default Equalizer for rows.
          * If some parameters are not set, the default values are used.
@@ -190,6 +316,14 @@ public class DiffRowGenerator {
         columnWidth = builder.columnWidth; //
         defaultString = builder.defaultString;
         equalizer = builder.stringEqualizer;
+        inlineTokenizer = builder.inlineTokenizer;
+        maxInlineDeltas = builder.maxInlineDeltas;
+        maxInlineLength = builder.maxInlineLength;
+        contextSize = builder.contextSize;
+        ignoreModes = builder.ignoreModes.isEmpty() ? Collections.<IgnoreMode>emptySet()
+                : EnumSet.copyOf(builder.ignoreModes);
+        executor = builder.executor;
+        maxPendingDeltas = builder.maxPendingDeltas;
     }
 
     /**
@@ -201,21 +335,9 @@ public class DiffRowGenerator {
      * @return the DiffRows between original and revised texts
      */
     public List<DiffRow> generateDiffRows(List<String> original, List<String> revised) {
-        if (ignoreWhiteSpaces) {
-            Function<String, String> whiteSpaceReplacer = new Function<String, String>(){
-                @Override
-                public String apply(String string) {
-                    if (string == null) {
-                        return null;
-                    } else {
-                        return string.trim().replaceAll("\\s+", " ");
-                    }
-                }
-            };
-            original = Lists.transform(original, whiteSpaceReplacer);
-            revised = Lists.transform(revised, whiteSpaceReplacer);
-        }
-        return generateDiffRows(original, revised, DiffUtils.diff(original, revised, equalizer));
+        original = replaceWhiteSpaces(original);
+        revised = replaceWhiteSpaces(revised);
+        return generateDiffRows(original, revised, diff(original, revised));
     }
 
     /**
@@ -228,130 +350,436 @@ public class DiffRowGenerator {
      * @return the DiffRows between original and revised texts
      */
     public List<DiffRow> generateDiffRows(List<String> original, List<String> revised, Patch<String> patch) {
-        // normalize the lines (expand tabs, escape html entities)
-        original = StringUtills.normalize(original);
-        revised = StringUtills.normalize(revised);
-
-        // wrap to the column width
-        original = StringUtills.wrapText(original, this.columnWidth);
-        revised = StringUtills.wrapText(revised, this.columnWidth);
-
-        List<DiffRow> diffRows = new ArrayList<DiffRow>();
-        int endPos = 0;
-        final List<Delta<String>> deltaList = patch.getDeltas();
-        for (int i = 0; i < deltaList.size(); i++) {
-            Delta<String> delta = deltaList.get(i);
-            Chunk<String> orig = delta.getOriginal();
-            Chunk<String> rev = delta.getRevised();
-
-            // We should normalize and wrap lines in deltas too.
-            orig.setLines(StringUtills.normalize((List<String>) orig.getLines()));
-            rev.setLines(StringUtills.normalize((List<String>) rev.getLines()));
-
-            orig.setLines(StringUtills.wrapText((List<String>) orig.getLines(), this.columnWidth));
-            rev.setLines(StringUtills.wrapText((List<String>) rev.getLines(), this.columnWidth));
-
-            // catch the equal prefix for each chunk
-            for (String line : original.subList(endPos, orig.getPosition())) {
-                diffRows.add(new DiffRow(Tag.EQUAL, line, line));
+        DiffMetricsListener listener = DiffMetrics.getListener();
+        if (listener == null) {
+            return Lists.newArrayList(iterateDiffRows(original, revised, patch, contextSize));
+        }
+        long start = System.nanoTime();
+        List<DiffRow> rows = Lists.newArrayList(iterateDiffRows(original, revised, patch, contextSize));
+        listener.onEvent(new DiffEvent.Builder(Operation.GENERATE_DIFF_ROWS, "DiffRowGenerator")
+                .sizes(original.size(), revised.size()).deltas(patch.getDeltas().size())
+                .nanos(System.nanoTime() - start).build());
+        return rows;
+    }
+
+    /**
+     * Like {@link #generateDiffRows(List, List)}, but creates each DiffRow only when it is
+     * requested from the returned iterator. Uses the configured context size.
+     *
+     * @param original the original text
+     * @param revised the revised text
+     * @return the DiffRows between original and revised texts
+     */
+    public DiffRowIterator iterateDiffRows(List<String> original, List<String> revised) {
+        return iterateDiffRows(original, revised, contextSize);
+    }
+
+    /**
+     * Like {@link #generateDiffRows(List, List)}, but creates each DiffRow only when it is
+     * requested from the returned iterator.
+     *
+     * @param original the original text
+     * @param revised the revised text
+     * @param contextSize the number of unchanged lines shown around each change. Longer runs of
+     *            unchanged lines are replaced by one {@link Tag#SKIP} row. If negative, all
+     *            unchanged lines are shown.
+     * @return the DiffRows between original and revised texts
+     */
+    public DiffRowIterator iterateDiffRows(List<String> original, List<String> revised, int contextSize) {
+        original = replaceWhiteSpaces(original);
+        revised = replaceWhiteSpaces(revised);
+        return iterateDiffRows(original, revised, diff(original, revised), contextSize);
+    }
+
+    /**
+     * Like {@link #generateDiffRows(List, List, Patch)}, but creates each DiffRow only when it is
+     * requested from the returned iterator. Memory is bounded by the size of the largest delta,
+     * not by the size of the texts.
+     *
+     * @param original the original text
+     * @param revised the revised text
+     * @param patch the given patch
+     * @param contextSize the number of unchanged lines shown around each change. Longer runs of
+     *            unchanged lines are replaced by one {@link Tag#SKIP} row. If negative, all
+     *            unchanged lines are shown.
+     * @return the DiffRows between original and revised texts
+     */
+    public DiffRowIterator iterateDiffRows(List<String> original, List<String> revised,
+            Patch<String> patch, int contextSize) {
+        return new DiffRowIterator(original, revised, patch.getDeltas(), contextSize);
+    }
+
+    private Patch<String> diff(List<String> original, List<String> revised) {
+        if (ignoreModes.isEmpty()) {
+            return DiffUtils.diff(original, revised, equalizer);
+        }
+        return DiffUtils.diff(original, revised, ignoreModes);
+    }
+
+    /**
+     * Replaces the white spaces of each line once, so the diff does not repeat it on each
+     * comparison.
+     */
+    private List<String> replaceWhiteSpaces(List<String> lines) {
+        if (!ignoreWhiteSpaces) {
+            return lines;
+        }
+        List<String> result = new ArrayList<String>(lines.size());
+        for (String line : lines) {
+            result.add(line == null ? null : WHITE_SPACES.matcher(line.trim()).replaceAll(" "));
+        }
+        return result;
+    }
+
+    /**
+     * Adds the DiffRows of the given delta. The lines of the delta are normalized into new lists,
+     * the delta itself is not modified.
+     * @param delta the given delta
+     * @param diffRows the rows to add to
+     * @param buffer a builder to reuse while normalizing
+     */
+    private void addDeltaRows(Delta<String> delta, Collection<DiffRow> diffRows, StringBuilder buffer) {
+        // Inserted DiffRow
+        if (delta.getClass().equals(InsertDelta.class)) {
+            for (String line : normalize(delta.getRevised().getLines(), buffer)) {
+                diffRows.add(new DiffRow(Tag.INSERT, defaultString, line));
             }
+            return;
+        }
 
-            // Inserted DiffRow
-            if (delta.getClass().equals(InsertDelta.class)) {
-                endPos = orig.last() + 1;
-                for (String line : (List<String>) rev.getLines()) {
-                    diffRows.add(new DiffRow(Tag.INSERT, defaultString, line));
-                }
-                continue;
+        // Deleted DiffRow
+        if (delta.getClass().equals(DeleteDelta.class)) {
+            for (String line : normalize(delta.getOriginal().getLines(), buffer)) {
+                diffRows.add(new DiffRow(Tag.DELETE, line, defaultString));
             }
+            return;
+        }
 
-            // Deleted DiffRow
-            if (delta.getClass().equals(DeleteDelta.class)) {
-                endPos = orig.last() + 1;
-                for (String line : (List<String>) orig.getLines()) {
-                    diffRows.add(new DiffRow(Tag.DELETE, line, defaultString));
-                }
-                continue;
+        List<String> origLines = delta.getOriginal().getLines();
+        List<String> revLines = delta.getRevised().getLines();
+        if (showInlineDiffs) {
+            // diffed on the unescaped lines, so the tags never split an entity
+            EditScript inlineDeltas = InlineDiff.diff(origLines, revLines, inlineTokenizer, maxInlineLength);
+            if (inlineDeltas.size() <= maxInlineDeltas) {
+                origLines = markInline(origLines, InlineDiff.lineMarks(origLines, inlineDeltas, true),
+                        startTag(this.InlineOldTag, this.InlineOldCssClass), endTag(this.InlineOldTag), buffer);
+                revLines = markInline(revLines, InlineDiff.lineMarks(revLines, inlineDeltas, false),
+                        startTag(this.InlineNewTag, this.InlineNewCssClass), endTag(this.InlineNewTag), buffer);
+            } else {
+                origLines = normalize(origLines, buffer);
+                revLines = normalize(revLines, buffer);
             }
+        } else {
+            origLines = normalize(origLines, buffer);
+            revLines = normalize(revLines, buffer);
+        }
+        for (int j = 0; j < Math.max(origLines.size(), revLines.size()); j++) {
+            diffRows.add(new DiffRow(Tag.CHANGE, origLines.size() > j ? origLines.get(j) : defaultString,
+                    revLines.size() > j ? revLines.get(j) : defaultString));
+        }
+    }
+
+    /**
+     * @return the given lines, each escaped and wrapped to the column width
+     */
+    private List<String> normalize(List<String> lines, StringBuilder buffer) {
+        List<String> result = new ArrayList<String>(lines.size());
+        for (String line : lines) {
+            result.add(normalize(line, buffer));
+        }
+        return result;
+    }
+
+    private String normalize(String line, StringBuilder buffer) {
+        buffer.setLength(0);
+        return StringUtills.escapeAndWrap(line, columnWidth, buffer).toString();
+    }
+
+    /**
+     * Produces the DiffRows of a patch lazily: unchanged lines one by one, changed lines one
+     * delta at a time. With an executor, the rows of up to maxPendingDeltas deltas are created
+     * ahead of the consumer; a consumer which stops before the last row should {@link #close()}
+     * the iterator, so they are not created in vain.
+     */
+    public final class DiffRowIterator extends AbstractIterator<DiffRow> implements Closeable {
+        private final List<String> original;
+        private final List<String> revised;
+        private final Iterator<Delta<String>> deltas;
+        private final int contextSize;
+        private final Deque<DiffRow> deltaRows = new ArrayDeque<DiffRow>();
+        private final StringBuilder buffer = new StringBuilder();
+        // the deltas submitted to the executor, and their rows
+        private final Deque<Delta<String>> pendingDeltas = new ArrayDeque<Delta<String>>();
+        private final Deque<FutureTask<List<DiffRow>>> pendingRows = new ArrayDeque<FutureTask<List<DiffRow>>>();
+        /** The end of the last delta in the original and in the revised text. */
+        private int endPos = 0;
+        private int revisedEndPos = 0;
+        private boolean started = false;
+        private boolean finished = false;
+        private boolean closed = false;
+        // the current run of unchanged lines: head rows, optional skip row, tail rows
+        private final EqualRun run = new EqualRun();
+        private int headPos;
+        private int headEnd;
+        @Nullable
+        private DiffRow skipRow;
+        private int tailPos;
+        private int tailEnd;
+
+        private DiffRowIterator(List<String> original, List<String> revised, List<Delta<String>> deltas,
+                int contextSize) {
+            this.original = original;
+            this.revised = revised;
+            this.deltas = deltas.iterator();
+            this.contextSize = contextSize;
+        }
 
-            if (showInlineDiffs) {
-                addInlineDiffs(delta);
+        @Override
+        protected DiffRow computeNext() {
+            if (closed) {
+                return endOfData();
             }
-            // the changed size is match
-            if (orig.size() == rev.size()) {
-                for (int j = 0; j < orig.size(); j++) {
-                    diffRows.add(new DiffRow(Tag.CHANGE, (String) orig.getLines().get(j),
-                            (String) rev.getLines().get(j)));
+            while (true) {
+                if (headPos < headEnd) {
+                    headPos++;
+                    return run.nextRow();
                 }
-            } else if (orig.size() > rev.size()) {
-                for (int j = 0; j < orig.size(); j++) {
-                    diffRows.add(new DiffRow(Tag.CHANGE, (String) orig.getLines().get(j), rev
-                            .getLines().size() > j ? (String) rev.getLines().get(j) : defaultString));
+                if (skipRow != null) {
+                    DiffRow row = skipRow;
+                    skipRow = null;
+                    run.skip(tailPos - headEnd);
+                    return row;
                 }
-            } else {
-                for (int j = 0; j < rev.size(); j++) {
-                    diffRows.add(new DiffRow(Tag.CHANGE, orig.getLines().size() > j ? (String) orig
-                            .getLines().get(j) : defaultString, (String) rev.getLines().get(j)));
+                if (tailPos < tailEnd) {
+                    tailPos++;
+                    return run.nextRow();
+                }
+                if (!deltaRows.isEmpty()) {
+                    return deltaRows.poll();
+                }
+                if (deltas.hasNext() || !pendingDeltas.isEmpty()) {
+                    Delta<String> delta;
+                    if (executor == null) {
+                        delta = deltas.next();
+                        addDeltaRows(delta, deltaRows, buffer);
+                    } else {
+                        while (pendingDeltas.size() < maxPendingDeltas && deltas.hasNext()) {
+                            submit(deltas.next());
+                        }
+                        delta = pendingDeltas.poll();
+                        deltaRows.addAll(getRows(pendingRows.poll()));
+                    }
+                    int position = delta.getOriginal().getPosition();
+                    int revisedPosition = delta.getRevised().getPosition();
+                    startEqualRun(endPos, position, revisedEndPos, revisedPosition, !started, false);
+                    endPos = position + delta.getOriginal().size();
+                    revisedEndPos = revisedPosition + delta.getRevised().size();
+                    started = true;
+                } else if (!finished) {
+                    startEqualRun(endPos, original.size(), revisedEndPos, revised.size(), !started, true);
+                    finished = true;
+                } else {
+                    return endOfData();
                 }
             }
-            endPos = orig.last() + 1;
         }
 
-        // Copy the final matching chunk if any.
-        for (String line : original.subList(endPos, original.size())) {
-            diffRows.add(new DiffRow(Tag.EQUAL, line, line));
+        private void submit(final Delta<String> delta) {
+            FutureTask<List<DiffRow>> task = new FutureTask<List<DiffRow>>(new Callable<List<DiffRow>>() {
+                @Override
+                public List<DiffRow> call() {
+                    List<DiffRow> rows = new ArrayList<DiffRow>();
+                    addDeltaRows(delta, rows, new StringBuilder());
+                    return rows;
+                }
+            });
+            executor.execute(task);
+            pendingDeltas.add(delta);
+            pendingRows.add(task);
         }
-        return diffRows;
-    }
 
-    /**
-     * Add the inline diffs for given delta
-     * @param delta the given delta
-     */
-    private void addInlineDiffs(Delta<String> delta) {
-        List<String> orig = (List<String>) delta.getOriginal().getLines();
-        List<String> rev = (List<String>) delta.getRevised().getLines();
-        LinkedList<String> origList = new LinkedList<String>();
-        for (Character character : LF_JOINER.join(orig).toCharArray()) {
-            origList.add(character.toString());
-        }
-        LinkedList<String> revList = new LinkedList<String>();
-        for (Character character : LF_JOINER.join(rev).toCharArray()) {
-            revList.add(character.toString());
-        }
-        List<Delta<String>> inlineDeltas = DiffUtils.diff(origList, revList).getDeltas();
-        if (inlineDeltas.size() < 3) {
-            Collections.reverse(inlineDeltas);
-            for (Delta<String> inlineDelta : inlineDeltas) {
-                Chunk<String> inlineOrig = inlineDelta.getOriginal();
-                Chunk<String> inlineRev = inlineDelta.getRevised();
-                if (inlineDelta.getClass().equals(DeleteDelta.class)) {
-                    origList = wrapInTag(origList, inlineOrig.getPosition(), inlineOrig
-                            .getPosition()
-                            + inlineOrig.size() + 1, this.InlineOldTag, this.InlineOldCssClass);
-                } else if (inlineDelta.getClass().equals(InsertDelta.class)) {
-                    revList = wrapInTag(revList, inlineRev.getPosition(), inlineRev.getPosition()
-                            + inlineRev.size() + 1, this.InlineNewTag, this.InlineNewCssClass);
-                } else if (inlineDelta.getClass().equals(ChangeDelta.class)) {
-                    origList = wrapInTag(origList, inlineOrig.getPosition(), inlineOrig
-                            .getPosition()
-                            + inlineOrig.size() + 1, this.InlineOldTag, this.InlineOldCssClass);
-                    revList = wrapInTag(revList, inlineRev.getPosition(), inlineRev.getPosition()
-                            + inlineRev.size() + 1, this.InlineNewTag, this.InlineNewCssClass);
+        private List<DiffRow> getRows(FutureTask<List<DiffRow>> task) {
+            try {
+                return task.get();
+            } catch (InterruptedException e) {
+                close();
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("interrupted while waiting for the rows of a delta", e);
+            } catch (ExecutionException e) {
+                close();
+                throw Throwables.propagate(e.getCause());
+            }
+        }
+
+        /**
+         * Ends the iteration and cancels the creation of the rows of the deltas which were
+         * submitted to the executor but not returned yet. Rows which are being created are
+         * finished, but not waited for.
+         */
+        @Override
+        public void close() {
+            closed = true;
+            for (FutureTask<List<DiffRow>> task : pendingRows) {
+                task.cancel(false);
+            }
+            pendingRows.clear();
+            pendingDeltas.clear();
+        }
+
+        private void startEqualRun(int from, int to, int revisedFrom, int revisedTo, boolean leading,
+                boolean trailing) {
+            run.start(from, to, revisedFrom, revisedTo);
+            int rows = run.countRows();
+            headPos = 0;
+            if (contextSize < 0) {
+                headEnd = rows;
+                tailPos = tailEnd = rows;
+                return;
+            }
+            headEnd = leading ? 0 : Math.min(rows, contextSize);
+            tailPos = trailing ? rows : Math.max(headEnd, rows - contextSize);
+            tailEnd = rows;
+            if (tailPos > headEnd) {
+                skipRow = new DiffRow(Tag.SKIP, defaultString, defaultString, tailPos - headEnd);
+            }
+        }
+
+        /**
+         * Walks the rows of a run of unchanged lines. Both sides of the run have the same lines,
+         * up to the ignored differences, so each line of the original is shown next to its line
+         * of the revised text. If blank lines are ignored, the sides can differ in the number of
+         * blank lines: a blank line is then shown next to a blank line or an empty cell.
+         */
+        private final class EqualRun {
+            private int pos;
+            private int end;
+            private int revisedPos;
+            private int revisedEnd;
+            /** True if the n-th line of one side belongs to the n-th line of the other. */
+            private boolean aligned;
+
+            void start(int from, int to, int revisedFrom, int revisedTo) {
+                pos = from;
+                end = to;
+                revisedPos = revisedFrom;
+                revisedEnd = revisedTo;
+                aligned = !ignoreModes.contains(IgnoreMode.BLANK_LINES) && to - from == revisedTo - revisedFrom;
+            }
+
+            /**
+             * @return the number of rows, found by walking the run if the sides differ in length
+             */
+            int countRows() {
+                if (aligned) {
+                    return end - pos;
                 }
+                int savedPos = pos;
+                int savedRevisedPos = revisedPos;
+                int rows = 0;
+                while (pos < end || revisedPos < revisedEnd) {
+                    advance();
+                    rows++;
+                }
+                pos = savedPos;
+                revisedPos = savedRevisedPos;
+                return rows;
             }
-            StringBuilder origResult = new StringBuilder(), revResult = new StringBuilder();
-            for (String character : origList) {
-                origResult.append(character);
+
+            void skip(int rows) {
+                if (aligned) {
+                    pos += rows;
+                    revisedPos += rows;
+                    return;
+                }
+                for (int i = 0; i < rows; i++) {
+                    advance();
+                }
             }
-            for (String character : revList) {
-                revResult.append(character);
+
+            DiffRow nextRow() {
+                int index = pos;
+                int revisedIndex = revisedPos;
+                advance();
+                String oldLine = index < pos ? normalize(original.get(index), buffer) : defaultString;
+                String newLine;
+                if (revisedIndex == revisedPos) {
+                    newLine = defaultString;
+                } else if (index < pos && Objects.equals(original.get(index), revised.get(revisedIndex))) {
+                    newLine = oldLine;
+                } else {
+                    newLine = normalize(revised.get(revisedIndex), buffer);
+                }
+                return new DiffRow(Tag.EQUAL, oldLine, newLine);
+            }
+
+            /**
+             * Moves past the lines of one row: a blank line without a blank line on the other
+             * side is a row of its own, other lines are paired.
+             */
+            private void advance() {
+                if (aligned) {
+                    pos++;
+                    revisedPos++;
+                    return;
+                }
+                boolean blank = pos < end && isBlank(original.get(pos));
+                boolean revisedBlank = revisedPos < revisedEnd && isBlank(revised.get(revisedPos));
+                if (blank == revisedBlank || pos == end || revisedPos == revisedEnd) {
+                    if (pos < end) {
+                        pos++;
+                    }
+                    if (revisedPos < revisedEnd) {
+                        revisedPos++;
+                    }
+                } else if (blank) {
+                    pos++;
+                } else {
+                    revisedPos++;
+                }
+            }
+
+            private boolean isBlank(@Nullable String line) {
+                return line != null && LineKeys.isBlank(line);
             }
-            delta.getOriginal().setLines(Arrays.asList(origResult.toString().split("\n")));
-            delta.getRevised().setLines(Arrays.asList(revResult.toString().split("\n")));
         }
     }
 
+    /**
+     * Escapes and wraps the given lines and wraps their marks with the given tags in a single
+     * pass. A tag which spans a line break is closed at the end of the line and opened again on
+     * the next one, so each line is well-formed.
+     * @param lines the unescaped lines of one side of the delta
+     * @param marks the marks of each line, as offsets into the unescaped line
+     * @return the marked lines
+     */
+    private List<String> markInline(List<String> lines, List<int[]> marks, String startTag, String endTag,
+            StringBuilder buffer) {
+        List<String> result = new ArrayList<String>(lines.size());
+        for (int i = 0; i < lines.size(); i++) {
+            buffer.setLength(0);
+            result.add(StringUtills.escapeAndWrap(lines.get(i), columnWidth, marks.get(i), startTag, endTag, buffer)
+                    .toString());
+        }
+        return result;
+    }
+
+    private static String startTag(String tag, @Nullable String cssClass) {
+        StringBuilder tagBuilder = new StringBuilder();
+        tagBuilder.append("<");
+        tagBuilder.append(tag);
+        if (cssClass != null) {
+            tagBuilder.append(" class=\"");
+            tagBuilder.append(cssClass);
+            tagBuilder.append("\"");
+        }
+        tagBuilder.append(">");
+        return tagBuilder.toString();
+    }
+
+    private static String endTag(String tag) {
+        return "</" + tag + ">";
+    }
+
     /**
      * Wrap the elements in the sequence with the given tag
      * @param startPosition the position from which tag should start. The counting start from a zero.
@@ -393,24 +821,6 @@ public class DiffRowGenerator {
      * @return the wrapped string
      */
     public static String wrapInTag(String line, String tag, String cssClass) {
-        StringBuilder tagBuilder = new StringBuilder();
-        tagBuilder.append("<");
-        tagBuilder.append(tag);
-        if (cssClass != null) {
-            tagBuilder.append(" class=\"");
-            tagBuilder.append(cssClass);
-            tagBuilder.append("\"");
-        }
-        tagBuilder.append(">");
-        String startTag = tagBuilder.toString();
-
-        tagBuilder.delete(0, tagBuilder.length());
-
-        tagBuilder.append("</");
-        tagBuilder.append(tag);
-        tagBuilder.append(">");
-        String endTag = tagBuilder.toString();
-
-        return startTag + line + endTag;
+        return startTag(tag, cssClass) + line + endTag(tag);
     }
 }
@@ -15,13 +15,22 @@
  */
 package difflib;
 
+import difflib.metrics.DiffEvent;
+import difflib.metrics.DiffEvent.Operation;
+import difflib.metrics.DiffMetrics;
+import difflib.metrics.DiffMetricsListener;
+import difflib.myers.DiffWorkspace;
 import difflib.myers.Equalizer;
 import difflib.myers.MyersDiff;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -30,6 +39,8 @@ import javax.annotation.Nullable;
 
 import com.google.common.base.Charsets;
 import com.google.common.io.Files;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListenableFutureTask;
 
 /**
  * Implements the difference and patching engine
@@ -46,12 +57,37 @@ public class DiffUtils {
 
 	@Nonnull
     public Patch<String> diff(@Nonnull File original, @Nonnull File revised) throws IOException {
-        return diff(Files.readLines(original, Charsets.UTF_8), Files.readLines(revised, Charsets.UTF_8));
+        return diff(original, revised, Charsets.UTF_8);
+    }
+
+	/**
+	 * Computes the difference between the lines of the original and revised file
+	 * with default diff algorithm
+	 * 
+	 * @param original
+	 *            The original file. Must not be {@code null}.
+	 * @param revised
+	 *            The revised file. Must not be {@code null}.
+	 * @param charset
+	 *            The charset of both files. Must not be {@code null}. To diff
+	 *            files without decoding them at all, see
+	 *            {@link difflib.bytes.ByteDiffUtils}.
+	 * @return The patch describing the difference between the original and
+	 *         revised files. Never {@code null}.
+	 */
+    @Nonnull
+    public static Patch<String> diff(@Nonnull File original, @Nonnull File revised, @Nonnull Charset charset) throws IOException {
+        return diff(Files.readLines(original, charset), Files.readLines(revised, charset));
+    }
+
+    @Nonnull
+    public static Patch<String> diff(@Nonnull File original, @Nonnull File revised, @Nonnull Charset charset, @Nonnull DiffAlgorithm<String> algorithm) throws IOException {
+        return diff(Files.readLines(original, charset), Files.readLines(revised, charset), algorithm);
     }
 
     @Nonnull
     public Patch<String> diff(@Nonnull File original, @Nonnull File revised, @Nonnull DiffAlgorithm<String> algorithm) throws IOException {
-        return diff(Files.readLines(original, Charsets.UTF_8), Files.readLines(revised, Charsets.UTF_8), algorithm);
+        return diff(original, revised, Charsets.UTF_8, algorithm);
     }
 
     @Nonnull
@@ -129,6 +165,155 @@ public class DiffUtils {
 		return algorithm.diff(original, revised);
 	}
 
+	/**
+	 * Computes the index ranges of the deltas between the original and revised
+	 * list of elements with default diff algorithm. Cheaper than
+	 * {@link #diff(List, List)} for callers which need only positions, e.g. to
+	 * count or highlight changes.
+	 * 
+	 * @param original
+	 *            The original text. Must not be {@code null}.
+	 * @param revised
+	 *            The revised text. Must not be {@code null}.
+	 * @return The edit script describing the difference between the original
+	 *         and revised sequences. Never {@code null}.
+	 */
+	@Nonnull
+	public static <T> EditScript diffRanges(List<T> original, List<T> revised) {
+		return new MyersDiff<T>().diffRanges(original, revised);
+	}
+
+	/**
+	 * Computes the index ranges of the deltas between the original and revised
+	 * list of elements with default diff algorithm.
+	 * 
+	 * @param original
+	 *            The original text. Must not be {@code null}.
+	 * @param revised
+	 *            The revised text. Must not be {@code null}.
+	 * @param equalizer
+	 *            the equalizer object to replace the default compare algorithm
+	 *            (Object.equals). If {@code null} the default equalizer of the
+	 *            default algorithm is used.
+	 * @return The edit script describing the difference between the original
+	 *         and revised sequences. Never {@code null}.
+	 */
+	@Nonnull
+	public static <T> EditScript diffRanges(List<T> original, List<T> revised,
+			@Nullable Equalizer<T> equalizer) {
+		if (equalizer != null) {
+			return new MyersDiff<T>(equalizer).diffRanges(original, revised);
+		}
+		return new MyersDiff<T>().diffRanges(original, revised);
+	}
+
+	/**
+	 * Computes the difference between the original and revised lines,
+	 * ignoring the differences described by the given modes. Each line is
+	 * normalized only once, and the normalized lines are compared by int ids.
+	 * The chunks of the patch hold the unmodified lines. If blank lines are
+	 * ignored, applying the patch does not restore inserted or deleted blank
+	 * lines outside of its deltas.
+	 * 
+	 * @param original
+	 *            The original text. Must not be {@code null}.
+	 * @param revised
+	 *            The revised text. Must not be {@code null}.
+	 * @param modes
+	 *            the differences to ignore. Must not be {@code null}.
+	 * @return The patch describing the difference between the original and
+	 *         revised lines. Never {@code null}.
+	 */
+	@Nonnull
+	public static Patch<String> diff(List<String> original, List<String> revised,
+			@Nonnull Set<IgnoreMode> modes) {
+		return diffRanges(original, revised, modes).toPatch(original, revised);
+	}
+
+	/**
+	 * Like {@link #diff(List, List, Set)}, but reuses the arrays of the given
+	 * workspace instead of allocating new ones.
+	 * 
+	 * @param original
+	 *            The original text. Must not be {@code null}.
+	 * @param revised
+	 *            The revised text. Must not be {@code null}.
+	 * @param modes
+	 *            the differences to ignore. Must not be {@code null}.
+	 * @param workspace
+	 *            the workspace of the calling thread. Must not be {@code null}.
+	 * @return The patch describing the difference between the original and
+	 *         revised lines. Never {@code null}.
+	 */
+	@Nonnull
+	public static Patch<String> diff(List<String> original, List<String> revised,
+			@Nonnull Set<IgnoreMode> modes, @Nonnull DiffWorkspace workspace) {
+		return diffRanges(original, revised, modes, workspace).toPatch(original, revised);
+	}
+
+	/**
+	 * Computes the index ranges of the deltas between the original and revised
+	 * lines, ignoring the differences described by the given modes.
+	 * 
+	 * @param original
+	 *            The original text. Must not be {@code null}.
+	 * @param revised
+	 *            The revised text. Must not be {@code null}.
+	 * @param modes
+	 *            the differences to ignore. Must not be {@code null}.
+	 * @return The edit script describing the difference between the original
+	 *         and revised lines. Never {@code null}.
+	 */
+	@Nonnull
+	public static EditScript diffRanges(List<String> original, List<String> revised,
+			@Nonnull Set<IgnoreMode> modes) {
+		if (original == null) {
+			throw new IllegalArgumentException("original must not be null");
+		}
+		if (revised == null) {
+			throw new IllegalArgumentException("revised must not be null");
+		}
+		if (modes == null) {
+			throw new IllegalArgumentException("modes must not be null");
+		}
+		return LineKeys.diff(original, revised, modes, null);
+	}
+
+	/**
+	 * Like {@link #diffRanges(List, List, Set)}, but reuses the arrays of the
+	 * given workspace instead of allocating new ones. Once the workspace has
+	 * grown to the size of the texts, only the edit script is allocated, as
+	 * long as no {@link IgnoreMode} normalizes the lines.
+	 * 
+	 * @param original
+	 *            The original text. Must not be {@code null}.
+	 * @param revised
+	 *            The revised text. Must not be {@code null}.
+	 * @param modes
+	 *            the differences to ignore. Must not be {@code null}.
+	 * @param workspace
+	 *            the workspace of the calling thread. Must not be {@code null}.
+	 * @return The edit script describing the difference between the original
+	 *         and revised lines. Never {@code null}.
+	 */
+	@Nonnull
+	public static EditScript diffRanges(List<String> original, List<String> revised,
+			@Nonnull Set<IgnoreMode> modes, @Nonnull DiffWorkspace workspace) {
+		if (original == null) {
+			throw new IllegalArgumentException("original must not be null");
+		}
+		if (revised == null) {
+			throw new IllegalArgumentException("revised must not be null");
+		}
+		if (modes == null) {
+			throw new IllegalArgumentException("modes must not be null");
+		}
+		if (workspace == null) {
+			throw new IllegalArgumentException("workspace must not be null");
+		}
+		return LineKeys.diff(original, revised, modes, workspace);
+	}
+
 	/**
 	 * Patch the original text with given patch
 	 * 
@@ -168,6 +353,8 @@ public class DiffUtils {
 	 * @return the patch with deltas.
 	 */
 	public static Patch<String> parseUnifiedDiff(List<String> diff) {
+		DiffMetricsListener listener = DiffMetrics.getListener();
+		long start = listener == null ? 0 : System.nanoTime();
 		boolean inPrelude = true;
 		List<String[]> rawChunk = new ArrayList<String[]>();
 		Patch<String> patch = new Patch<String>();
@@ -250,6 +437,10 @@ public class DiffUtils {
 			rawChunk.clear();
 		}
 
+		if (listener != null) {
+			report(listener, Operation.PARSE_UNIFIED_DIFF, diff.size(), -1,
+					patch.getDeltas().size(), start);
+		}
 		return patch;
 	}
 
@@ -275,6 +466,8 @@ public class DiffUtils {
 	public static List<String> generateUnifiedDiff(String original,
 			String revised, List<String> originalLines, Patch<String> patch,
 			int contextSize) {
+		DiffMetricsListener listener = DiffMetrics.getListener();
+		long start = listener == null ? 0 : System.nanoTime();
 		if (!patch.getDeltas().isEmpty()) {
 			List<String> ret = new ArrayList<String>();
 			ret.add("--- " + original);
@@ -326,11 +519,164 @@ public class DiffUtils {
 			List<String> curBlock = processDeltas(originalLines, deltas,
 					contextSize);
 			ret.addAll(curBlock);
+			if (listener != null) {
+				report(listener, Operation.GENERATE_UNIFIED_DIFF, originalLines.size(),
+						ret.size(), patchDeltas.size(), start);
+			}
 			return ret;
 		}
+		if (listener != null) {
+			report(listener, Operation.GENERATE_UNIFIED_DIFF, originalLines.size(), 0, 0, start);
+		}
 		return new ArrayList<String>();
 	}
 
+	/**
+	 * Computes the difference between the original and revised list of
+	 * elements with the default diff algorithm on the given executor.
+	 * 
+	 * <p>
+	 * Cancelling the returned future with {@code mayInterruptIfRunning}
+	 * interrupts the diff, which checks the interrupt flag of its thread in
+	 * each step of the edit distance and ends with a
+	 * {@link java.util.concurrent.CancellationException}, so no computation
+	 * is left running.
+	 * </p>
+	 * 
+	 * @param original
+	 *            The original text. Must not be {@code null}.
+	 * @param revised
+	 *            The revised text. Must not be {@code null}.
+	 * @param executor
+	 *            the executor to run the diff. Must not be {@code null}.
+	 * @return The future patch. Never {@code null}.
+	 */
+	@Nonnull
+	public static <T> ListenableFuture<Patch<T>> diffAsync(List<T> original,
+			List<T> revised, @Nonnull Executor executor) {
+		return diffAsync(original, revised, new MyersDiff<T>(), executor);
+	}
+
+	/**
+	 * Like {@link #diffAsync(List, List, Executor)}, but with the given
+	 * algorithm. Only algorithms which check the interrupt flag stop when the
+	 * future is cancelled; {@link MyersDiff} and
+	 * {@link difflib.myers.PrimitiveDiff} do, within
+	 * {@link MyersDiff#callInterruptibly}.
+	 * 
+	 * @param original
+	 *            The original text. Must not be {@code null}.
+	 * @param revised
+	 *            The revised text. Must not be {@code null}.
+	 * @param algorithm
+	 *            The diff algorithm. Must not be {@code null}.
+	 * @param executor
+	 *            the executor to run the diff. Must not be {@code null}.
+	 * @return The future patch. Never {@code null}.
+	 */
+	@Nonnull
+	public static <T> ListenableFuture<Patch<T>> diffAsync(final List<T> original,
+			final List<T> revised, final DiffAlgorithm<T> algorithm,
+			@Nonnull Executor executor) {
+		return submit(executor, new Callable<Patch<T>>() {
+			@Override
+			public Patch<T> call() throws Exception {
+				return MyersDiff.callInterruptibly(new Callable<Patch<T>>() {
+					@Override
+					public Patch<T> call() {
+						return diff(original, revised, algorithm);
+					}
+				});
+			}
+		});
+	}
+
+	/**
+	 * Patches the original text with the given patch on the given executor.
+	 * A {@link PatchFailedException} fails the future.
+	 * 
+	 * @param original
+	 *            the original text
+	 * @param patch
+	 *            the given patch
+	 * @param executor
+	 *            the executor to apply the patch. Must not be {@code null}.
+	 * @return the future revised text. Never {@code null}.
+	 */
+	@Nonnull
+	public static <T> ListenableFuture<List<T>> patchAsync(final List<T> original,
+			final Patch<T> patch, @Nonnull Executor executor) {
+		return submit(executor, new Callable<List<T>>() {
+			@Override
+			public List<T> call() throws PatchFailedException {
+				return patch(original, patch);
+			}
+		});
+	}
+
+	/**
+	 * Runs {@link #generateUnifiedDiff(String, String, List, Patch, int)} on
+	 * the given executor.
+	 * 
+	 * @param executor
+	 *            the executor to generate the unified diff. Must not be
+	 *            {@code null}.
+	 * @return the future lines of the unified diff. Never {@code null}.
+	 */
+	@Nonnull
+	public static ListenableFuture<List<String>> generateUnifiedDiffAsync(
+			final String original, final String revised,
+			final List<String> originalLines, final Patch<String> patch,
+			final int contextSize, @Nonnull Executor executor) {
+		return submit(executor, new Callable<List<String>>() {
+			@Override
+			public List<String> call() {
+				return generateUnifiedDiff(original, revised, originalLines, patch, contextSize);
+			}
+		});
+	}
+
+	/**
+	 * Runs {@link #parseUnifiedDiff(List)} on the given executor.
+	 * 
+	 * @param diff
+	 *            the lines of the unified diff
+	 * @param executor
+	 *            the executor to parse the unified diff. Must not be
+	 *            {@code null}.
+	 * @return the future patch. Never {@code null}.
+	 */
+	@Nonnull
+	public static ListenableFuture<Patch<String>> parseUnifiedDiffAsync(
+			final List<String> diff, @Nonnull Executor executor) {
+		return submit(executor, new Callable<Patch<String>>() {
+			@Override
+			public Patch<String> call() {
+				return parseUnifiedDiff(diff);
+			}
+		});
+	}
+
+	/**
+	 * Runs the task on the executor. Cancelling the returned future before
+	 * the task started skips it, cancelling it later interrupts it.
+	 */
+	private static <V> ListenableFuture<V> submit(Executor executor, Callable<V> task) {
+		if (executor == null) {
+			throw new IllegalArgumentException("executor must not be null");
+		}
+		ListenableFutureTask<V> future = ListenableFutureTask.create(task);
+		executor.execute(future);
+		return future;
+	}
+
+	private static void report(DiffMetricsListener listener, Operation operation,
+			int originalSize, int revisedSize, int deltas, long start) {
+		listener.onEvent(new DiffEvent.Builder(operation, "DiffUtils")
+				.sizes(originalSize, revisedSize).deltas(deltas)
+				.nanos(System.nanoTime() - start).build());
+	}
+
 	/**
 	 * processDeltas takes a list of Deltas and outputs them together in a
 	 * single block of Unified-Diff-format text.
@@ -0,0 +1,278 @@
+package difflib;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+
+/**
+ * Describes the difference between two sequences only by the index ranges of its deltas, without
+ * referring to the elements of the sequences.
+ *
+ * <p>
+ * Each delta is held as four ints (original start, original end, revised start, revised end) in one
+ * packed array, ends exclusive, sorted by position. Its {@link Delta.TYPE type} follows from which
+ * ranges are empty. Use {@link #toPatch(List, List)} if the lines of the deltas are needed.
+ * </p>
+ */
+public final class EditScript {
+    private static final int FIELDS = 4;
+
+    private final int[] ranges;
+    private final int size;
+
+    private EditScript(int[] ranges, int size) {
+        this.ranges = ranges;
+        this.size = size;
+    }
+
+    /**
+     * @return the number of deltas
+     */
+    @Nonnegative
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return true if both sequences are equal
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @param index the index of the delta
+     * @return the start position of the delta in the original sequence
+     */
+    @Nonnegative
+    public int getOriginalStart(int index) {
+        return ranges[checkIndex(index) * FIELDS];
+    }
+
+    /**
+     * @param index the index of the delta
+     * @return the end position (exclusive) of the delta in the original sequence
+     */
+    @Nonnegative
+    public int getOriginalEnd(int index) {
+        return ranges[checkIndex(index) * FIELDS + 1];
+    }
+
+    /**
+     * @param index the index of the delta
+     * @return the start position of the delta in the revised sequence
+     */
+    @Nonnegative
+    public int getRevisedStart(int index) {
+        return ranges[checkIndex(index) * FIELDS + 2];
+    }
+
+    /**
+     * @param index the index of the delta
+     * @return the end position (exclusive) of the delta in the revised sequence
+     */
+    @Nonnegative
+    public int getRevisedEnd(int index) {
+        return ranges[checkIndex(index) * FIELDS + 3];
+    }
+
+    /**
+     * @param index the index of the delta
+     * @return the type of the delta
+     */
+    @Nonnull
+    public Delta.TYPE getType(int index) {
+        int base = checkIndex(index) * FIELDS;
+        if (ranges[base] == ranges[base + 1]) {
+            return Delta.TYPE.INSERT;
+        } else if (ranges[base + 2] == ranges[base + 3]) {
+            return Delta.TYPE.DELETE;
+        }
+        return Delta.TYPE.CHANGE;
+    }
+
+    /**
+     * @param index the index of the delta
+     * @param original the original sequence this script was computed for
+     * @return a view of the elements of the delta in the original sequence
+     */
+    @Nonnull
+    public <T> List<T> getOriginalLines(int index, @Nonnull List<T> original) {
+        return original.subList(getOriginalStart(index), getOriginalEnd(index));
+    }
+
+    /**
+     * @param index the index of the delta
+     * @param revised the revised sequence this script was computed for
+     * @return a view of the elements of the delta in the revised sequence
+     */
+    @Nonnull
+    public <T> List<T> getRevisedLines(int index, @Nonnull List<T> revised) {
+        return revised.subList(getRevisedStart(index), getRevisedEnd(index));
+    }
+
+    private int checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("index: " + index + ", size: " + size);
+        }
+        return index;
+    }
+
+    /**
+     * Builds the {@link Patch} of this script. Like {@link difflib.myers.MyersDiff}, the chunks get
+     * copies of the affected elements.
+     *
+     * @param original the original sequence this script was computed for
+     * @param revised the revised sequence this script was computed for
+     * @return the patch
+     */
+    @Nonnull
+    public <T> Patch<T> toPatch(@Nonnull List<T> original, @Nonnull List<T> revised) {
+        Patch<T> patch = new Patch<T>();
+        for (int i = 0; i < size; i++) {
+            int base = i * FIELDS;
+            Chunk<T> orig = new Chunk<T>(ranges[base],
+                    new ArrayList<T>(original.subList(ranges[base], ranges[base + 1])));
+            Chunk<T> rev = new Chunk<T>(ranges[base + 2],
+                    new ArrayList<T>(revised.subList(ranges[base + 2], ranges[base + 3])));
+            switch (getType(i)) {
+            case INSERT:
+                patch.addDelta(new InsertDelta<T>(orig, rev));
+                break;
+            case DELETE:
+                patch.addDelta(new DeleteDelta<T>(orig, rev));
+                break;
+            default:
+                patch.addDelta(new ChangeDelta<T>(orig, rev));
+                break;
+            }
+        }
+        return patch;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = 1;
+        for (int i = 0; i < size * FIELDS; i++) {
+            result = 31 * result + ranges[i];
+        }
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj)
+            return true;
+        if (obj == null || getClass() != obj.getClass())
+            return false;
+        EditScript other = (EditScript) obj;
+        if (size != other.size)
+            return false;
+        for (int i = 0; i < size * FIELDS; i++) {
+            if (ranges[i] != other.ranges[i])
+                return false;
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder result = new StringBuilder("[");
+        for (int i = 0; i < size; i++) {
+            int base = i * FIELDS;
+            if (i > 0) {
+                result.append(", ");
+            }
+            result.append(getType(i)).append(' ').append(ranges[base]).append('-')
+                    .append(ranges[base + 1]).append('/').append(ranges[base + 2]).append('-')
+                    .append(ranges[base + 3]);
+        }
+        return result.append(']').toString();
+    }
+
+    /**
+     * Collects the deltas of a script. Deltas can be added in ascending or, e.g. while walking a
+     * diff path backwards, in descending order.
+     */
+    public static final class Builder {
+        private int[] ranges;
+        private int size;
+
+        public Builder() {
+            this(8);
+        }
+
+        public Builder(int expectedSize) {
+            ranges = new int[Math.max(1, expectedSize) * FIELDS];
+        }
+
+        /**
+         * Adds a delta. An empty delta is ignored, and a delta adjacent to the previously added
+         * one is merged with it.
+         *
+         * @return this builder
+         */
+        @Nonnull
+        public Builder add(int originalStart, int originalEnd, int revisedStart, int revisedEnd) {
+            if (originalStart == originalEnd && revisedStart == revisedEnd) {
+                return this;
+            }
+            if (size > 0) {
+                int last = (size - 1) * FIELDS;
+                if (ranges[last + 1] == originalStart && ranges[last + 3] == revisedStart) {
+                    ranges[last + 1] = originalEnd;
+                    ranges[last + 3] = revisedEnd;
+                    return this;
+                }
+                if (ranges[last] == originalEnd && ranges[last + 2] == revisedEnd) {
+                    ranges[last] = originalStart;
+                    ranges[last + 2] = revisedStart;
+                    return this;
+                }
+            }
+            if (size * FIELDS == ranges.length) {
+                ranges = Arrays.copyOf(ranges, ranges.length * 2);
+            }
+            int base = size * FIELDS;
+            ranges[base] = originalStart;
+            ranges[base + 1] = originalEnd;
+            ranges[base + 2] = revisedStart;
+            ranges[base + 3] = revisedEnd;
+            size++;
+            return this;
+        }
+
+        /**
+         * Removes all deltas, so the builder can be reused without allocating.
+         *
+         * @return this builder
+         */
+        @Nonnull
+        public Builder clear() {
+            size = 0;
+            return this;
+        }
+
+        /**
+         * @return the script with the added deltas in ascending order
+         */
+        @Nonnull
+        public EditScript build() {
+            int[] result = Arrays.copyOf(ranges, size * FIELDS);
+            if (size > 1 && result[0] > result[FIELDS]) {
+                // added in descending order
+                for (int i = 0, j = size - 1; i < j; i++, j--) {
+                    for (int f = 0; f < FIELDS; f++) {
+                        int tmp = result[i * FIELDS + f];
+                        result[i * FIELDS + f] = result[j * FIELDS + f];
+                        result[j * FIELDS + f] = tmp;
+                    }
+                }
+            }
+            return new EditScript(result, size);
+        }
+    }
+}
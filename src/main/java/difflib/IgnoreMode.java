@@ -0,0 +1,22 @@
+package difflib;
+
+/**
+ * Differences between lines which can be ignored, like the options of the same name of GNU diff.
+ * See {@link DiffUtils#diff(java.util.List, java.util.List, java.util.Set)}.
+ */
+public enum IgnoreMode {
+    /** Ignore all whitespace, like <code>diff -w</code>. */
+    ALL_SPACE,
+    /**
+     * Ignore leading and trailing whitespace, and treat each run of whitespace like a single space,
+     * like <code>diff -b</code>. Same as the ignoreWhiteSpaces option of {@link DiffRowGenerator}.
+     */
+    SPACE_CHANGE,
+    /**
+     * Ignore inserted and deleted lines which consist of whitespace only, like
+     * <code>diff -B</code>.
+     */
+    BLANK_LINES,
+    /** Ignore the case of letters, like <code>diff -i</code>. */
+    CASE
+}
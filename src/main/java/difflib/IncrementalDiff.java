@@ -0,0 +1,389 @@
+package difflib;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import difflib.myers.DiffWorkspace;
+
+/**
+ * Keeps the diff of two texts up to date while one of them is edited, e.g. the document of an
+ * editor against the saved file.
+ *
+ * <p>
+ * The first diff is computed like {@link DiffUtils#diffRanges(List, List, Set)}. An edit replaces
+ * a range of lines of one side. The lines around it which are outside all deltas are stable
+ * anchors: they are equal on both sides, so only the region between the anchors before and after
+ * the edit is diffed again, from the edit plus some {@link Builder#context(int) context} lines up
+ * to the deltas touching it. The deltas outside the region are kept, those after it are shifted.
+ * Apart from moving the lines after the edit, an edit takes time proportional to the size of the
+ * region and the number of deltas, not to the size of the texts. If blank lines are ignored, only
+ * the other lines are diffed, and the positions of the deltas are mapped back to the texts.
+ * </p>
+ *
+ * <p>
+ * The result is always a valid diff of the current texts, but not necessarily the same as a new
+ * diff of the whole texts: a region is never aligned with lines outside of it. A larger context
+ * makes that less likely. Instances are not thread-safe. Example:
+ * <code>
+ *    IncrementalDiff diff = new IncrementalDiff.Builder().build(saved, document);
+ *    diff.replaceRevised(10, 12, Arrays.asList("new line"));
+ *    Patch&lt;String&gt; patch = diff.getPatch();
+ * </code>
+ * </p>
+ */
+public class IncrementalDiff {
+    private final List<String> original;
+    private final List<String> revised;
+    /** The diffed lines of each side: the texts themselves, or their non-blank lines. */
+    private final List<String> originalLines;
+    private final List<String> revisedLines;
+    /** The positions of the non-blank lines, if blank lines are ignored. */
+    @Nullable
+    private final NonBlankLines originalPositions;
+    @Nullable
+    private final NonBlankLines revisedPositions;
+    /** The ignore modes of the diffed lines, without {@link IgnoreMode#BLANK_LINES}. */
+    private final Set<IgnoreMode> keyModes;
+    private final int context;
+    private final DiffWorkspace workspace = new DiffWorkspace();
+    /** The deltas between the diffed lines. */
+    private EditScript script;
+    @Nullable
+    private EditScript textScript;
+    @Nullable
+    private Patch<String> patch;
+
+    private IncrementalDiff(Builder builder, List<String> original, List<String> revised) {
+        Set<IgnoreMode> modes = EnumSet.noneOf(IgnoreMode.class);
+        modes.addAll(builder.ignoreModes);
+        boolean blankLines = modes.remove(IgnoreMode.BLANK_LINES);
+        keyModes = modes.isEmpty() ? Collections.<IgnoreMode>emptySet() : modes;
+        context = builder.context;
+        this.original = new ArrayList<String>(original);
+        this.revised = new ArrayList<String>(revised);
+        if (blankLines) {
+            originalLines = new ArrayList<String>();
+            revisedLines = new ArrayList<String>();
+            originalPositions = new NonBlankLines(this.original, originalLines);
+            revisedPositions = new NonBlankLines(this.revised, revisedLines);
+        } else {
+            originalLines = this.original;
+            revisedLines = this.revised;
+            originalPositions = null;
+            revisedPositions = null;
+        }
+        script = LineKeys.diff(originalLines, revisedLines, keyModes, workspace);
+    }
+
+    /**
+     * @return an unmodifiable view of the current original text
+     */
+    @Nonnull
+    public List<String> getOriginal() {
+        return Collections.unmodifiableList(original);
+    }
+
+    /**
+     * @return an unmodifiable view of the current revised text
+     */
+    @Nonnull
+    public List<String> getRevised() {
+        return Collections.unmodifiableList(revised);
+    }
+
+    /**
+     * @return the deltas between the current texts
+     */
+    @Nonnull
+    public EditScript getEditScript() {
+        if (originalPositions == null || revisedPositions == null) {
+            return script;
+        }
+        if (textScript == null) {
+            // like the keyed line diff, the deltas do not include the blank lines around them
+            int[] aLines = originalPositions.positions;
+            int[] bLines = revisedPositions.positions;
+            EditScript.Builder result = new EditScript.Builder(script.size());
+            for (int i = 0; i < script.size(); i++) {
+                int originalStart = LineKeys.start(aLines, script.getOriginalStart(i), script.getOriginalEnd(i));
+                int revisedStart = LineKeys.start(bLines, script.getRevisedStart(i), script.getRevisedEnd(i));
+                result.add(originalStart,
+                        LineKeys.end(aLines, script.getOriginalStart(i), script.getOriginalEnd(i), originalStart),
+                        revisedStart,
+                        LineKeys.end(bLines, script.getRevisedStart(i), script.getRevisedEnd(i), revisedStart));
+            }
+            textScript = result.build();
+        }
+        return textScript;
+    }
+
+    /**
+     * @return the patch between the current texts. It is {@link Patch#freeze() frozen} and kept
+     *         until the next edit.
+     */
+    @Nonnull
+    public Patch<String> getPatch() {
+        if (patch == null) {
+            patch = getEditScript().toPatch(original, revised).freeze();
+        }
+        return patch;
+    }
+
+    /**
+     * Replaces the lines {@code from} (inclusive) to {@code to} (exclusive) of the original text
+     * and updates the diff.
+     *
+     * @param from the first replaced line
+     * @param to the end of the replaced lines, {@code from} to insert only
+     * @param lines the new lines. Must not be {@code null}.
+     * @return the deltas between the current texts
+     */
+    @Nonnull
+    public EditScript replaceOriginal(@Nonnegative int from, @Nonnegative int to, @Nonnull List<String> lines) {
+        return replace(false, from, to, lines);
+    }
+
+    /**
+     * Replaces the lines {@code from} (inclusive) to {@code to} (exclusive) of the revised text
+     * and updates the diff.
+     *
+     * @param from the first replaced line
+     * @param to the end of the replaced lines, {@code from} to insert only
+     * @param lines the new lines. Must not be {@code null}.
+     * @return the deltas between the current texts
+     */
+    @Nonnull
+    public EditScript replaceRevised(@Nonnegative int from, @Nonnegative int to, @Nonnull List<String> lines) {
+        return replace(true, from, to, lines);
+    }
+
+    private EditScript replace(boolean revisedSide, int from, int to, List<String> lines) {
+        List<String> text = revisedSide ? revised : original;
+        if (from < 0 || from > to || to > text.size()) {
+            throw new IndexOutOfBoundsException("range: " + from + "-" + to + ", size: " + text.size());
+        }
+        if (lines == null) {
+            throw new IllegalArgumentException("lines must not be null");
+        }
+        // copied first, the lines may be a view of the text
+        List<String> newLines = new ArrayList<String>(lines);
+        NonBlankLines positions = revisedSide ? revisedPositions : originalPositions;
+        if (positions == null) {
+            replaceLines(revisedSide, from, to, newLines);
+        } else {
+            text.subList(from, to).clear();
+            text.addAll(from, newLines);
+            int lineFrom = positions.rank(from);
+            int lineTo = positions.rank(to);
+            replaceLines(revisedSide, lineFrom, lineTo, positions.replace(lineFrom, lineTo, from, to, newLines));
+        }
+        textScript = null;
+        patch = null;
+        return getEditScript();
+    }
+
+    /**
+     * Replaces a range of the diffed lines of one side, and diffs the region around it again.
+     */
+    private void replaceLines(boolean revisedSide, int from, int to, List<String> newLines) {
+        List<String> edited = revisedSide ? revisedLines : originalLines;
+        List<String> other = revisedSide ? originalLines : revisedLines;
+        // the region to diff again, widened to the deltas touching it
+        int regionStart = Math.max(0, from - context);
+        int regionEnd = Math.min(edited.size(), to + context);
+        int lo = firstEndingAtOrAfter(regionStart, revisedSide);
+        int hi = lo;
+        while (hi < script.size() && start(hi, revisedSide) <= regionEnd) {
+            regionStart = Math.min(regionStart, start(hi, revisedSide));
+            regionEnd = Math.max(regionEnd, end(hi, revisedSide));
+            hi++;
+        }
+        // the region bounds lie on anchors, where both sides differ by the same offset
+        int otherStart = lo == 0 ? regionStart : regionStart - end(lo - 1, revisedSide) + end(lo - 1, !revisedSide);
+        int otherEnd = hi == 0 ? regionEnd : regionEnd - end(hi - 1, revisedSide) + end(hi - 1, !revisedSide);
+
+        edited.subList(from, to).clear();
+        edited.addAll(from, newLines);
+        int shift = newLines.size() - (to - from);
+
+        List<String> editedRegion = edited.subList(regionStart, regionEnd + shift);
+        List<String> otherRegion = other.subList(otherStart, otherEnd);
+        EditScript local = revisedSide ? LineKeys.diff(otherRegion, editedRegion, keyModes, workspace)
+                : LineKeys.diff(editedRegion, otherRegion, keyModes, workspace);
+
+        EditScript.Builder result = new EditScript.Builder(script.size() + local.size());
+        for (int i = 0; i < lo; i++) {
+            result.add(script.getOriginalStart(i), script.getOriginalEnd(i), script.getRevisedStart(i),
+                    script.getRevisedEnd(i));
+        }
+        int originalOffset = revisedSide ? otherStart : regionStart;
+        int revisedOffset = revisedSide ? regionStart : otherStart;
+        for (int i = 0; i < local.size(); i++) {
+            result.add(local.getOriginalStart(i) + originalOffset, local.getOriginalEnd(i) + originalOffset,
+                    local.getRevisedStart(i) + revisedOffset, local.getRevisedEnd(i) + revisedOffset);
+        }
+        int originalShift = revisedSide ? 0 : shift;
+        int revisedShift = revisedSide ? shift : 0;
+        for (int i = hi; i < script.size(); i++) {
+            result.add(script.getOriginalStart(i) + originalShift, script.getOriginalEnd(i) + originalShift,
+                    script.getRevisedStart(i) + revisedShift, script.getRevisedEnd(i) + revisedShift);
+        }
+        script = result.build();
+    }
+
+    /**
+     * @return the index of the first delta which ends at or after the given line of one side, or
+     *         the number of deltas
+     */
+    private int firstEndingAtOrAfter(int line, boolean revisedSide) {
+        int low = 0;
+        int high = script.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (end(mid, revisedSide) < line) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private int start(int index, boolean revisedSide) {
+        return revisedSide ? script.getRevisedStart(index) : script.getOriginalStart(index);
+    }
+
+    private int end(int index, boolean revisedSide) {
+        return revisedSide ? script.getRevisedEnd(index) : script.getOriginalEnd(index);
+    }
+
+    /**
+     * The positions of the non-blank lines of one side in its text, ascending.
+     */
+    private static final class NonBlankLines {
+        private int[] positions;
+        private int size;
+
+        /**
+         * @param text the text
+         * @param lines receives the non-blank lines of the text
+         */
+        NonBlankLines(List<String> text, List<String> lines) {
+            positions = new int[Math.max(16, text.size())];
+            int i = 0;
+            for (String line : text) {
+                if (!isBlank(line)) {
+                    positions[size++] = i;
+                    lines.add(line);
+                }
+                i++;
+            }
+        }
+
+        /**
+         * @return the number of non-blank lines before the given line of the text
+         */
+        int rank(int line) {
+            int index = Arrays.binarySearch(positions, 0, size, line);
+            return index >= 0 ? index : -index - 1;
+        }
+
+        /**
+         * Updates the positions after the lines {@code from} to {@code to} of the text were
+         * replaced by the given lines.
+         *
+         * @param lineFrom the rank of {@code from}
+         * @param lineTo the rank of {@code to}
+         * @return the non-blank lines of the new lines
+         */
+        List<String> replace(int lineFrom, int lineTo, int from, int to, List<String> newLines) {
+            List<String> result = new ArrayList<String>();
+            for (String line : newLines) {
+                if (!isBlank(line)) {
+                    result.add(line);
+                }
+            }
+            int newSize = size - (lineTo - lineFrom) + result.size();
+            if (newSize > positions.length) {
+                positions = Arrays.copyOf(positions, Math.max(newSize, positions.length * 2));
+            }
+            System.arraycopy(positions, lineTo, positions, lineFrom + result.size(), size - lineTo);
+            int index = lineFrom;
+            for (int i = 0; i < newLines.size(); i++) {
+                if (!isBlank(newLines.get(i))) {
+                    positions[index++] = from + i;
+                }
+            }
+            int shift = newLines.size() - (to - from);
+            for (int i = index; i < newSize; i++) {
+                positions[i] += shift;
+            }
+            size = newSize;
+            return result;
+        }
+
+        private static boolean isBlank(String line) {
+            return line != null && LineKeys.isBlank(line);
+        }
+    }
+
+    /**
+     * This class used for building an IncrementalDiff.
+     */
+    public static class Builder {
+        private final Set<IgnoreMode> ignoreModes = EnumSet.noneOf(IgnoreMode.class);
+        private int context = 8;
+
+        /**
+         * Ignores the given kinds of differences, like {@link DiffUtils#diff(List, List, Set)}.
+         *
+         * @param modes the differences to ignore
+         * @return builder with configured ignore modes
+         */
+        public Builder ignore(IgnoreMode... modes) {
+            Collections.addAll(ignoreModes, modes);
+            return this;
+        }
+
+        /**
+         * The number of unchanged lines before and after an edit which are diffed again with it.
+         * Default: 8.
+         *
+         * @param context the number of lines
+         * @return builder with configured context
+         */
+        public Builder context(@Nonnegative int context) {
+            if (context < 0) {
+                throw new IllegalArgumentException("context must not be negative");
+            }
+            this.context = context;
+            return this;
+        }
+
+        /**
+         * Diffs the given texts. They are copied, later edits go through the returned instance.
+         *
+         * @param original the original text. Must not be {@code null}.
+         * @param revised the revised text. Must not be {@code null}.
+         * @return the diff of the texts
+         */
+        @Nonnull
+        public IncrementalDiff build(@Nonnull List<String> original, @Nonnull List<String> revised) {
+            if (original == null) {
+                throw new IllegalArgumentException("original must not be null");
+            }
+            if (revised == null) {
+                throw new IllegalArgumentException("revised must not be null");
+            }
+            return new IncrementalDiff(this, original, revised);
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package difflib;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Nonnull;
+
+import com.google.common.base.Function;
+import com.google.common.base.Joiner;
+
+import difflib.myers.PrimitiveDiff;
+
+/**
+ * Helpers for the inline diffs of a changed block, shared by {@link DiffRowGenerator} and the
+ * renderers of {@link difflib.render}. The inline diffs are computed on the unmodified lines and
+ * passed around as marks, i.e. pairs of start and end offset into a line, so escaping and markup
+ * are added in a single pass afterwards.
+ */
+public final class InlineDiff {
+    /** The marks of a line without inline diffs. */
+    public static final int[] NO_MARKS = new int[0];
+    /** The default maximum length of a changed block for which inline diffs are computed. */
+    public static final int DEFAULT_MAX_LENGTH = 10000;
+    private static final Joiner LF_JOINER = Joiner.on('\n');
+
+    private InlineDiff() {
+    }
+
+    /**
+     * Computes the inline deltas between the lines of a changed block, joined with '\n'. A block
+     * longer than the given maximum, counting the characters of both sides, is one delta as a
+     * whole, since the inline diff of a rewritten block takes time quadratic in its length.
+     *
+     * @param original the lines of the original side
+     * @param revised the lines of the revised side
+     * @param tokenizer defines the granularity of the diff, e.g. {@link InlineTokenizers#WORDS}.
+     *            The concatenated tokens must give the tokenized text.
+     * @param maxLength the maximum length of a block which is diffed
+     * @return the inline deltas as char offsets into the joined lines
+     */
+    @Nonnull
+    public static EditScript diff(@Nonnull List<String> original, @Nonnull List<String> revised,
+            @Nonnull Function<String, List<String>> tokenizer, int maxLength) {
+        String orig = LF_JOINER.join(original);
+        String rev = LF_JOINER.join(revised);
+        if (orig.length() + rev.length() > maxLength) {
+            return new EditScript.Builder(1).add(0, orig.length(), 0, rev.length()).build();
+        }
+        // part of rendering a patch, so not reported as diffs of their own
+        if (tokenizer == InlineTokenizers.CHARACTERS) {
+            return PrimitiveDiff.diffUnreported(chars(orig), chars(rev));
+        }
+        List<String> origTokens = tokenize(orig, tokenizer);
+        List<String> revTokens = tokenize(rev, tokenizer);
+        Map<String, Integer> ids = new HashMap<String, Integer>();
+        EditScript tokenDeltas = PrimitiveDiff.diffUnreported(toIds(origTokens, ids), toIds(revTokens, ids));
+
+        int[] origOffsets = offsets(origTokens);
+        int[] revOffsets = offsets(revTokens);
+        EditScript.Builder charDeltas = new EditScript.Builder(tokenDeltas.size());
+        for (int i = 0; i < tokenDeltas.size(); i++) {
+            charDeltas.add(origOffsets[tokenDeltas.getOriginalStart(i)],
+                    origOffsets[tokenDeltas.getOriginalEnd(i)],
+                    revOffsets[tokenDeltas.getRevisedStart(i)],
+                    revOffsets[tokenDeltas.getRevisedEnd(i)]);
+        }
+        return charDeltas.build();
+    }
+
+    private static int[] chars(String text) {
+        int[] result = new int[text.length()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = text.charAt(i);
+        }
+        return result;
+    }
+
+    private static List<String> tokenize(String text, Function<String, List<String>> tokenizer) {
+        List<String> tokens = tokenizer.apply(text);
+        int length = 0;
+        for (String token : tokens) {
+            length += token.length();
+        }
+        if (length != text.length()) {
+            throw new IllegalStateException("the tokens of the inline tokenizer don't cover the text");
+        }
+        return tokens;
+    }
+
+    private static int[] toIds(List<String> tokens, Map<String, Integer> ids) {
+        int[] result = new int[tokens.size()];
+        int i = 0;
+        for (String token : tokens) {
+            Integer id = ids.get(token);
+            if (id == null) {
+                id = ids.size();
+                ids.put(token, id);
+            }
+            result[i++] = id;
+        }
+        return result;
+    }
+
+    /**
+     * @return the char offset of each token, followed by the length of the text
+     */
+    private static int[] offsets(List<String> tokens) {
+        int[] result = new int[tokens.size() + 1];
+        int i = 0;
+        for (String token : tokens) {
+            result[i + 1] = result[i] + token.length();
+            i++;
+        }
+        return result;
+    }
+
+    /**
+     * Splits the inline deltas of one side, which are offsets into the lines joined with '\n',
+     * into the marks of each line.
+     *
+     * @param lines the lines of one side of the changed block
+     * @param inline the inline deltas between both sides
+     * @param original true for the original side of the inline deltas, false for the revised
+     * @return the marks of each line, as ascending pairs of start and end offset
+     */
+    @Nonnull
+    public static List<int[]> lineMarks(@Nonnull List<String> lines, @Nonnull EditScript inline, boolean original) {
+        List<int[]> result = new ArrayList<int[]>(lines.size());
+        int lineStart = 0;
+        int first = 0;
+        for (String line : lines) {
+            int lineEnd = lineStart + line.length();
+            int[] marks = NO_MARKS;
+            int size = 0;
+            for (int i = first; i < inline.size(); i++) {
+                int start = original ? inline.getOriginalStart(i) : inline.getRevisedStart(i);
+                if (start > lineEnd) {
+                    break;
+                }
+                int end = original ? inline.getOriginalEnd(i) : inline.getRevisedEnd(i);
+                start = Math.max(start, lineStart);
+                end = Math.min(end, lineEnd);
+                if (start < end) {
+                    if (size == marks.length) {
+                        marks = Arrays.copyOf(marks, Math.max(4, size * 2));
+                    }
+                    marks[size++] = start - lineStart;
+                    marks[size++] = end - lineStart;
+                }
+            }
+            result.add(size == marks.length ? marks : Arrays.copyOf(marks, size));
+            // skip the deltas which end within this line or at its line break
+            while (first < inline.size()
+                    && (original ? inline.getOriginalEnd(first) : inline.getRevisedEnd(first)) <= lineEnd + 1) {
+                first++;
+            }
+            lineStart = lineEnd + 1;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,106 @@
+package difflib;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.annotation.Nonnull;
+
+import com.google.common.base.Function;
+
+/**
+ * Tokenizers which define the granularity of the inline diffs of {@link DiffRowGenerator}.
+ *
+ * <p>
+ * A tokenizer splits the text of a changed block into tokens which, concatenated, give the text
+ * again. The inline diff is computed on the tokens, so a coarser tokenizer gives shorter
+ * sequences, i.e. faster diffs and fewer, more readable inline deltas.
+ * </p>
+ */
+public final class InlineTokenizers {
+    /**
+     * Every character is a token. This is the default, and it is diffed without creating a
+     * {@link String} per character.
+     */
+    public static final Function<String, List<String>> CHARACTERS = new Function<String, List<String>>() {
+        @Override
+        public List<String> apply(String text) {
+            List<String> result = new ArrayList<String>(text.length());
+            for (int i = 0; i < text.length(); i++) {
+                result.add(text.substring(i, i + 1));
+            }
+            return result;
+        }
+    };
+
+    /**
+     * Runs of letters, digits and '_' are tokens, every other character is a token of its own.
+     */
+    public static final Function<String, List<String>> WORDS = new Function<String, List<String>>() {
+        @Override
+        public List<String> apply(String text) {
+            List<String> result = new ArrayList<String>();
+            int start = 0;
+            while (start < text.length()) {
+                int end = start + 1;
+                if (isWordChar(text.charAt(start))) {
+                    while (end < text.length() && isWordChar(text.charAt(end))) {
+                        end++;
+                    }
+                }
+                result.add(text.substring(start, end));
+                start = end;
+            }
+            return result;
+        }
+
+        private boolean isWordChar(char c) {
+            return Character.isLetterOrDigit(c) || c == '_';
+        }
+    };
+
+    /**
+     * Runs of whitespace and runs of other characters are tokens. Line breaks are not merged with
+     * other whitespace.
+     */
+    public static final Function<String, List<String>> WHITESPACE_DELIMITED = regex(Pattern.compile("[^\\s]+|[\\t\\x0B\\f\\r ]+"));
+
+    private InlineTokenizers() {
+    }
+
+    /**
+     * Creates a tokenizer which makes each match of the given pattern a token. The text between
+     * two matches becomes a token as well.
+     *
+     * @param pattern the pattern matching the tokens
+     * @return the tokenizer
+     */
+    @Nonnull
+    public static Function<String, List<String>> regex(@Nonnull final Pattern pattern) {
+        if (pattern == null) {
+            throw new IllegalArgumentException("pattern must not be null");
+        }
+        return new Function<String, List<String>>() {
+            @Override
+            public List<String> apply(String text) {
+                List<String> result = new ArrayList<String>();
+                Matcher matcher = pattern.matcher(text);
+                int pos = 0;
+                while (matcher.find()) {
+                    if (matcher.start() > pos) {
+                        result.add(text.substring(pos, matcher.start()));
+                    }
+                    if (matcher.end() > matcher.start()) {
+                        result.add(matcher.group());
+                    }
+                    pos = matcher.end();
+                }
+                if (pos < text.length()) {
+                    result.add(text.substring(pos));
+                }
+                return result;
+            }
+        };
+    }
+}
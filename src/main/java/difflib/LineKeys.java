@@ -0,0 +1,193 @@
+package difflib;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import javax.annotation.Nullable;
+
+import difflib.myers.DiffWorkspace;
+import difflib.myers.PrimitiveDiff;
+
+/**
+ * Diffs lines under some {@link IgnoreMode}s. Each line is normalized exactly once into a key,
+ * equal keys get equal int ids, and the ids are diffed by {@link PrimitiveDiff}. The ids and
+ * the arrays of the diff are held by a {@link DiffWorkspace}.
+ */
+final class LineKeys {
+    /** The id of a blank line when blank lines are ignored. */
+    private static final int BLANK = -1;
+    /** The id of a null line, which only equals other null lines. */
+    private static final int NULL = -2;
+
+    private final boolean allSpace;
+    private final boolean spaceChange;
+    private final boolean blankLines;
+    private final boolean ignoreCase;
+    private final DiffWorkspace workspace;
+    private StringBuilder buffer;
+
+    private LineKeys(Set<IgnoreMode> modes, DiffWorkspace workspace) {
+        allSpace = modes.contains(IgnoreMode.ALL_SPACE);
+        spaceChange = modes.contains(IgnoreMode.SPACE_CHANGE);
+        blankLines = modes.contains(IgnoreMode.BLANK_LINES);
+        ignoreCase = modes.contains(IgnoreMode.CASE);
+        this.workspace = workspace;
+    }
+
+    static EditScript diff(List<String> original, List<String> revised, Set<IgnoreMode> modes,
+            @Nullable DiffWorkspace workspace) {
+        LineKeys keys = new LineKeys(modes, workspace == null ? new DiffWorkspace() : workspace);
+        try {
+            return keys.diff(original, revised);
+        } finally {
+            // do not keep the lines reachable from the workspace
+            keys.workspace.clearIds();
+        }
+    }
+
+    /**
+     * Like {@link #diff(List, List, Set, DiffWorkspace)}, but keeps the ids of the lines in the
+     * workspace, so lines which occur again in the next diff are not interned again.
+     */
+    static EditScript diffKeepingIds(List<String> original, List<String> revised, Set<IgnoreMode> modes,
+            DiffWorkspace workspace) {
+        return new LineKeys(modes, workspace).diff(original, revised);
+    }
+
+    private EditScript diff(List<String> original, List<String> revised) {
+        int n = original.size();
+        int m = revised.size();
+        if (!blankLines) {
+            // equal lines have equal keys, so the common prefix and suffix need no keys
+            int prefix = 0;
+            while (prefix < n && prefix < m && equal(original.get(prefix), revised.get(prefix))) {
+                prefix++;
+            }
+            int suffix = 0;
+            while (prefix < n - suffix && prefix < m - suffix
+                    && equal(original.get(n - suffix - 1), revised.get(m - suffix - 1))) {
+                suffix++;
+            }
+            int[] a = toIds(original, prefix, n - suffix, workspace.originalKeys(n));
+            int[] b = toIds(revised, prefix, m - suffix, workspace.revisedKeys(m));
+            return PrimitiveDiff.diff(a, prefix, n - suffix, b, prefix, m - suffix, workspace);
+        }
+        int[] a = toIds(original, 0, n, workspace.originalKeys(n));
+        int[] b = toIds(revised, 0, m, workspace.revisedKeys(m));
+        // diff without the blank lines, then map the positions back
+        int[] aLines = workspace.originalIndexes(n);
+        int[] bLines = workspace.revisedIndexes(m);
+        int aCount = selectNonBlankLines(a, n, aLines);
+        int bCount = selectNonBlankLines(b, m, bLines);
+        EditScript script = PrimitiveDiff.diff(a, 0, aCount, b, 0, bCount, workspace);
+        EditScript.Builder result = new EditScript.Builder(script.size());
+        for (int i = 0; i < script.size(); i++) {
+            int originalStart = start(aLines, script.getOriginalStart(i), script.getOriginalEnd(i));
+            int revisedStart = start(bLines, script.getRevisedStart(i), script.getRevisedEnd(i));
+            result.add(originalStart, end(aLines, script.getOriginalStart(i), script.getOriginalEnd(i), originalStart),
+                    revisedStart, end(bLines, script.getRevisedStart(i), script.getRevisedEnd(i), revisedStart));
+        }
+        return result.build();
+    }
+
+    /**
+     * @return the line index where the given range of non-blank lines starts. An empty range
+     *         starts right after the previous non-blank line.
+     */
+    static int start(int[] lines, int from, int to) {
+        if (from < to) {
+            return lines[from];
+        }
+        return from == 0 ? 0 : lines[from - 1] + 1;
+    }
+
+    /**
+     * @return the line index where the given range of non-blank lines ends, so blank lines after
+     *         it are not part of the range
+     */
+    static int end(int[] lines, int from, int to, int start) {
+        return from < to ? lines[to - 1] + 1 : start;
+    }
+
+    private static boolean equal(String a, String b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
+    /**
+     * Stores the ids of the lines in the given range at the same positions of the result.
+     */
+    private int[] toIds(List<String> lines, int from, int to, int[] result) {
+        Iterator<String> iterator = lines.listIterator(from);
+        for (int i = from; i < to;) {
+            String line = iterator.next();
+            if (line == null) {
+                result[i++] = NULL;
+                continue;
+            }
+            String key = key(line);
+            result[i++] = key == null ? BLANK : workspace.idOf(key);
+        }
+        return result;
+    }
+
+    /**
+     * @return the normalized line, or null if it is blank and blank lines are ignored
+     */
+    private String key(String line) {
+        if (blankLines && isBlank(line)) {
+            return null;
+        }
+        if (!allSpace && !spaceChange && !ignoreCase) {
+            return line;
+        }
+        if (buffer == null) {
+            buffer = new StringBuilder();
+        }
+        buffer.setLength(0);
+        boolean pendingSpace = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (Character.isWhitespace(c)) {
+                if (spaceChange && !allSpace) {
+                    // collapse the run, and drop it if it leads the line
+                    pendingSpace = buffer.length() > 0;
+                } else if (!allSpace) {
+                    buffer.append(c);
+                }
+                continue;
+            }
+            if (pendingSpace) {
+                buffer.append(' ');
+                pendingSpace = false;
+            }
+            buffer.append(ignoreCase ? Character.toLowerCase(c) : c);
+        }
+        return buffer.toString();
+    }
+
+    static boolean isBlank(String line) {
+        for (int i = 0; i < line.length(); i++) {
+            if (!Character.isWhitespace(line.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Moves the ids of the non-blank lines to the front of the array, and stores their positions.
+     *
+     * @return the number of non-blank lines
+     */
+    private static int selectNonBlankLines(int[] ids, int length, int[] lines) {
+        int count = 0;
+        for (int i = 0; i < length; i++) {
+            if (ids[i] != BLANK) {
+                lines[count] = i;
+                ids[count++] = ids[i];
+            }
+        }
+        return count;
+    }
+}
@@ -15,19 +15,34 @@
  */
 package difflib;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.ListIterator;
 
+import difflib.metrics.DiffEvent;
+import difflib.metrics.DiffEvent.Operation;
+import difflib.metrics.DiffMetrics;
+import difflib.metrics.DiffMetricsListener;
+
 /**
  * Describes the patch holding all deltas between the original and revised texts.
+ *
+ * <p>
+ * A patch and its deltas and chunks are mutable, and {@link #getDeltas()} sorts the deltas in
+ * place, so a patch must not be shared between threads as is. {@link #freeze()} makes it
+ * immutable; a frozen patch can be applied, restored and rendered by many threads concurrently,
+ * e.g. when it is cached.
+ * </p>
  * 
  * @author <a href="dm.naumenko@gmail.com">Dmitry Naumenko</a>
  * @param T The type of the compared elements in the 'lines'.
  */
 public class Patch<T> {
     private List<Delta<T>> deltas = new LinkedList<Delta<T>>();
+    // volatile, so the frozen deltas are visible to each thread which sees the flag
+    private volatile boolean frozen;
 
     /**
      * Apply this patch to the given target
@@ -35,12 +50,17 @@ public class Patch<T> {
      * @throws PatchFailedException if can't apply patch
      */
     public List<T> applyTo(List<T> target) throws PatchFailedException {
+        DiffMetricsListener listener = DiffMetrics.getListener();
+        long start = listener == null ? 0 : System.nanoTime();
         List<T> result = new LinkedList<T>(target);
         ListIterator<Delta<T>> it = getDeltas().listIterator(deltas.size());
         while (it.hasPrevious()) {
             Delta<T> delta = (Delta<T>) it.previous();
             delta.applyTo(result);
         }
+        if (listener != null) {
+            report(listener, Operation.APPLY, target, result, start);
+        }
         return result;
     }
     
@@ -50,29 +70,79 @@ public class Patch<T> {
      * @return the restored text
      */
     public List<T> restore(List<T> target) {
+        DiffMetricsListener listener = DiffMetrics.getListener();
+        long start = listener == null ? 0 : System.nanoTime();
         List<T> result = new LinkedList<T>(target);
         ListIterator<Delta<T>> it = getDeltas().listIterator(deltas.size());
         while (it.hasPrevious()) {
             Delta<T> delta = (Delta<T>) it.previous();
             delta.restore(result);
         }
+        if (listener != null) {
+            report(listener, Operation.RESTORE, target, result, start);
+        }
         return result;
     }
+
+    private void report(DiffMetricsListener listener, Operation operation, List<T> target,
+            List<T> result, long start) {
+        listener.onEvent(new DiffEvent.Builder(operation, "Patch").sizes(target.size(), result.size())
+                .deltas(deltas.size()).nanos(System.nanoTime() - start).build());
+    }
     
     /**
      * Add the given delta to this patch
      * @param delta the given delta
+     * @throws IllegalStateException if the patch is frozen
      */
     public void addDelta(Delta<T> delta) {
+        if (frozen) {
+            throw new IllegalStateException("patch is frozen");
+        }
         deltas.add(delta);
     }
 
     /**
      * Get the list of computed deltas
-     * @return the deltas
+     * @return the deltas, sorted by position. Unmodifiable if the patch is frozen.
      */
     public List<Delta<T>> getDeltas() {
-        Collections.sort(deltas, DeltaComparator.INSTANCE);
+        if (!frozen) {
+            Collections.sort(deltas, DeltaComparator.INSTANCE);
+        }
         return deltas;
     }
+
+    /**
+     * Makes this patch immutable: the deltas are sorted once into an unmodifiable list, and the
+     * lines of each chunk are replaced by an unmodifiable copy. Afterwards, adding a delta or
+     * replacing a chunk or its lines throws an {@link IllegalStateException}. Does nothing if the
+     * patch is frozen already.
+     *
+     * <p>
+     * The deltas and chunks must not be shared with another, unfrozen patch. The patch must be
+     * frozen before it is handed to other threads.
+     * </p>
+     *
+     * @return this patch
+     */
+    public Patch<T> freeze() {
+        if (!frozen) {
+            List<Delta<T>> sorted = new ArrayList<Delta<T>>(deltas);
+            Collections.sort(sorted, DeltaComparator.INSTANCE);
+            for (Delta<T> delta : sorted) {
+                delta.freeze();
+            }
+            deltas = Collections.unmodifiableList(sorted);
+            frozen = true;
+        }
+        return this;
+    }
+
+    /**
+     * @return true if the patch is {@link #freeze() frozen}
+     */
+    public boolean isFrozen() {
+        return frozen;
+    }
 }
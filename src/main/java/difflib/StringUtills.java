@@ -15,10 +15,15 @@
  */
 package difflib;
 
-import java.util.LinkedList;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 
+import javax.annotation.Nullable;
+
 public class StringUtills {
+    private static final String BR = "<br>";
+    
     /**
      * Replaces all tabs with 4 spaces.
      * @param str The string.
@@ -42,7 +47,7 @@ public class StringUtills {
     }
     
     public static List<String> normalize(List<String> list) {
-        List<String> result = new LinkedList<String>();
+        List<String> result = new ArrayList<String>(list.size());
         for (String line : list) {
             result.add(normalize(line));
         }
@@ -50,7 +55,7 @@ public class StringUtills {
     }
     
     public static List<String> wrapText(List<String> list, int columnWidth) {
-        List<String> result = new LinkedList<String>();
+        List<String> result = new ArrayList<String>(list.size());
         for (String line : list) {
             result.add(wrapText(line, columnWidth));
         }
@@ -64,16 +69,139 @@ public class StringUtills {
      * @return the wrapped text
      */
     public static String wrapText(String line, int columnWidth) {
-        int lenght = line.length();
-        int delimiter = "<br>".length();
-        int widthIndex = columnWidth;
-        
-        for (int count = 0; lenght > widthIndex; count++) {
-            line = line.subSequence(0, widthIndex + delimiter * count) + "<br>"
-                    + line.substring(widthIndex + delimiter * count);
-            widthIndex += columnWidth;
+        if (line.length() <= columnWidth) {
+            return line;
+        }
+        StringBuilder result = new StringBuilder(line.length() + line.length() / columnWidth * BR.length());
+        int pos = 0;
+        while (line.length() - pos > columnWidth) {
+            result.append(line, pos, pos + columnWidth).append(BR);
+            pos += columnWidth;
+        }
+        return result.append(line, pos, line.length()).toString();
+    }
+    
+    /**
+     * Escapes the HTML special characters <code>&amp; &lt; &gt; &quot; '</code> of the given line,
+     * replaces its tabs with 4 spaces and inserts a <code>&lt;br&gt;</code> after every
+     * <code>columnWidth</code> displayed characters, in a single pass. Unlike
+     * {@link #wrapText(String, int)} after {@link #normalize(String)}, an entity counts as one
+     * character, and surrogate pairs are not split.
+     * @param line the text
+     * @param columnWidth the given column
+     * @param result the builder to append the escaped and wrapped text to, e.g. a reused one
+     * @return the given builder
+     */
+    public static StringBuilder escapeAndWrap(CharSequence line, int columnWidth, StringBuilder result) {
+        return escapeAndWrap(line, columnWidth, InlineDiff.NO_MARKS, "", "", result);
+    }
+    
+    /**
+     * Like {@link #escapeAndWrap(CharSequence, int, StringBuilder)}, but also wraps the marked
+     * parts of the line with the given tags. The marks are offsets into the unescaped line, so a
+     * tag never splits an entity.
+     * @param line the text
+     * @param columnWidth the given column
+     * @param marks the parts to wrap, as ascending pairs of start and end offset into the line
+     * @param startTag the text inserted at the start of each mark
+     * @param endTag the text inserted at the end of each mark
+     * @param result the builder to append the escaped and wrapped text to, e.g. a reused one
+     * @return the given builder
+     */
+    public static StringBuilder escapeAndWrap(CharSequence line, int columnWidth, int[] marks,
+            String startTag, String endTag, StringBuilder result) {
+        if (columnWidth <= 0) {
+            throw new IllegalArgumentException("columnWidth must be positive");
+        }
+        int column = 0;
+        int mark = 0;
+        for (int i = 0; i < line.length(); i++) {
+            // close a mark before the line break, open one after it
+            if (mark < marks.length && marks[mark] == i && mark % 2 == 1) {
+                result.append(endTag);
+                mark++;
+            }
+            char c = line.charAt(i);
+            if (c == '\t') {
+                for (int j = 0; j < 4; j++) {
+                    column = nextColumn(column, columnWidth, result);
+                    if (j == 0) {
+                        mark = startMark(marks, mark, i, startTag, result);
+                    }
+                    result.append(' ');
+                }
+                continue;
+            }
+            if (!Character.isLowSurrogate(c) || i == 0 || !Character.isHighSurrogate(line.charAt(i - 1))) {
+                column = nextColumn(column, columnWidth, result);
+            }
+            mark = startMark(marks, mark, i, startTag, result);
+            String entity = entity(c);
+            if (entity != null) {
+                result.append(entity);
+            } else {
+                result.append(c);
+            }
+        }
+        if (mark < marks.length) {
+            result.append(endTag);
+        }
+        return result;
+    }
+    
+    /**
+     * Escapes the HTML special characters <code>&amp; &lt; &gt; &quot; '</code> of the given part
+     * of a text, like {@link #escapeAndWrap(CharSequence, int, StringBuilder)}, but without
+     * replacing tabs or wrapping.
+     * @param text the text
+     * @param start the start of the part to escape
+     * @param end the end (exclusive) of the part to escape
+     * @param out the output to append the escaped part to
+     * @throws IOException if the output cannot be written
+     */
+    public static void escapeHtml(CharSequence text, int start, int end, Appendable out) throws IOException {
+        int pos = start;
+        for (int i = start; i < end; i++) {
+            String entity = entity(text.charAt(i));
+            if (entity != null) {
+                out.append(text, pos, i).append(entity);
+                pos = i + 1;
+            }
+        }
+        out.append(text, pos, end);
+    }
+    
+    @Nullable
+    private static String entity(char c) {
+        switch (c) {
+        case '&':
+            return "&amp;";
+        case '<':
+            return "&lt;";
+        case '>':
+            return "&gt;";
+        case '"':
+            return "&quot;";
+        case '\'':
+            return "&#39;";
+        default:
+            return null;
+        }
+    }
+    
+    private static int startMark(int[] marks, int mark, int pos, String startTag, StringBuilder result) {
+        if (mark < marks.length && marks[mark] == pos && mark % 2 == 0) {
+            result.append(startTag);
+            return mark + 1;
+        }
+        return mark;
+    }
+    
+    private static int nextColumn(int column, int columnWidth, StringBuilder result) {
+        if (column == columnWidth) {
+            result.append(BR);
+            return 1;
         }
-        
-        return line;
+        return column + 1;
     }
 }
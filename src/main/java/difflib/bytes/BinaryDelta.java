@@ -0,0 +1,463 @@
+package difflib.bytes;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+
+import com.google.common.primitives.Bytes;
+
+import difflib.ChangeDelta;
+import difflib.Chunk;
+import difflib.DeleteDelta;
+import difflib.Delta;
+import difflib.InsertDelta;
+import difflib.Patch;
+import difflib.PatchFailedException;
+
+/**
+ * Describes how to build a target byte sequence from a source byte sequence, as a list of
+ * instructions which either copy a range of the source or insert literal bytes. It is computed by
+ * {@link BinaryDiff}.
+ *
+ * <p>
+ * The instructions are held in packed arrays, so a delta costs a few bytes per instruction plus
+ * its literal bytes. {@link #encode(OutputStream)} writes it in a compact binary format, which
+ * {@link #decode(InputStream)} reads back and
+ * {@link #apply(ByteBuffer, InputStream, OutputStream)} applies without materializing the delta.
+ * </p>
+ */
+public final class BinaryDelta {
+    private static final int FORMAT_VERSION = 1;
+    private static final int OP_COPY = 0;
+    private static final int OP_INSERT = 1;
+    private static final int COPY_BUFFER_SIZE = 8192;
+
+    private final int sourceLength;
+    private final int targetLength;
+    /** Pairs of (source offset, length). The offset is -1 for literal bytes. */
+    private final int[] instructions;
+    private final int instructionCount;
+    private final byte[] literals;
+
+    private BinaryDelta(int sourceLength, int targetLength, int[] instructions,
+            int instructionCount, byte[] literals) {
+        this.sourceLength = sourceLength;
+        this.targetLength = targetLength;
+        this.instructions = instructions;
+        this.instructionCount = instructionCount;
+        this.literals = literals;
+    }
+
+    /**
+     * @return the length of the source this delta applies to
+     */
+    @Nonnegative
+    public int getSourceLength() {
+        return sourceLength;
+    }
+
+    /**
+     * @return the length of the target this delta produces
+     */
+    @Nonnegative
+    public int getTargetLength() {
+        return targetLength;
+    }
+
+    /**
+     * @return the number of copy and insert instructions
+     */
+    @Nonnegative
+    public int getInstructionCount() {
+        return instructionCount;
+    }
+
+    /**
+     * @param index the index of the instruction
+     * @return true if the instruction copies a range of the source, false if it inserts literal
+     *         bytes
+     */
+    public boolean isCopy(int index) {
+        return instructions[checkIndex(index) * 2] >= 0;
+    }
+
+    /**
+     * @param index the index of the instruction
+     * @return the offset in the source of a copy instruction, or -1 for an insert instruction
+     */
+    public int getSourceOffset(int index) {
+        return instructions[checkIndex(index) * 2];
+    }
+
+    /**
+     * @param index the index of the instruction
+     * @return the number of bytes the instruction adds to the target
+     */
+    @Nonnegative
+    public int getLength(int index) {
+        return instructions[checkIndex(index) * 2 + 1];
+    }
+
+    /**
+     * @return the number of literal bytes, i.e. the bytes which are not copied from the source
+     */
+    @Nonnegative
+    public int getLiteralLength() {
+        return literals.length;
+    }
+
+    private int checkIndex(int index) {
+        if (index < 0 || index >= instructionCount) {
+            throw new IndexOutOfBoundsException("index: " + index + ", size: " + instructionCount);
+        }
+        return index;
+    }
+
+    /**
+     * Applies this delta to the given source.
+     *
+     * @param source the source
+     * @return the target
+     * @throws PatchFailedException if the source doesn't have the length the delta was computed for
+     */
+    @Nonnull
+    public byte[] applyTo(@Nonnull byte[] source) throws PatchFailedException {
+        verify(source.length, sourceLength);
+        byte[] target = new byte[targetLength];
+        int targetPos = 0;
+        int literalPos = 0;
+        for (int i = 0; i < instructionCount; i++) {
+            int offset = instructions[i * 2];
+            int length = instructions[i * 2 + 1];
+            if (offset >= 0) {
+                System.arraycopy(source, offset, target, targetPos, length);
+            } else {
+                System.arraycopy(literals, literalPos, target, targetPos, length);
+                literalPos += length;
+            }
+            targetPos += length;
+        }
+        return target;
+    }
+
+    /**
+     * Expresses this delta as a {@link Patch} over the bytes of the source. Copies which go
+     * backwards in the source, e.g. moved blocks, become inserted bytes. The returned lists are
+     * views which box the bytes only when they are read.
+     *
+     * @param source the source
+     * @return the patch which turns the source into the target
+     * @throws PatchFailedException if the source doesn't have the length the delta was computed for
+     */
+    @Nonnull
+    public Patch<Byte> toPatch(@Nonnull byte[] source) throws PatchFailedException {
+        verify(source.length, sourceLength);
+        Patch<Byte> patch = new Patch<Byte>();
+        List<Byte> sourceBytes = Bytes.asList(source);
+        int sourcePos = 0;
+        int targetPos = 0;
+        int literalPos = 0;
+        // the revised part of the current delta, built from literals and out-of-order copies
+        ByteArrayOutputStream pending = new ByteArrayOutputStream();
+        int pendingStart = 0;
+        for (int i = 0; i < instructionCount; i++) {
+            int offset = instructions[i * 2];
+            int length = instructions[i * 2 + 1];
+            if (offset >= sourcePos) {
+                addDelta(patch, sourceBytes.subList(sourcePos, offset), sourcePos,
+                        pending.toByteArray(), pendingStart);
+                pending.reset();
+                sourcePos = offset + length;
+                pendingStart = targetPos + length;
+            } else if (offset >= 0) {
+                pending.write(source, offset, length);
+            } else {
+                pending.write(literals, literalPos, length);
+                literalPos += length;
+            }
+            targetPos += length;
+        }
+        addDelta(patch, sourceBytes.subList(sourcePos, source.length), sourcePos,
+                pending.toByteArray(), pendingStart);
+        return patch;
+    }
+
+    private static void addDelta(Patch<Byte> patch, List<Byte> removed, int position,
+            byte[] inserted, int revisedPosition) {
+        if (removed.isEmpty() && inserted.length == 0) {
+            return;
+        }
+        Chunk<Byte> original = new Chunk<Byte>(position, removed);
+        Chunk<Byte> revised = new Chunk<Byte>(revisedPosition, Bytes.asList(inserted));
+        Delta<Byte> delta;
+        if (removed.isEmpty()) {
+            delta = new InsertDelta<Byte>(original, revised);
+        } else if (inserted.length == 0) {
+            delta = new DeleteDelta<Byte>(original, revised);
+        } else {
+            delta = new ChangeDelta<Byte>(original, revised);
+        }
+        patch.addDelta(delta);
+    }
+
+    /**
+     * Writes this delta in the compact binary format.
+     *
+     * @param out the stream to write to
+     * @throws IOException if the stream cannot be written
+     */
+    public void encode(@Nonnull OutputStream out) throws IOException {
+        out.write(FORMAT_VERSION);
+        writeVarInt(out, sourceLength);
+        writeVarInt(out, targetLength);
+        int literalPos = 0;
+        for (int i = 0; i < instructionCount; i++) {
+            int offset = instructions[i * 2];
+            int length = instructions[i * 2 + 1];
+            if (offset >= 0) {
+                out.write(OP_COPY);
+                writeVarInt(out, offset);
+                writeVarInt(out, length);
+            } else {
+                out.write(OP_INSERT);
+                writeVarInt(out, length);
+                out.write(literals, literalPos, length);
+                literalPos += length;
+            }
+        }
+    }
+
+    /**
+     * Reads a delta written by {@link #encode(OutputStream)}.
+     *
+     * @param in the stream to read from
+     * @return the delta
+     * @throws IOException if the stream cannot be read or is not a valid delta
+     */
+    @Nonnull
+    public static BinaryDelta decode(@Nonnull InputStream in) throws IOException {
+        readVersion(in);
+        int sourceLength = readVarInt(in);
+        Builder builder = new Builder(sourceLength, readVarInt(in));
+        int targetPos = 0;
+        while (targetPos < builder.targetLength) {
+            int op = readByte(in);
+            if (op == OP_COPY) {
+                int offset = readVarInt(in);
+                int length = readVarInt(in);
+                checkCopy(offset, length, sourceLength);
+                checkTarget(targetPos, length, builder.targetLength);
+                builder.copy(offset, length);
+                targetPos += length;
+            } else if (op == OP_INSERT) {
+                int length = readVarInt(in);
+                checkTarget(targetPos, length, builder.targetLength);
+                byte[] data = new byte[length];
+                readFully(in, data, length);
+                builder.insert(data, 0, length);
+                targetPos += length;
+            } else {
+                throw new IOException("malformed binary delta: unknown instruction " + op);
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Applies an encoded delta while reading it, so neither the delta nor the target is held in
+     * memory.
+     *
+     * @param source the source, e.g. a memory mapped file. Its position is not changed.
+     * @param delta the delta written by {@link #encode(OutputStream)}
+     * @param out the stream the target is written to
+     * @throws IOException if a stream cannot be read or written, or the delta is not valid
+     * @throws PatchFailedException if the source doesn't have the length the delta was computed for
+     */
+    public static void apply(@Nonnull ByteBuffer source, @Nonnull InputStream delta,
+            @Nonnull OutputStream out) throws IOException, PatchFailedException {
+        readVersion(delta);
+        int sourceLength = readVarInt(delta);
+        verify(source.remaining(), sourceLength);
+        int targetLength = readVarInt(delta);
+        byte[] buffer = new byte[COPY_BUFFER_SIZE];
+        ByteBuffer view = source.duplicate();
+        int base = source.position();
+        int targetPos = 0;
+        while (targetPos < targetLength) {
+            int op = readByte(delta);
+            int length;
+            if (op == OP_COPY) {
+                int offset = readVarInt(delta);
+                length = readVarInt(delta);
+                checkCopy(offset, length, sourceLength);
+                checkTarget(targetPos, length, targetLength);
+                view.limit(base + offset + length).position(base + offset);
+                while (view.hasRemaining()) {
+                    int n = Math.min(buffer.length, view.remaining());
+                    view.get(buffer, 0, n);
+                    out.write(buffer, 0, n);
+                }
+                view.limit(source.limit());
+            } else if (op == OP_INSERT) {
+                length = readVarInt(delta);
+                checkTarget(targetPos, length, targetLength);
+                for (int remaining = length; remaining > 0;) {
+                    int n = readSome(delta, buffer, Math.min(buffer.length, remaining));
+                    out.write(buffer, 0, n);
+                    remaining -= n;
+                }
+            } else {
+                throw new IOException("malformed binary delta: unknown instruction " + op);
+            }
+            targetPos += length;
+        }
+    }
+
+    private static void verify(int actualLength, int expectedLength) throws PatchFailedException {
+        if (actualLength != expectedLength) {
+            throw new PatchFailedException("Incorrect binary delta: source length is "
+                    + actualLength + " but delta expects " + expectedLength);
+        }
+    }
+
+    private static void checkCopy(int offset, int length, int sourceLength) throws IOException {
+        if (offset + length > sourceLength || offset + length < 0) {
+            throw new IOException("malformed binary delta: copy exceeds the source");
+        }
+    }
+
+    /**
+     * Rejects an instruction which would write past the target length, before anything is
+     * allocated or copied for it.
+     */
+    private static void checkTarget(int targetPos, int length, int targetLength) throws IOException {
+        if (length > targetLength - targetPos) {
+            throw new IOException("malformed binary delta: instruction exceeds the target length");
+        }
+    }
+
+    private static void readVersion(InputStream in) throws IOException {
+        int version = readByte(in);
+        if (version != FORMAT_VERSION) {
+            throw new IOException("unsupported binary delta format: " + version);
+        }
+    }
+
+    private static void writeVarInt(OutputStream out, int value) throws IOException {
+        while ((value & ~0x7f) != 0) {
+            out.write((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    private static int readVarInt(InputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = readByte(in);
+            value |= (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                if (value < 0) {
+                    throw new IOException("malformed binary delta: negative number");
+                }
+                return value;
+            }
+        }
+        throw new IOException("malformed binary delta: number too long");
+    }
+
+    private static int readByte(InputStream in) throws IOException {
+        int b = in.read();
+        if (b < 0) {
+            throw new EOFException("unexpected end of binary delta");
+        }
+        return b;
+    }
+
+    private static void readFully(InputStream in, byte[] data, int length) throws IOException {
+        for (int read = 0; read < length;) {
+            int n = in.read(data, read, length - read);
+            if (n < 0) {
+                throw new EOFException("unexpected end of binary delta");
+            }
+            read += n;
+        }
+    }
+
+    private static int readSome(InputStream in, byte[] buffer, int length) throws IOException {
+        int n = in.read(buffer, 0, length);
+        if (n < 0) {
+            throw new EOFException("unexpected end of binary delta");
+        }
+        return n;
+    }
+
+    /**
+     * Collects the instructions of a delta, merging adjacent copies and adjacent inserts.
+     */
+    static final class Builder {
+        private final int sourceLength;
+        private final int targetLength;
+        private int[] instructions = new int[16];
+        private int count;
+        private byte[] literals = new byte[64];
+        private int literalLength;
+
+        Builder(int sourceLength, int targetLength) {
+            this.sourceLength = sourceLength;
+            this.targetLength = targetLength;
+        }
+
+        void copy(int offset, int length) {
+            if (length == 0) {
+                return;
+            }
+            if (count > 0) {
+                int last = (count - 1) * 2;
+                if (instructions[last] >= 0 && instructions[last] + instructions[last + 1] == offset) {
+                    instructions[last + 1] += length;
+                    return;
+                }
+            }
+            add(offset, length);
+        }
+
+        void insert(byte[] data, int offset, int length) {
+            if (length == 0) {
+                return;
+            }
+            if (literalLength + length > literals.length) {
+                literals = Arrays.copyOf(literals, Math.max(literals.length * 2, literalLength + length));
+            }
+            System.arraycopy(data, offset, literals, literalLength, length);
+            literalLength += length;
+            if (count > 0 && instructions[(count - 1) * 2] < 0) {
+                instructions[(count - 1) * 2 + 1] += length;
+                return;
+            }
+            add(-1, length);
+        }
+
+        private void add(int offset, int length) {
+            if (count * 2 == instructions.length) {
+                instructions = Arrays.copyOf(instructions, instructions.length * 2);
+            }
+            instructions[count * 2] = offset;
+            instructions[count * 2 + 1] = length;
+            count++;
+        }
+
+        BinaryDelta build() {
+            return new BinaryDelta(sourceLength, targetLength, instructions, count,
+                    Arrays.copyOf(literals, literalLength));
+        }
+    }
+}
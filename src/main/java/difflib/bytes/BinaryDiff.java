@@ -0,0 +1,197 @@
+package difflib.bytes;
+
+import java.nio.ByteBuffer;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Computes a {@link BinaryDelta} between two byte sequences, in the manner of rsync and xdelta.
+ *
+ * <p>
+ * The source is cut into blocks of a fixed size which are indexed by their hash. Then a rolling
+ * hash is moved over the target byte by byte. Whenever it hits a block of the source with the same
+ * content, the match is extended in both directions and emitted as a copy instruction, and the
+ * bytes before it as literal bytes. So the cost is linear in the size of both inputs, and moved or
+ * duplicated blocks are found as well. Unlike {@link difflib.myers.MyersDiff} the result is not a
+ * minimal edit script, and matches shorter than the block size are not found.
+ * </p>
+ *
+ * <p>
+ * Instances are immutable and can be shared between threads.
+ * </p>
+ */
+public class BinaryDiff {
+    /** The default block size in bytes. */
+    public static final int DEFAULT_BLOCK_SIZE = 16;
+
+    private static final int MULTIPLIER = 0x01000193;
+    /** The number of source blocks with the same hash which are compared to the target. */
+    private static final int MAX_CANDIDATES = 16;
+
+    private final int blockSize;
+
+    /**
+     * Constructs a binary diff with the {@link #DEFAULT_BLOCK_SIZE default block size}.
+     */
+    public BinaryDiff() {
+        this(DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * Constructs a binary diff with the given block size. Smaller blocks find more matches, larger
+     * blocks need less memory for the index of the source.
+     *
+     * @param blockSize the block size in bytes. Must be positive.
+     */
+    public BinaryDiff(int blockSize) {
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("blockSize must be positive");
+        }
+        this.blockSize = blockSize;
+    }
+
+    /**
+     * Computes the delta between the remaining contents of the given buffers. Their positions are
+     * not changed.
+     *
+     * @param source the source. Must not be {@code null}.
+     * @param target the target. Must not be {@code null}.
+     * @return the delta which turns the source into the target. Never {@code null}.
+     */
+    @Nonnull
+    public BinaryDelta diff(@Nonnull ByteBuffer source, @Nonnull ByteBuffer target) {
+        return diff(toArray(source), toArray(target));
+    }
+
+    /**
+     * Computes the delta between the given byte arrays.
+     *
+     * @param source the source. Must not be {@code null}.
+     * @param target the target. Must not be {@code null}.
+     * @return the delta which turns the source into the target. Never {@code null}.
+     */
+    @Nonnull
+    public BinaryDelta diff(@Nonnull byte[] source, @Nonnull byte[] target) {
+        if (source == null) {
+            throw new IllegalArgumentException("source must not be null");
+        }
+        if (target == null) {
+            throw new IllegalArgumentException("target must not be null");
+        }
+        BinaryDelta.Builder delta = new BinaryDelta.Builder(source.length, target.length);
+        int blocks = source.length / blockSize;
+        if (blocks == 0 || target.length < blockSize) {
+            delta.insert(target, 0, target.length);
+            return delta.build();
+        }
+
+        // index the source blocks; a slot holds the block index + 1, and 0 if empty
+        int mask = Integer.highestOneBit(blocks) * 4 - 1;
+        int[] slots = new int[mask + 1];
+        int[] next = new int[blocks];
+        for (int block = blocks - 1; block >= 0; block--) {
+            int slot = mix(hash(source, block * blockSize)) & mask;
+            next[block] = slots[slot];
+            slots[slot] = block + 1;
+        }
+
+        int outFactor = power(MULTIPLIER, blockSize - 1);
+        int literalStart = 0;
+        int pos = 0;
+        int hash = hash(target, 0);
+        while (pos + blockSize <= target.length) {
+            int match = findBlock(source, slots[mix(hash) & mask], next, target, pos);
+            if (match < 0) {
+                if (pos + blockSize < target.length) {
+                    hash = (hash - (target[pos] & 0xff) * outFactor) * MULTIPLIER
+                            + (target[pos + blockSize] & 0xff);
+                }
+                pos++;
+                continue;
+            }
+            int sourceStart = match;
+            int targetStart = pos;
+            while (targetStart > literalStart && sourceStart > 0
+                    && source[sourceStart - 1] == target[targetStart - 1]) {
+                sourceStart--;
+                targetStart--;
+            }
+            int sourceEnd = match + blockSize;
+            int targetEnd = pos + blockSize;
+            while (sourceEnd < source.length && targetEnd < target.length
+                    && source[sourceEnd] == target[targetEnd]) {
+                sourceEnd++;
+                targetEnd++;
+            }
+            delta.insert(target, literalStart, targetStart - literalStart);
+            delta.copy(sourceStart, sourceEnd - sourceStart);
+            pos = targetEnd;
+            literalStart = targetEnd;
+            if (pos + blockSize <= target.length) {
+                hash = hash(target, pos);
+            }
+        }
+        delta.insert(target, literalStart, target.length - literalStart);
+        return delta.build();
+    }
+
+    /**
+     * @return the offset of a source block equal to the target at the given position, or -1
+     */
+    private int findBlock(byte[] source, int candidate, int[] next, byte[] target, int pos) {
+        for (int i = 0; candidate != 0 && i < MAX_CANDIDATES; i++) {
+            int offset = (candidate - 1) * blockSize;
+            if (equalBlocks(source, offset, target, pos)) {
+                return offset;
+            }
+            candidate = next[candidate - 1];
+        }
+        return -1;
+    }
+
+    private boolean equalBlocks(byte[] source, int sourceOffset, byte[] target, int targetOffset) {
+        for (int i = 0; i < blockSize; i++) {
+            if (source[sourceOffset + i] != target[targetOffset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int hash(byte[] data, int offset) {
+        int hash = 0;
+        for (int i = 0; i < blockSize; i++) {
+            hash = hash * MULTIPLIER + (data[offset + i] & 0xff);
+        }
+        return hash;
+    }
+
+    /**
+     * Spreads the bits of the rolling hash, so the low bits used as slot index depend on all
+     * bytes of the block.
+     */
+    private static int mix(int hash) {
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        return hash;
+    }
+
+    private static int power(int base, int exponent) {
+        int result = 1;
+        for (int i = 0; i < exponent; i++) {
+            result *= base;
+        }
+        return result;
+    }
+
+    private static byte[] toArray(ByteBuffer buffer) {
+        if (buffer.hasArray() && buffer.arrayOffset() == 0 && buffer.position() == 0
+                && buffer.remaining() == buffer.array().length) {
+            return buffer.array();
+        }
+        byte[] result = new byte[buffer.remaining()];
+        buffer.duplicate().get(result);
+        return result;
+    }
+}
@@ -0,0 +1,221 @@
+package difflib.bytes;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.annotation.Nonnull;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+
+import difflib.Delta;
+import difflib.DiffUtils;
+import difflib.Patch;
+import difflib.myers.Equalizer;
+
+/**
+ * Computes line based diffs of raw bytes, without decoding them to {@link String}.
+ *
+ * <p>
+ * Each line is a {@link ByteBuffer} slice of the input, which shares its content and
+ * includes the line terminator. So the lines of a file can be written back byte by byte, and
+ * {@link Patch#applyTo(List)} returns the exact bytes of the revised file. This works for every
+ * encoding in which '\n' is a single byte, e.g. UTF-8, ISO-8859-1 or ASCII based legacy encodings.
+ * </p>
+ */
+public final class ByteDiffUtils {
+    private static final byte[] NO_NEWLINE_AT_EOF = "\n\\ No newline at end of file\n"
+            .getBytes(Charsets.US_ASCII);
+    private static final int COPY_BUFFER_SIZE = 8192;
+
+    private ByteDiffUtils() {
+    }
+
+    /**
+     * Splits the remaining content of the given buffer into lines. The position of the buffer is
+     * not changed.
+     *
+     * @param content the content to split
+     * @return the lines, each one including its terminating '\n' except the last one if the
+     *         content doesn't end with a line terminator
+     */
+    @Nonnull
+    public static List<ByteBuffer> split(@Nonnull ByteBuffer content) {
+        ByteBuffer source = content.duplicate();
+        List<ByteBuffer> lines = new ArrayList<ByteBuffer>();
+        int start = source.position();
+        int limit = source.limit();
+        for (int i = start; i < limit; i++) {
+            if (source.get(i) == '\n') {
+                lines.add(slice(source, start, i + 1));
+                start = i + 1;
+            }
+        }
+        if (start < limit) {
+            lines.add(slice(source, start, limit));
+        }
+        return lines;
+    }
+
+    private static ByteBuffer slice(ByteBuffer source, int from, int to) {
+        ByteBuffer line = source.duplicate();
+        line.limit(to).position(from);
+        return line.slice();
+    }
+
+    /**
+     * Computes the line based difference between the given contents.
+     *
+     * @param original the original content
+     * @param revised the revised content
+     * @return the patch of byte lines between the contents
+     */
+    @Nonnull
+    public static Patch<ByteBuffer> diff(@Nonnull ByteBuffer original, @Nonnull ByteBuffer revised) {
+        return diff(original, revised, ByteLineEqualizer.EXACT);
+    }
+
+    /**
+     * Computes the line based difference between the given contents.
+     *
+     * @param original the original content
+     * @param revised the revised content
+     * @param equalizer compares two lines, e.g. {@link ByteLineEqualizer#IGNORE_LINE_TERMINATOR}
+     * @return the patch of byte lines between the contents
+     */
+    @Nonnull
+    public static Patch<ByteBuffer> diff(@Nonnull ByteBuffer original, @Nonnull ByteBuffer revised,
+            @Nonnull Equalizer<ByteBuffer> equalizer) {
+        return DiffUtils.diff(split(original), split(revised), equalizer);
+    }
+
+    /**
+     * Computes the line based difference between the given files.
+     *
+     * @param original the original file
+     * @param revised the revised file
+     * @return the patch of byte lines between the files
+     * @throws IOException if a file cannot be read
+     */
+    @Nonnull
+    public static Patch<ByteBuffer> diff(@Nonnull File original, @Nonnull File revised)
+            throws IOException {
+        return diff(ByteBuffer.wrap(Files.toByteArray(original)),
+                ByteBuffer.wrap(Files.toByteArray(revised)));
+    }
+
+    /**
+     * Writes the given lines one after another, i.e. restores the content they have been split
+     * from.
+     *
+     * @param lines the lines to write
+     * @param out the stream to write to
+     * @throws IOException if the stream cannot be written
+     */
+    public static void writeLines(@Nonnull List<ByteBuffer> lines, @Nonnull OutputStream out)
+            throws IOException {
+        for (ByteBuffer line : lines) {
+            write(line, out);
+        }
+    }
+
+    /**
+     * Writes the patch in unified format. Like
+     * {@link DiffUtils#generateUnifiedDiff(String, String, List, Patch, int)}, but lines are copied
+     * to the stream as they are, so the output has the encoding of the input.
+     *
+     * @param original the file name of the original content, written as UTF-8
+     * @param revised the file name of the revised content, written as UTF-8
+     * @param originalLines the lines of the original content
+     * @param patch the patch created by the diff() function
+     * @param contextSize number of lines of context output around each difference
+     * @param out the stream to write to
+     * @throws IOException if the stream cannot be written
+     */
+    public static void writeUnifiedDiff(String original, String revised,
+            List<ByteBuffer> originalLines, Patch<ByteBuffer> patch, int contextSize,
+            OutputStream out) throws IOException {
+        List<Delta<ByteBuffer>> deltas = patch.getDeltas();
+        if (deltas.isEmpty()) {
+            return;
+        }
+        out.write(("--- " + original + "\n+++ " + revised + "\n").getBytes(Charsets.UTF_8));
+
+        int first = 0;
+        for (int i = 1; i <= deltas.size(); i++) {
+            if (i == deltas.size() || isSeparateHunk(deltas.get(i - 1), deltas.get(i), contextSize)) {
+                writeHunk(originalLines, deltas.subList(first, i), contextSize, out);
+                first = i;
+            }
+        }
+    }
+
+    private static boolean isSeparateHunk(Delta<ByteBuffer> delta, Delta<ByteBuffer> next,
+            int contextSize) {
+        return delta.getOriginal().getPosition() + delta.getOriginal().size() + contextSize
+                < next.getOriginal().getPosition() - contextSize;
+    }
+
+    private static void writeHunk(List<ByteBuffer> originalLines, List<Delta<ByteBuffer>> deltas,
+            int contextSize, OutputStream out) throws IOException {
+        Delta<ByteBuffer> first = deltas.get(0);
+        Delta<ByteBuffer> last = deltas.get(deltas.size() - 1);
+        int origStart = Math.max(0, first.getOriginal().getPosition() - contextSize);
+        int revStart = first.getRevised().getPosition()
+                - (first.getOriginal().getPosition() - origStart);
+        int origEnd = Math.min(originalLines.size(),
+                last.getOriginal().getPosition() + last.getOriginal().size() + contextSize);
+        int origTotal = origEnd - origStart;
+        int revTotal = origTotal;
+        for (Delta<ByteBuffer> delta : deltas) {
+            revTotal += delta.getRevised().size() - delta.getOriginal().size();
+        }
+        // NOTE: +1 to overcome the 0-offset position, as DiffUtils.generateUnifiedDiff does
+        out.write(("@@ -" + (origStart + 1) + "," + origTotal + " +" + (revStart + 1) + ","
+                + revTotal + " @@\n").getBytes(Charsets.US_ASCII));
+
+        int line = origStart;
+        for (Delta<ByteBuffer> delta : deltas) {
+            for (; line < delta.getOriginal().getPosition(); line++) {
+                writeLine(' ', originalLines.get(line), out);
+            }
+            for (ByteBuffer removed : delta.getOriginal().getLines()) {
+                writeLine('-', removed, out);
+            }
+            for (ByteBuffer added : delta.getRevised().getLines()) {
+                writeLine('+', added, out);
+            }
+            line += delta.getOriginal().size();
+        }
+        for (; line < origEnd; line++) {
+            writeLine(' ', originalLines.get(line), out);
+        }
+    }
+
+    private static void writeLine(char tag, ByteBuffer line, OutputStream out) throws IOException {
+        out.write(tag);
+        write(line, out);
+        if (line.remaining() == 0 || line.get(line.limit() - 1) != '\n') {
+            out.write(NO_NEWLINE_AT_EOF);
+        }
+    }
+
+    private static void write(ByteBuffer line, OutputStream out) throws IOException {
+        if (line.hasArray()) {
+            out.write(line.array(), line.arrayOffset() + line.position(), line.remaining());
+            return;
+        }
+        // read-only or direct buffers don't expose their array
+        ByteBuffer source = line.duplicate();
+        byte[] buffer = new byte[Math.min(COPY_BUFFER_SIZE, source.remaining())];
+        while (source.hasRemaining()) {
+            int length = Math.min(buffer.length, source.remaining());
+            source.get(buffer, 0, length);
+            out.write(buffer, 0, length);
+        }
+    }
+}
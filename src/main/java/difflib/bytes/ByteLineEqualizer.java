@@ -0,0 +1,54 @@
+package difflib.bytes;
+
+import java.nio.ByteBuffer;
+
+import javax.annotation.Nullable;
+
+import difflib.myers.Equalizer;
+
+/**
+ * Compares two lines given as {@link ByteBuffer} slices byte by byte, without decoding them and
+ * without moving their positions.
+ */
+public final class ByteLineEqualizer implements Equalizer<ByteBuffer> {
+    /** Lines are equal if all their bytes, including the line terminator, are equal. */
+    public static final ByteLineEqualizer EXACT = new ByteLineEqualizer(false);
+    /** Lines are equal if their bytes are equal, ignoring a trailing "\n" or "\r\n". */
+    public static final ByteLineEqualizer IGNORE_LINE_TERMINATOR = new ByteLineEqualizer(true);
+
+    private final boolean ignoreLineTerminator;
+
+    private ByteLineEqualizer(boolean ignoreLineTerminator) {
+        this.ignoreLineTerminator = ignoreLineTerminator;
+    }
+
+    @Override
+    public boolean equals(@Nullable ByteBuffer original, @Nullable ByteBuffer revised) {
+        if (original == null || revised == null) {
+            return original == revised;
+        }
+        int originalLength = contentLength(original);
+        if (originalLength != contentLength(revised)) {
+            return false;
+        }
+        int o = original.position();
+        int r = revised.position();
+        for (int i = 0; i < originalLength; i++) {
+            if (original.get(o + i) != revised.get(r + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int contentLength(ByteBuffer line) {
+        int length = line.remaining();
+        if (ignoreLineTerminator && length > 0 && line.get(line.position() + length - 1) == '\n') {
+            length--;
+            if (length > 0 && line.get(line.position() + length - 1) == '\r') {
+                length--;
+            }
+        }
+        return length;
+    }
+}
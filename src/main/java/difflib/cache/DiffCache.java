@@ -0,0 +1,427 @@
+package difflib.cache;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.RemovalCause;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalListeners;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.cache.Weigher;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+import difflib.Delta;
+import difflib.DiffAlgorithm;
+import difflib.Patch;
+import difflib.myers.MyersDiff;
+
+/**
+ * {@link DiffAlgorithm} which caches the patches of another algorithm, so repeated diffs of the
+ * same texts only cost hashing them.
+ *
+ * <p>
+ * The key of a patch is the SHA-256 hash of the id of the algorithm and both texts. The id must
+ * change whenever the algorithm or its equalizer would give other results. The patches are kept in
+ * memory with least recently used eviction, bounded by their number or by their number of lines.
+ * If a spill directory is set, evicted patches are written there by the given executor and read
+ * back on the next request, instead of diffing again. When the directory holds more than
+ * {@link Builder#maximumSpillFiles(int) maximumSpillFiles} patches, the least recently used
+ * quarter of them is deleted.
+ * </p>
+ *
+ * <p>
+ * Example:
+ * <code>
+ *    DiffCache cache = new DiffCache.Builder().maximumWeight(1000000).build();
+ *    Patch&lt;String&gt; patch = cache.diff(original, revised);
+ * </code>
+ * The returned patches are shared between all callers, so they are {@link Patch#freeze()
+ * frozen}. Instances are thread-safe.
+ * </p>
+ */
+public class DiffCache implements DiffAlgorithm<String> {
+    private static final HashFunction KEY_HASH = Hashing.sha256();
+    private static final String SPILL_SUFFIX = ".patch";
+
+    private final DiffAlgorithm<String> algorithm;
+    private final String algorithmId;
+    private final Cache<HashCode, Patch<String>> cache;
+    @Nullable
+    private final File spillDirectory;
+    private final int maximumSpillFiles;
+    private final AtomicLong spillHitCount = new AtomicLong();
+    private final Object spillLock = new Object();
+    /** The number of patches in the spill directory, -1 until they are counted. */
+    private int spillFileCount = -1;
+
+    /**
+     * This class used for building the DiffCache.
+     */
+    public static class Builder {
+        private DiffAlgorithm<String> algorithm = new MyersDiff<String>();
+        private String algorithmId = "myers";
+        private long maximumSize = -1;
+        private long maximumWeight = -1;
+        @Nullable
+        private File spillDirectory = null;
+        @Nullable
+        private Executor spillExecutor = null;
+        private int maximumSpillFiles = 10000;
+
+        /**
+         * Set the algorithm whose patches are cached.
+         * @param algorithm the algorithm to use. Default: {@link MyersDiff} with the default
+         *            equalizer.
+         * @param algorithmId identifies the algorithm and its configuration, e.g. its equalizer.
+         *            Part of the key of each patch, so patches of different configurations can
+         *            share a spill directory.
+         * @return builder with configured algorithm
+         */
+        public Builder algorithm(@Nonnull DiffAlgorithm<String> algorithm, @Nonnull String algorithmId) {
+            if (algorithm == null) {
+                throw new IllegalArgumentException("algorithm must not be null");
+            }
+            if (algorithmId == null) {
+                throw new IllegalArgumentException("algorithmId must not be null");
+            }
+            this.algorithm = algorithm;
+            this.algorithmId = algorithmId;
+            return this;
+        }
+
+        /**
+         * Set the maximum number of patches kept in memory.
+         * @param maximumSize the value to set. Default: unbounded.
+         * @return builder with configured maximumSize
+         */
+        public Builder maximumSize(@Nonnegative long maximumSize) {
+            if (maximumSize < 0) {
+                throw new IllegalArgumentException("maximumSize must not be negative");
+            }
+            this.maximumSize = maximumSize;
+            return this;
+        }
+
+        /**
+         * Set the maximum total weight of the patches kept in memory. The weight of a patch is
+         * the number of lines in its chunks plus one.
+         * @param maximumWeight the value to set. Default: unbounded.
+         * @return builder with configured maximumWeight
+         */
+        public Builder maximumWeight(@Nonnegative long maximumWeight) {
+            if (maximumWeight < 0) {
+                throw new IllegalArgumentException("maximumWeight must not be negative");
+            }
+            this.maximumWeight = maximumWeight;
+            return this;
+        }
+
+        /**
+         * Set the directory to which patches evicted from memory are written. Patches which
+         * cannot be written or read are diffed again, as are patches requested again before
+         * their write has finished.
+         * @param spillDirectory an existing directory, or null to drop evicted patches.
+         *            Default: null.
+         * @param executor writes the evicted patches, so the thread whose request evicted a
+         *            patch does not wait for the disk
+         * @return builder with configured spillDirectory
+         */
+        public Builder spillDirectory(@Nullable File spillDirectory, @Nonnull Executor executor) {
+            if (executor == null) {
+                throw new IllegalArgumentException("executor must not be null");
+            }
+            this.spillDirectory = spillDirectory;
+            this.spillExecutor = executor;
+            return this;
+        }
+
+        /**
+         * Set the maximum number of patches in the spill directory. When a write exceeds it, the
+         * least recently written or read quarter of the patches is deleted.
+         * @param maximumSpillFiles the value to set. Default: 10000.
+         * @return builder with configured maximumSpillFiles
+         */
+        public Builder maximumSpillFiles(int maximumSpillFiles) {
+            if (maximumSpillFiles <= 0) {
+                throw new IllegalArgumentException("maximumSpillFiles must be positive");
+            }
+            this.maximumSpillFiles = maximumSpillFiles;
+            return this;
+        }
+
+        /**
+         * Build the DiffCache. If some parameters are not set, the default values are used.
+         * @return the customized DiffCache
+         */
+        public DiffCache build() {
+            if (maximumSize >= 0 && maximumWeight >= 0) {
+                throw new IllegalStateException("maximumSize and maximumWeight must not both be set");
+            }
+            return new DiffCache(this);
+        }
+    }
+
+    private DiffCache(Builder builder) {
+        algorithm = builder.algorithm;
+        algorithmId = builder.algorithmId;
+        spillDirectory = builder.spillDirectory;
+        maximumSpillFiles = builder.maximumSpillFiles;
+        CacheBuilder<Object, Object> cacheBuilder = CacheBuilder.newBuilder().recordStats();
+        if (builder.maximumSize >= 0) {
+            cacheBuilder.maximumSize(builder.maximumSize);
+        }
+        if (builder.maximumWeight >= 0) {
+            cacheBuilder.maximumWeight(builder.maximumWeight).weigher(new PatchWeigher());
+        }
+        if (spillDirectory != null) {
+            cache = cacheBuilder.removalListener(
+                    RemovalListeners.asynchronous(new SpillListener(), builder.spillExecutor)).build();
+        } else {
+            cache = cacheBuilder.build();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return the cached, frozen patch
+     */
+    @Override
+    public Patch<String> diff(String[] original, String[] revised) {
+        return diff(Arrays.asList(original), Arrays.asList(revised));
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return the cached, frozen patch
+     */
+    @Override
+    public Patch<String> diff(final List<String> original, final List<String> revised) {
+        if (original == null) {
+            throw new IllegalArgumentException("original must not be null");
+        }
+        if (revised == null) {
+            throw new IllegalArgumentException("revised must not be null");
+        }
+        final HashCode key = key(original, revised);
+        try {
+            return cache.get(key, new Callable<Patch<String>>() {
+                @Override
+                public Patch<String> call() {
+                    Patch<String> patch = readSpilled(key);
+                    if (patch != null) {
+                        spillHitCount.incrementAndGet();
+                        return patch.freeze();
+                    }
+                    return algorithm.diff(original, revised).freeze();
+                }
+            });
+        } catch (ExecutionException e) {
+            throw Throwables.propagate(e.getCause());
+        } catch (UncheckedExecutionException e) {
+            throw Throwables.propagate(e.getCause());
+        }
+    }
+
+    private HashCode key(List<String> original, List<String> revised) {
+        Hasher hasher = KEY_HASH.newHasher();
+        hasher.putString(algorithmId, Charsets.UTF_8);
+        putLines(hasher, original);
+        putLines(hasher, revised);
+        return hasher.hash();
+    }
+
+    private static void putLines(Hasher hasher, List<String> lines) {
+        // the lengths keep different splits of the same characters apart
+        hasher.putInt(lines.size());
+        for (String line : lines) {
+            if (line == null) {
+                hasher.putInt(-1);
+            } else {
+                hasher.putInt(line.length());
+                hasher.putUnencodedChars(line);
+            }
+        }
+    }
+
+    /**
+     * @return the statistics of the in-memory cache. A patch read back from the spill directory
+     *         counts as a miss.
+     */
+    @Nonnull
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    /**
+     * @return the number of patches read back from the spill directory
+     */
+    public long spillHitCount() {
+        return spillHitCount.get();
+    }
+
+    /**
+     * @return the number of patches in memory
+     */
+    public long size() {
+        return cache.size();
+    }
+
+    /**
+     * Removes all patches from memory. Patches in the spill directory are not removed, and
+     * patches removed this way are not written there.
+     */
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    private File spillFile(HashCode key) {
+        return new File(spillDirectory, key + SPILL_SUFFIX);
+    }
+
+    @Nullable
+    private Patch<String> readSpilled(HashCode key) {
+        if (spillDirectory == null) {
+            return null;
+        }
+        File file = spillFile(key);
+        try {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            Patch<String> patch;
+            try {
+                patch = PatchCodec.read(in, file.length());
+            } finally {
+                in.close();
+            }
+            // pruned by the time of the last use
+            file.setLastModified(System.currentTimeMillis());
+            return patch;
+        } catch (FileNotFoundException e) {
+            return null;
+        } catch (IOException e) {
+            // a damaged file is replaced when the patch is evicted again
+            return null;
+        }
+    }
+
+    private void writeSpilled(HashCode key, Patch<String> patch) {
+        File file = spillFile(key);
+        if (file.exists()) {
+            return;
+        }
+        // write to a temporary file first, so readers never see a partial patch
+        File temp = new File(spillDirectory, key + "." + Thread.currentThread().getId() + ".tmp");
+        try {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+            try {
+                PatchCodec.write(patch, out);
+            } finally {
+                out.close();
+            }
+            if (temp.renameTo(file)) {
+                countSpilled();
+            } else {
+                temp.delete();
+            }
+        } catch (IOException e) {
+            // the patch is diffed again when it is requested
+            temp.delete();
+        }
+    }
+
+    private void countSpilled() {
+        synchronized (spillLock) {
+            spillFileCount = spillFileCount < 0 ? spillFiles().length : spillFileCount + 1;
+            if (spillFileCount > maximumSpillFiles) {
+                pruneSpilled();
+            }
+        }
+    }
+
+    /**
+     * Deletes the least recently used patches until three quarters of the maximum are left, so
+     * the directory is not listed on every write.
+     */
+    private void pruneSpilled() {
+        File[] files = spillFiles();
+        final Map<File, Long> lastModified = new HashMap<File, Long>();
+        for (File file : files) {
+            lastModified.put(file, file.lastModified());
+        }
+        Arrays.sort(files, new Comparator<File>() {
+            @Override
+            public int compare(File a, File b) {
+                return Long.compare(lastModified.get(a), lastModified.get(b));
+            }
+        });
+        int count = files.length;
+        int keep = maximumSpillFiles - maximumSpillFiles / 4;
+        for (int i = 0; i < files.length && count > keep; i++) {
+            if (files[i].delete()) {
+                count--;
+            }
+        }
+        spillFileCount = count;
+    }
+
+    private File[] spillFiles() {
+        File[] files = spillDirectory.listFiles(new FilenameFilter() {
+            @Override
+            public boolean accept(File dir, String name) {
+                return name.endsWith(SPILL_SUFFIX);
+            }
+        });
+        return files == null ? new File[0] : files;
+    }
+
+    private final class SpillListener implements RemovalListener<HashCode, Patch<String>> {
+        @Override
+        public void onRemoval(RemovalNotification<HashCode, Patch<String>> notification) {
+            if (notification.getCause() == RemovalCause.SIZE) {
+                writeSpilled(notification.getKey(), notification.getValue());
+            }
+        }
+    }
+
+    private static final class PatchWeigher implements Weigher<HashCode, Patch<String>> {
+        @Override
+        public int weigh(HashCode key, Patch<String> patch) {
+            long weight = 1;
+            for (Delta<String> delta : patch.getDeltas()) {
+                weight += delta.getOriginal().size() + delta.getRevised().size();
+            }
+            return (int) Math.min(weight, Integer.MAX_VALUE);
+        }
+    }
+}
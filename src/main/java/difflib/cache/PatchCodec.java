@@ -0,0 +1,112 @@
+package difflib.cache;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.google.common.base.Charsets;
+
+import difflib.ChangeDelta;
+import difflib.Chunk;
+import difflib.DeleteDelta;
+import difflib.Delta;
+import difflib.InsertDelta;
+import difflib.Patch;
+
+/**
+ * Binary format of a patch of lines, used by {@link DiffCache} to spill patches to disk. Unlike the
+ * unified format, it does not need the original text to be read back.
+ *
+ * <p>
+ * The format is a version byte and the number of deltas, then per delta its type, and per chunk its
+ * position, its number of lines and the lines, each as length and UTF-8 bytes or -1 for null.
+ * </p>
+ */
+final class PatchCodec {
+    private static final int VERSION = 1;
+
+    private PatchCodec() {
+    }
+
+    static void write(Patch<String> patch, DataOutputStream out) throws IOException {
+        List<Delta<String>> deltas = patch.getDeltas();
+        out.writeByte(VERSION);
+        out.writeInt(deltas.size());
+        for (Delta<String> delta : deltas) {
+            out.writeByte(delta.getType().ordinal());
+            writeChunk(delta.getOriginal(), out);
+            writeChunk(delta.getRevised(), out);
+        }
+    }
+
+    private static void writeChunk(Chunk<String> chunk, DataOutputStream out) throws IOException {
+        out.writeInt(chunk.getPosition());
+        out.writeInt(chunk.size());
+        for (String line : chunk.getLines()) {
+            if (line == null) {
+                out.writeInt(-1);
+            } else {
+                byte[] bytes = line.getBytes(Charsets.UTF_8);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+        }
+    }
+
+    /**
+     * @param maxLength the length of the input, e.g. of the spill file. A line length above it
+     *            means the input is corrupt, so it is rejected before its array is allocated.
+     */
+    static Patch<String> read(DataInputStream in, long maxLength) throws IOException {
+        int version = in.readUnsignedByte();
+        if (version != VERSION) {
+            throw new IOException("unknown patch format version " + version);
+        }
+        int size = in.readInt();
+        Patch<String> patch = new Patch<String>();
+        for (int i = 0; i < size; i++) {
+            int type = in.readUnsignedByte();
+            Chunk<String> original = readChunk(in, maxLength);
+            Chunk<String> revised = readChunk(in, maxLength);
+            if (type >= Delta.TYPE.values().length) {
+                throw new IOException("unknown delta type " + type);
+            }
+            switch (Delta.TYPE.values()[type]) {
+            case INSERT:
+                patch.addDelta(new InsertDelta<String>(original, revised));
+                break;
+            case DELETE:
+                patch.addDelta(new DeleteDelta<String>(original, revised));
+                break;
+            default:
+                patch.addDelta(new ChangeDelta<String>(original, revised));
+                break;
+            }
+        }
+        return patch;
+    }
+
+    private static Chunk<String> readChunk(DataInputStream in, long maxLength) throws IOException {
+        int position = in.readInt();
+        int size = in.readInt();
+        if (position < 0 || size < 0) {
+            throw new IOException("corrupt chunk");
+        }
+        List<String> lines = new ArrayList<String>(Math.min(size, 1024));
+        for (int i = 0; i < size; i++) {
+            int length = in.readInt();
+            if (length < 0) {
+                lines.add(null);
+            } else if (length > maxLength) {
+                throw new IOException("corrupt line length " + length);
+            } else {
+                byte[] bytes = new byte[length];
+                in.readFully(bytes);
+                lines.add(new String(bytes, Charsets.UTF_8));
+            }
+        }
+        return new Chunk<String>(position, lines);
+    }
+}
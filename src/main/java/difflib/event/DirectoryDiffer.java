@@ -0,0 +1,295 @@
+package difflib.event;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.google.common.base.Charsets;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import com.google.common.io.Files;
+import com.google.common.util.concurrent.MoreExecutors;
+
+import difflib.DiffAlgorithm;
+import difflib.DiffUtils;
+import difflib.Patch;
+import difflib.myers.MyersDiff;
+
+/**
+ * Walks two directory trees and reports a {@link Patch} for every file which differs between them.
+ *
+ * <p>
+ * Files are matched by their path relative to the given roots. A file which exists only in the
+ * revised tree is reported with {@link #DEV_NULL} as original path, a file which exists only in the
+ * original tree with {@link #DEV_NULL} as revised path. Files of the same size are hashed first and
+ * are not diffed at all when their content is identical.
+ * </p>
+ *
+ * <p>
+ * Reading, hashing and diffing of the files run on the configured {@link Executor}, but the
+ * {@link PatchHandler} is always called from the thread which invoked
+ * {@link #diff(File, File, PatchHandler)}, in the sorted order of the relative paths. So the handler
+ * does not need to be thread-safe, and its output is reproducible. For example,
+ * <code>
+ *    ExecutorService pool = Executors.newFixedThreadPool(8);
+ *    new DirectoryDiffer.Builder().executor(pool).build()
+ *        .diff(oldRoot, newRoot, new UnifiedDiffWriter(oldRoot, writer, 3));
+ * </code>
+ * writes a multi-file unified diff of both trees.
+ * </p>
+ */
+public class DirectoryDiffer {
+    /** Path reported for the missing side of an added or removed file. */
+    public static final String DEV_NULL = "/dev/null";
+
+    private static final HashFunction CONTENT_HASH = Hashing.murmur3_128();
+
+    private final Executor executor;
+    private final Charset charset;
+    private final DiffAlgorithm<String> algorithm;
+    private final int maxPendingFiles;
+
+    /**
+     * This class used for building the DirectoryDiffer.
+     */
+    public static class Builder {
+        private Executor executor = MoreExecutors.sameThreadExecutor();
+        private Charset charset = Charsets.UTF_8;
+        private DiffAlgorithm<String> algorithm = new MyersDiff<String>();
+        private int maxPendingFiles = Runtime.getRuntime().availableProcessors() * 4;
+
+        /**
+         * Set the executor which reads and diffs the files.
+         * @param executor the executor to use. Default: the calling thread.
+         * @return builder with configured executor
+         */
+        @Nonnull
+        public Builder executor(@Nonnull Executor executor) {
+            if (executor == null) {
+                throw new IllegalArgumentException("executor must not be null");
+            }
+            this.executor = executor;
+            return this;
+        }
+
+        /**
+         * Set the charset used to decode the files of both trees.
+         * @param charset the charset to use. Default: UTF-8.
+         * @return builder with configured charset
+         */
+        @Nonnull
+        public Builder charset(@Nonnull Charset charset) {
+            if (charset == null) {
+                throw new IllegalArgumentException("charset must not be null");
+            }
+            this.charset = charset;
+            return this;
+        }
+
+        /**
+         * Set the diff algorithm. It is shared by all worker threads, so it has to be thread-safe.
+         * @param algorithm the algorithm to use. Default: {@link MyersDiff}.
+         * @return builder with configured algorithm
+         */
+        @Nonnull
+        public Builder algorithm(@Nonnull DiffAlgorithm<String> algorithm) {
+            if (algorithm == null) {
+                throw new IllegalArgumentException("algorithm must not be null");
+            }
+            this.algorithm = algorithm;
+            return this;
+        }
+
+        /**
+         * Set how many files may be read and diffed ahead of the handler. It bounds the number
+         * of patches held in memory at the same time.
+         * @param maxPendingFiles the value to set. Default: 4 per available processor.
+         * @return builder with configured maxPendingFiles
+         */
+        @Nonnull
+        public Builder maxPendingFiles(int maxPendingFiles) {
+            if (maxPendingFiles > 0) {
+                this.maxPendingFiles = maxPendingFiles;
+            }
+            return this;
+        }
+
+        public DirectoryDiffer build() {
+            return new DirectoryDiffer(this);
+        }
+    }
+
+    private DirectoryDiffer(Builder builder) {
+        executor = builder.executor;
+        charset = builder.charset;
+        algorithm = builder.algorithm;
+        maxPendingFiles = builder.maxPendingFiles;
+    }
+
+    /**
+     * Diffs all files of the given trees and passes the patch of each differing file to the handler.
+     *
+     * @param originalRoot the root directory of the original tree
+     * @param revisedRoot the root directory of the revised tree
+     * @param handler the handler which receives paths relative to the roots, separated by '/'
+     * @throws IOException if a directory cannot be listed or a file cannot be read
+     */
+    public void diff(@Nonnull File originalRoot, @Nonnull File revisedRoot,
+            @Nonnull PatchHandler<String> handler) throws IOException {
+        if (!originalRoot.isDirectory()) {
+            throw new IOException(originalRoot + " is not a directory");
+        }
+        if (!revisedRoot.isDirectory()) {
+            throw new IOException(revisedRoot + " is not a directory");
+        }
+        SortedSet<String> originalPaths = listFiles(originalRoot);
+        SortedSet<String> revisedPaths = listFiles(revisedRoot);
+        SortedSet<String> allPaths = new TreeSet<String>(originalPaths);
+        allPaths.addAll(revisedPaths);
+
+        Deque<FutureTask<FileDiff>> pending = new ArrayDeque<FutureTask<FileDiff>>();
+        try {
+            for (String path : allPaths) {
+                File original = originalPaths.contains(path) ? new File(originalRoot, path) : null;
+                File revised = revisedPaths.contains(path) ? new File(revisedRoot, path) : null;
+                if (original != null && revised != null && original.length() != revised.length()) {
+                    // sizes differ, so there is no need to hash the content
+                    pending.add(submit(new FileDiffTask(path, original, revised, false)));
+                } else {
+                    pending.add(submit(new FileDiffTask(path, original, revised, true)));
+                }
+                if (pending.size() >= maxPendingFiles) {
+                    publish(pending.poll(), handler);
+                }
+            }
+            while (!pending.isEmpty()) {
+                publish(pending.poll(), handler);
+            }
+        } finally {
+            for (FutureTask<FileDiff> task : pending) {
+                task.cancel(true);
+            }
+        }
+    }
+
+    private FutureTask<FileDiff> submit(FileDiffTask callable) {
+        FutureTask<FileDiff> task = new FutureTask<FileDiff>(callable);
+        executor.execute(task);
+        return task;
+    }
+
+    private static void publish(FutureTask<FileDiff> task, PatchHandler<String> handler)
+            throws IOException {
+        FileDiff result;
+        try {
+            result = task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted while waiting for the diff of files", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException(cause);
+        }
+        if (result != null) {
+            handler.handle(result.originalPath, result.revisedPath, result.patch);
+        }
+    }
+
+    private static SortedSet<String> listFiles(File root) throws IOException {
+        SortedSet<String> result = new TreeSet<String>();
+        collectFiles(root, "", result);
+        return result;
+    }
+
+    private static void collectFiles(File dir, String prefix, SortedSet<String> result)
+            throws IOException {
+        File[] children = dir.listFiles();
+        if (children == null) {
+            throw new IOException("cannot list the directory " + dir);
+        }
+        for (File child : children) {
+            String path = prefix + child.getName();
+            if (child.isDirectory()) {
+                collectFiles(child, path + "/", result);
+            } else {
+                result.add(path);
+            }
+        }
+    }
+
+    private static final class FileDiff {
+        final String originalPath;
+        final String revisedPath;
+        final Patch<String> patch;
+
+        FileDiff(String originalPath, String revisedPath, Patch<String> patch) {
+            this.originalPath = originalPath;
+            this.revisedPath = revisedPath;
+            this.patch = patch;
+        }
+    }
+
+    private final class FileDiffTask implements Callable<FileDiff> {
+        private final String path;
+        @Nullable
+        private final File original;
+        @Nullable
+        private final File revised;
+        private final boolean compareContent;
+
+        FileDiffTask(String path, @Nullable File original, @Nullable File revised,
+                boolean compareContent) {
+            this.path = path;
+            this.original = original;
+            this.revised = revised;
+            this.compareContent = compareContent;
+        }
+
+        /**
+         * @return the diff of the files, or {@code null} if they are identical
+         */
+        @Override
+        public FileDiff call() throws IOException {
+            if (original != null && revised != null && compareContent
+                    && Files.hash(original, CONTENT_HASH).equals(Files.hash(revised, CONTENT_HASH))) {
+                return null;
+            }
+            List<String> originalLines = readLines(original);
+            List<String> revisedLines = readLines(revised);
+            Patch<String> patch = DiffUtils.diff(originalLines, revisedLines, algorithm);
+            if (patch.getDeltas().isEmpty()) {
+                // e.g. the files differ only by their line terminators
+                return null;
+            }
+            return new FileDiff(original == null ? DEV_NULL : path,
+                    revised == null ? DEV_NULL : path, patch);
+        }
+
+        private List<String> readLines(@Nullable File file) throws IOException {
+            if (file == null) {
+                return Collections.emptyList();
+            }
+            return Files.readLines(file, charset);
+        }
+    }
+}
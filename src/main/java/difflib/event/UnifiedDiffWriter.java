@@ -0,0 +1,78 @@
+package difflib.event;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.Collections;
+import java.util.List;
+
+import javax.annotation.Nonnull;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Throwables;
+import com.google.common.io.Files;
+
+import difflib.DiffUtils;
+import difflib.Patch;
+
+/**
+ * {@link PatchHandler} which appends each received patch in unified format, so the patches of
+ * many files form one multi-file patch which {@link UnifiedPatchParser} can read back.
+ *
+ * <p>
+ * The paths are resolved against the given root directory to read the original lines, which
+ * {@link DiffUtils#generateUnifiedDiff(String, String, List, Patch, int)} needs for the context.
+ * An original path equal to {@link DirectoryDiffer#DEV_NULL} is treated as an empty file.
+ * </p>
+ */
+public class UnifiedDiffWriter implements PatchHandler<String> {
+    private static final String LINE_SEPARATOR = "\n";
+
+    private final File originalRoot;
+    private final Appendable out;
+    private final int contextSize;
+    private final Charset charset;
+
+    public UnifiedDiffWriter(@Nonnull File originalRoot, @Nonnull Appendable out, int contextSize) {
+        this(originalRoot, out, contextSize, Charsets.UTF_8);
+    }
+
+    public UnifiedDiffWriter(@Nonnull File originalRoot, @Nonnull Appendable out, int contextSize,
+            @Nonnull Charset charset) {
+        this.originalRoot = originalRoot;
+        this.out = out;
+        this.contextSize = contextSize;
+        this.charset = charset;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws RuntimeException wrapping the {@link IOException} if the original file cannot be read
+     *         or the output cannot be written
+     */
+    @Override
+    public void handle(String originalPath, String revisedPath, Patch<String> patch) {
+        try {
+            List<String> originalLines;
+            if (DirectoryDiffer.DEV_NULL.equals(originalPath)) {
+                originalLines = Collections.emptyList();
+            } else {
+                originalLines = Files.readLines(new File(originalRoot, originalPath), charset);
+            }
+            List<String> unifiedDiff = DiffUtils.generateUnifiedDiff(originalPath, revisedPath,
+                    originalLines, patch, contextSize);
+            if (unifiedDiff.isEmpty()) {
+                return;
+            }
+            // UnifiedPatchParser needs a line between two diffs to find where the next one starts
+            out.append("diff -u ").append(originalPath).append(' ').append(revisedPath)
+                    .append(LINE_SEPARATOR);
+            for (String line : unifiedDiff) {
+                out.append(line).append(LINE_SEPARATOR);
+            }
+        } catch (IOException e) {
+            throw Throwables.propagate(e);
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package difflib.metrics;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Describes one finished operation. Values which the operation does not know are -1, e.g. the
+ * edit distance of applying a patch.
+ */
+public final class DiffEvent {
+    /** The kinds of reported operations. */
+    public static enum Operation {
+        /** A diff of two sequences. */
+        DIFF,
+        /** {@link difflib.Patch#applyTo(java.util.List)} */
+        APPLY,
+        /** {@link difflib.Patch#restore(java.util.List)} */
+        RESTORE,
+        /** {@link difflib.DiffUtils#generateUnifiedDiff} */
+        GENERATE_UNIFIED_DIFF,
+        /** {@link difflib.DiffUtils#parseUnifiedDiff(java.util.List)} */
+        PARSE_UNIFIED_DIFF,
+        /** {@link difflib.DiffRowGenerator#generateDiffRows} */
+        GENERATE_DIFF_ROWS
+    }
+
+    private final Operation operation;
+    private final String source;
+    private final int originalSize;
+    private final int revisedSize;
+    private final int editDistance;
+    private final long diagonals;
+    private final long snakeLength;
+    private final long nodes;
+    private final int deltas;
+    private final long nanos;
+
+    private DiffEvent(Builder builder) {
+        operation = builder.operation;
+        source = builder.source;
+        originalSize = builder.originalSize;
+        revisedSize = builder.revisedSize;
+        editDistance = builder.editDistance;
+        diagonals = builder.diagonals;
+        snakeLength = builder.snakeLength;
+        nodes = builder.nodes;
+        deltas = builder.deltas;
+        nanos = builder.nanos;
+    }
+
+    @Nonnull
+    public Operation getOperation() {
+        return operation;
+    }
+
+    /**
+     * @return the simple name of the class which reported the event, e.g. "MyersDiff"
+     */
+    @Nonnull
+    public String getSource() {
+        return source;
+    }
+
+    /**
+     * @return the size of the original sequence, or of the patched or parsed lines
+     */
+    public int getOriginalSize() {
+        return originalSize;
+    }
+
+    /**
+     * @return the size of the revised sequence, or of the resulting lines
+     */
+    public int getRevisedSize() {
+        return revisedSize;
+    }
+
+    /**
+     * @return the number of inserted and deleted elements of the diff path, D in the Myers paper
+     */
+    public int getEditDistance() {
+        return editDistance;
+    }
+
+    /**
+     * @return the number of diagonals the diff explored over all steps of D
+     */
+    public long getDiagonals() {
+        return diagonals;
+    }
+
+    /**
+     * @return the total length of the snakes, i.e. the equal elements followed along diagonals
+     */
+    public long getSnakeLength() {
+        return snakeLength;
+    }
+
+    /**
+     * @return the number of path nodes allocated, or trace entries for the primitive diff
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * @return the number of deltas of the resulting, applied or parsed patch
+     */
+    public int getDeltas() {
+        return deltas;
+    }
+
+    /**
+     * @return the elapsed time of the operation
+     */
+    public long getNanos() {
+        return nanos;
+    }
+
+    @Override
+    public String toString() {
+        return operation + " " + source + " [originalSize=" + originalSize + ", revisedSize=" + revisedSize
+                + ", editDistance=" + editDistance + ", diagonals=" + diagonals + ", snakeLength=" + snakeLength
+                + ", nodes=" + nodes + ", deltas=" + deltas + ", nanos=" + nanos + "]";
+    }
+
+    /**
+     * This class used for building a DiffEvent.
+     */
+    public static class Builder {
+        private final Operation operation;
+        private final String source;
+        private int originalSize = -1;
+        private int revisedSize = -1;
+        private int editDistance = -1;
+        private long diagonals = -1;
+        private long snakeLength = -1;
+        private long nodes = -1;
+        private int deltas = -1;
+        private long nanos = -1;
+
+        public Builder(@Nonnull Operation operation, @Nonnull String source) {
+            if (operation == null) {
+                throw new IllegalArgumentException("operation must not be null");
+            }
+            if (source == null) {
+                throw new IllegalArgumentException("source must not be null");
+            }
+            this.operation = operation;
+            this.source = source;
+        }
+
+        public Builder sizes(int originalSize, int revisedSize) {
+            this.originalSize = originalSize;
+            this.revisedSize = revisedSize;
+            return this;
+        }
+
+        public Builder path(int editDistance, long diagonals, long snakeLength, long nodes) {
+            this.editDistance = editDistance;
+            this.diagonals = diagonals;
+            this.snakeLength = snakeLength;
+            this.nodes = nodes;
+            return this;
+        }
+
+        public Builder deltas(int deltas) {
+            this.deltas = deltas;
+            return this;
+        }
+
+        public Builder nanos(long nanos) {
+            this.nanos = nanos;
+            return this;
+        }
+
+        public DiffEvent build() {
+            return new DiffEvent(this);
+        }
+    }
+}
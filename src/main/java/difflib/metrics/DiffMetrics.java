@@ -0,0 +1,35 @@
+package difflib.metrics;
+
+import javax.annotation.Nullable;
+
+/**
+ * Holds the {@link DiffMetricsListener} which the diff algorithms, {@link difflib.Patch} and the
+ * unified diff generator and parser report to.
+ *
+ * <p>
+ * Without a listener, which is the default, an operation only reads the listener field once: no
+ * clock is read and no event is created.
+ * </p>
+ */
+public final class DiffMetrics {
+    @Nullable
+    private static volatile DiffMetricsListener listener;
+
+    private DiffMetrics() {
+    }
+
+    /**
+     * @param listener the listener to report to, or null to stop reporting
+     */
+    public static void setListener(@Nullable DiffMetricsListener listener) {
+        DiffMetrics.listener = listener;
+    }
+
+    /**
+     * @return the listener to report to, or null if metrics are disabled
+     */
+    @Nullable
+    public static DiffMetricsListener getListener() {
+        return listener;
+    }
+}
@@ -0,0 +1,16 @@
+package difflib.metrics;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Receives a {@link DiffEvent} for each diff, patch and unified diff operation, once it is done.
+ * Register it with {@link DiffMetrics#setListener(DiffMetricsListener)}.
+ *
+ * <p>
+ * The listener is called on the thread which ran the operation, so it must be thread-safe and
+ * should return quickly.
+ * </p>
+ */
+public interface DiffMetricsListener {
+    void onEvent(@Nonnull DiffEvent event);
+}
@@ -0,0 +1,140 @@
+package difflib.metrics;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+
+import difflib.metrics.DiffEvent.Operation;
+
+/**
+ * {@link DiffMetricsListener} which keeps histograms of the elapsed time, the input size and the
+ * edit distance per {@link Operation} in memory, to correlate the cost of diffs with the shape of
+ * their inputs. Recording takes no lock and allocates nothing.
+ */
+public class HistogramRecorder implements DiffMetricsListener {
+    private final Map<Operation, Histogram> nanos = new EnumMap<Operation, Histogram>(Operation.class);
+    private final Map<Operation, Histogram> inputSizes = new EnumMap<Operation, Histogram>(Operation.class);
+    private final Map<Operation, Histogram> editDistances = new EnumMap<Operation, Histogram>(Operation.class);
+
+    public HistogramRecorder() {
+        for (Operation operation : Operation.values()) {
+            nanos.put(operation, new Histogram());
+            inputSizes.put(operation, new Histogram());
+            editDistances.put(operation, new Histogram());
+        }
+    }
+
+    @Override
+    public void onEvent(@Nonnull DiffEvent event) {
+        Operation operation = event.getOperation();
+        if (event.getNanos() >= 0) {
+            nanos.get(operation).record(event.getNanos());
+        }
+        if (event.getOriginalSize() >= 0 && event.getRevisedSize() >= 0) {
+            inputSizes.get(operation).record((long) event.getOriginalSize() + event.getRevisedSize());
+        }
+        if (event.getEditDistance() >= 0) {
+            editDistances.get(operation).record(event.getEditDistance());
+        }
+    }
+
+    /**
+     * @return the histogram of the elapsed nanoseconds of the given operation
+     */
+    @Nonnull
+    public Histogram getNanos(@Nonnull Operation operation) {
+        return nanos.get(operation);
+    }
+
+    /**
+     * @return the histogram of the summed original and revised sizes of the given operation
+     */
+    @Nonnull
+    public Histogram getInputSizes(@Nonnull Operation operation) {
+        return inputSizes.get(operation);
+    }
+
+    /**
+     * @return the histogram of the edit distances of the given operation
+     */
+    @Nonnull
+    public Histogram getEditDistances(@Nonnull Operation operation) {
+        return editDistances.get(operation);
+    }
+
+    /**
+     * Counts non-negative values in buckets of powers of two: bucket 0 holds 0, bucket i holds the
+     * values from 2^(i-1) to 2^i - 1.
+     */
+    public static final class Histogram {
+        private static final int BUCKETS = 64;
+
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong sum = new AtomicLong();
+        private final AtomicLong max = new AtomicLong();
+
+        void record(@Nonnegative long value) {
+            buckets.incrementAndGet(BUCKETS - Long.numberOfLeadingZeros(value));
+            count.incrementAndGet();
+            sum.addAndGet(value);
+            long current;
+            while (value > (current = max.get()) && !max.compareAndSet(current, value)) {
+                // retry
+            }
+        }
+
+        public long getCount() {
+            return count.get();
+        }
+
+        public long getSum() {
+            return sum.get();
+        }
+
+        public long getMax() {
+            return max.get();
+        }
+
+        /**
+         * @return the number of values in the given bucket
+         */
+        public long getBucketCount(int bucket) {
+            return buckets.get(bucket);
+        }
+
+        /**
+         * @param percentile between 0 and 100
+         * @return an upper bound of the given percentile of the values, i.e. the largest value of
+         *         its bucket, or 0 if there are no values
+         */
+        public long getPercentile(double percentile) {
+            if (percentile < 0 || percentile > 100) {
+                throw new IllegalArgumentException("percentile must be between 0 and 100");
+            }
+            long total = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                total += buckets.get(i);
+            }
+            long rank = (long) Math.ceil(total * percentile / 100);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += buckets.get(i);
+                if (seen >= rank && seen > 0) {
+                    return i == 0 ? 0 : Math.min((1L << i) - 1, getMax());
+                }
+            }
+            return 0;
+        }
+
+        @Override
+        public String toString() {
+            return "count=" + getCount() + ", sum=" + getSum() + ", max=" + getMax() + ", p50="
+                    + getPercentile(50) + ", p99=" + getPercentile(99);
+        }
+    }
+}
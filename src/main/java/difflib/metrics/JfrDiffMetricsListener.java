@@ -0,0 +1,269 @@
+package difflib.metrics;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+
+import com.google.common.base.Throwables;
+
+import difflib.metrics.DiffEvent.Operation;
+
+/**
+ * {@link DiffMetricsListener} which commits each {@link DiffEvent} as a Java Flight Recorder event,
+ * so a continuous recording shows the slow diffs of a production system together with the shape
+ * of their inputs.
+ *
+ * <p>
+ * The events are named {@code difflib.DiffComputed}, {@code difflib.PatchApplied} (for applying
+ * and restoring), {@code difflib.UnifiedDiffGenerated}, {@code difflib.UnifiedDiffParsed} and
+ * {@code difflib.DiffRowsRendered}, and carry the fields of the {@link DiffEvent} and its
+ * duration. They are reported after the operation is done, so the threshold setting of the
+ * recording does not apply to them; operations faster than the {@link Builder#threshold(long,
+ * TimeUnit) threshold} of this listener are not committed. Example:
+ * <code>
+ *    DiffMetrics.setListener(new JfrDiffMetricsListener.Builder()
+ *            .threshold(20, TimeUnit.MILLISECONDS).build());
+ * </code>
+ * </p>
+ *
+ * <p>
+ * The event types are defined with {@code jdk.jfr.EventFactory}, via reflection, so this library
+ * still runs on Java 7. Use {@link #isAvailable()} to check for a JVM with Flight Recorder.
+ * </p>
+ */
+public class JfrDiffMetricsListener implements DiffMetricsListener {
+    private static final String[] CATEGORY = { "difflib" };
+    private static final Jfr JFR = Jfr.load();
+
+    private final Map<Operation, EventType> types = new EnumMap<Operation, EventType>(Operation.class);
+    private final long[] thresholds;
+
+    private JfrDiffMetricsListener(Builder builder) {
+        thresholds = builder.thresholds.clone();
+        EventType diff = JFR.define("DiffComputed", "Diff Computed", "A diff of two sequences");
+        EventType patch = JFR.define("PatchApplied", "Patch Applied", "A patch applied to or restored from lines");
+        types.put(Operation.DIFF, diff);
+        types.put(Operation.APPLY, patch);
+        types.put(Operation.RESTORE, patch);
+        types.put(Operation.GENERATE_UNIFIED_DIFF,
+                JFR.define("UnifiedDiffGenerated", "Unified Diff Generated", "A patch written as unified diff"));
+        types.put(Operation.PARSE_UNIFIED_DIFF,
+                JFR.define("UnifiedDiffParsed", "Unified Diff Parsed", "A unified diff parsed into a patch"));
+        types.put(Operation.GENERATE_DIFF_ROWS,
+                JFR.define("DiffRowsRendered", "Diff Rows Rendered", "The diff rows generated from a patch"));
+    }
+
+    /**
+     * @return true if this JVM has Java Flight Recorder with the {@code jdk.jfr} API, i.e. Java 11
+     *         or 8u262 and later
+     */
+    public static boolean isAvailable() {
+        return JFR != null;
+    }
+
+    @Override
+    public void onEvent(@Nonnull DiffEvent event) {
+        if (event.getNanos() < thresholds[event.getOperation().ordinal()]) {
+            return;
+        }
+        types.get(event.getOperation()).commit(event);
+    }
+
+    /**
+     * One event type defined with {@code jdk.jfr.EventFactory}.
+     */
+    private static final class EventType {
+        // "duration" is taken by the begin and end time of every JFR event
+        private static final String[] FIELDS = { "operation", "source", "originalSize", "revisedSize",
+                "editDistance", "diagonals", "snakeLength", "nodes", "deltas", "elapsed" };
+
+        private final Object factory;
+
+        EventType(Object factory) {
+            this.factory = factory;
+        }
+
+        void commit(DiffEvent event) {
+            try {
+                Object jfrEvent = JFR.newEvent.invoke(factory);
+                if (!(Boolean) JFR.isEnabled.invoke(jfrEvent)) {
+                    return;
+                }
+                // in the order of FIELDS
+                Object[] values = { event.getOperation().name(), event.getSource(), event.getOriginalSize(),
+                        event.getRevisedSize(), event.getEditDistance(), event.getDiagonals(),
+                        event.getSnakeLength(), event.getNodes(), event.getDeltas(), event.getNanos() };
+                for (int i = 0; i < values.length; i++) {
+                    JFR.set.invoke(jfrEvent, i, values[i]);
+                }
+                JFR.commit.invoke(jfrEvent);
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            } catch (InvocationTargetException e) {
+                throw Throwables.propagate(e.getCause());
+            }
+        }
+    }
+
+    /**
+     * The reflective handles of the {@code jdk.jfr} API.
+     */
+    private static final class Jfr {
+        private Method create;
+        private Constructor<?> annotationElement;
+        private Constructor<?> valueDescriptor;
+        private Class<? extends Annotation> name;
+        private Class<? extends Annotation> label;
+        private Class<? extends Annotation> description;
+        private Class<? extends Annotation> category;
+        private Class<? extends Annotation> timespan;
+        private Method newEvent;
+        private Method isEnabled;
+        private Method set;
+        private Method commit;
+
+        /**
+         * @return the handles, or null if the API is missing
+         */
+        static Jfr load() {
+            try {
+                Jfr jfr = new Jfr();
+                Class<?> annotationElementClass = Class.forName("jdk.jfr.AnnotationElement");
+                jfr.create = Class.forName("jdk.jfr.EventFactory").getMethod("create", List.class, List.class);
+                jfr.annotationElement = annotationElementClass.getConstructor(Class.class, Object.class);
+                jfr.valueDescriptor = Class.forName("jdk.jfr.ValueDescriptor").getConstructor(Class.class,
+                        String.class, List.class);
+                jfr.name = annotation("jdk.jfr.Name");
+                jfr.label = annotation("jdk.jfr.Label");
+                jfr.description = annotation("jdk.jfr.Description");
+                jfr.category = annotation("jdk.jfr.Category");
+                jfr.timespan = annotation("jdk.jfr.Timespan");
+                Class<?> event = Class.forName("jdk.jfr.Event");
+                jfr.newEvent = Class.forName("jdk.jfr.EventFactory").getMethod("newEvent");
+                jfr.isEnabled = event.getMethod("isEnabled");
+                jfr.set = event.getMethod("set", int.class, Object.class);
+                jfr.commit = event.getMethod("commit");
+                return jfr;
+            } catch (ClassNotFoundException e) {
+                return null;
+            } catch (NoSuchMethodException e) {
+                return null;
+            }
+        }
+
+        private static Class<? extends Annotation> annotation(String className) throws ClassNotFoundException {
+            return Class.forName(className).asSubclass(Annotation.class);
+        }
+
+        EventType define(String simpleName, String eventLabel, String eventDescription) {
+            List<Object> annotations = Arrays.asList(element(name, "difflib." + simpleName),
+                    element(label, eventLabel), element(description, eventDescription), element(category, CATEGORY));
+            List<Object> fields = new ArrayList<Object>();
+            for (String field : EventType.FIELDS) {
+                Class<?> type;
+                List<Object> fieldAnnotations = Collections.emptyList();
+                if (field.equals("operation") || field.equals("source")) {
+                    type = String.class;
+                } else if (field.equals("elapsed")) {
+                    type = long.class;
+                    fieldAnnotations = Collections.singletonList(element(timespan, "NANOSECONDS"));
+                } else if (field.equals("diagonals") || field.equals("snakeLength") || field.equals("nodes")) {
+                    type = long.class;
+                } else {
+                    type = int.class;
+                }
+                fields.add(newInstance(valueDescriptor, type, field, fieldAnnotations));
+            }
+            try {
+                return new EventType(create.invoke(null, annotations, fields));
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            } catch (InvocationTargetException e) {
+                throw Throwables.propagate(e.getCause());
+            }
+        }
+
+        private Object element(Class<? extends Annotation> type, Object value) {
+            return newInstance(annotationElement, type, value);
+        }
+
+        private static Object newInstance(Constructor<?> constructor, Object... args) {
+            try {
+                return constructor.newInstance(args);
+            } catch (InstantiationException e) {
+                throw new IllegalStateException(e);
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            } catch (InvocationTargetException e) {
+                throw Throwables.propagate(e.getCause());
+            }
+        }
+    }
+
+    /**
+     * This class used for building a JfrDiffMetricsListener.
+     */
+    public static class Builder {
+        private final long[] thresholds = new long[Operation.values().length];
+
+        /**
+         * Only operations which take at least the given time are committed. Default: 0, i.e. all.
+         *
+         * @param threshold the minimum duration
+         * @param unit the unit of the duration
+         * @return builder with configured threshold for all operations
+         */
+        public Builder threshold(@Nonnegative long threshold, @Nonnull TimeUnit unit) {
+            for (Operation operation : Operation.values()) {
+                threshold(operation, threshold, unit);
+            }
+            return this;
+        }
+
+        /**
+         * Like {@link #threshold(long, TimeUnit)}, but only for the given operation.
+         *
+         * @param operation the operation
+         * @param threshold the minimum duration
+         * @param unit the unit of the duration
+         * @return builder with configured threshold for the given operation
+         */
+        public Builder threshold(@Nonnull Operation operation, @Nonnegative long threshold, @Nonnull TimeUnit unit) {
+            if (operation == null) {
+                throw new IllegalArgumentException("operation must not be null");
+            }
+            if (threshold < 0) {
+                throw new IllegalArgumentException("threshold must not be negative");
+            }
+            if (unit == null) {
+                throw new IllegalArgumentException("unit must not be null");
+            }
+            thresholds[operation.ordinal()] = unit.toNanos(threshold);
+            return this;
+        }
+
+        /**
+         * Defines the event types.
+         *
+         * @return the listener
+         * @throws UnsupportedOperationException if this JVM has no Flight Recorder
+         */
+        public JfrDiffMetricsListener build() {
+            if (!isAvailable()) {
+                throw new UnsupportedOperationException("Java Flight Recorder is not available");
+            }
+            return new JfrDiffMetricsListener(this);
+        }
+    }
+}
@@ -0,0 +1,301 @@
+package difflib.myers;
+
+import java.util.Arrays;
+import java.util.List;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+
+import difflib.EditScript;
+
+/**
+ * Estimates the cost of a diff before it is computed, so a caller can route large or dissimilar
+ * inputs away from an interactive path.
+ *
+ * <p>
+ * The common prefix and suffix are stripped first, as the diff algorithms do. Of the remaining
+ * elements only those with a hash code in a fixed subset of all hash codes are kept, so equal
+ * elements are kept on both sides and the samples keep their order. The samples are diffed, and
+ * their edit distance, scaled by the sampling rate, estimates the edit distance D of the inputs.
+ * The projected cost is (N + M) * D, the number of comparisons of {@link MyersDiff} in the worst
+ * case. Inputs up to the sample size are not sampled, so their estimate is exact up to hash
+ * collisions. Deltas much sparser than the sampling rate may be missed, so the estimate of large,
+ * very similar inputs tends to be low.
+ * </p>
+ *
+ * <p>
+ * Elements are compared with {@link Object#equals(Object)} and {@link Object#hashCode()}, which
+ * are cheap for lines, since a {@link String} caches its hash code. Instances are immutable and
+ * can be shared between threads. Example:
+ * <code>
+ *    DiffEstimator.Estimate estimate = new DiffEstimator.Builder().build().estimate(original, revised);
+ *    if (estimate.getRecommendation() == DiffEstimator.Recommendation.BACKGROUND) {
+ *        ...
+ *    }
+ * </code>
+ * </p>
+ */
+public class DiffEstimator {
+    /** How to compute a diff of the estimated cost. */
+    public static enum Recommendation {
+        /** Cheap enough for {@link MyersDiff}. */
+        MYERS,
+        /**
+         * Map the elements to int keys and diff them with {@link PrimitiveDiff}, e.g. with
+         * {@link difflib.DiffUtils#diff(List, List, java.util.Set)} for lines.
+         */
+        PRIMITIVE,
+        /**
+         * Too expensive for an interactive path: diff in the background, or show the texts as
+         * replaced.
+         */
+        BACKGROUND
+    }
+
+    private final int sampleSize;
+    private final long primitiveCost;
+    private final long maxCost;
+
+    private DiffEstimator(Builder builder) {
+        sampleSize = builder.sampleSize;
+        primitiveCost = builder.primitiveCost;
+        maxCost = builder.maxCost;
+    }
+
+    /**
+     * Estimates the cost of diffing the given sequences. Takes time linear in their size for the
+     * hash codes, plus the diff of at most twice the sample size elements.
+     *
+     * @param original The original sequence. Must not be {@code null}.
+     * @param revised The revised sequence. Must not be {@code null}.
+     * @return the estimate
+     */
+    @Nonnull
+    public <T> Estimate estimate(@Nonnull List<T> original, @Nonnull List<T> revised) {
+        if (original == null) {
+            throw new IllegalArgumentException("original must not be null");
+        }
+        if (revised == null) {
+            throw new IllegalArgumentException("revised must not be null");
+        }
+        int aTo = original.size();
+        int bTo = revised.size();
+        int prefix = 0;
+        while (prefix < aTo && prefix < bTo && equal(original.get(prefix), revised.get(prefix))) {
+            prefix++;
+        }
+        int suffix = 0;
+        while (prefix < aTo - suffix && prefix < bTo - suffix
+                && equal(original.get(aTo - suffix - 1), revised.get(bTo - suffix - 1))) {
+            suffix++;
+        }
+        int n = aTo - prefix - suffix;
+        int m = bTo - prefix - suffix;
+
+        int editDistance;
+        int rate = Math.max(1, (Math.max(n, m) + sampleSize - 1) / sampleSize);
+        if (n == 0 || m == 0) {
+            editDistance = n + m;
+        } else {
+            int[] a = sample(original, prefix, prefix + n, rate);
+            int[] b = sample(revised, prefix, prefix + m, rate);
+            EditScript script = PrimitiveDiff.compute(a, 0, a.length, b, 0, b.length, null, null);
+            long sampledDistance = 0;
+            for (int i = 0; i < script.size(); i++) {
+                sampledDistance += script.getOriginalEnd(i) - script.getOriginalStart(i)
+                        + script.getRevisedEnd(i) - script.getRevisedStart(i);
+            }
+            // scaled by the actual sample size, which varies around N / rate + M / rate
+            long scaled = a.length + b.length == 0 ? 0 : sampledDistance * (n + m) / (a.length + b.length);
+            // at least the difference of the sizes, even if the sample missed all deltas
+            editDistance = (int) Math.max(scaled, Math.abs(n - m));
+        }
+        long cost = (long) (n + m) * editDistance;
+        Recommendation recommendation;
+        if (cost > maxCost) {
+            recommendation = Recommendation.BACKGROUND;
+        } else if (cost > primitiveCost) {
+            recommendation = Recommendation.PRIMITIVE;
+        } else {
+            recommendation = Recommendation.MYERS;
+        }
+        return new Estimate(prefix, suffix, n, m, rate, editDistance, cost, recommendation);
+    }
+
+    private static boolean equal(Object a, Object b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
+    /**
+     * @return the hash codes of the elements in the given range which fall into the sample
+     */
+    private static int[] sample(List<?> list, int from, int to, int rate) {
+        int[] result = new int[rate == 1 ? to - from : 16];
+        int size = 0;
+        for (int i = from; i < to; i++) {
+            Object element = list.get(i);
+            int hash = mix(element == null ? 0 : element.hashCode());
+            if (rate == 1 || (hash & Integer.MAX_VALUE) % rate == 0) {
+                if (size == result.length) {
+                    result = Arrays.copyOf(result, size * 2);
+                }
+                result[size++] = hash;
+            }
+        }
+        return size == result.length ? result : Arrays.copyOf(result, size);
+    }
+
+    /**
+     * Spreads the bits of a hash code, so the sample does not depend on its low bits only.
+     */
+    private static int mix(int hash) {
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        hash *= 0xc2b2ae35;
+        hash ^= hash >>> 16;
+        return hash;
+    }
+
+    /**
+     * The estimated cost of one diff.
+     */
+    public static final class Estimate {
+        private final int commonPrefix;
+        private final int commonSuffix;
+        private final int originalSize;
+        private final int revisedSize;
+        private final int sampleRate;
+        private final int editDistance;
+        private final long cost;
+        private final Recommendation recommendation;
+
+        Estimate(int commonPrefix, int commonSuffix, int originalSize, int revisedSize, int sampleRate,
+                int editDistance, long cost, Recommendation recommendation) {
+            this.commonPrefix = commonPrefix;
+            this.commonSuffix = commonSuffix;
+            this.originalSize = originalSize;
+            this.revisedSize = revisedSize;
+            this.sampleRate = sampleRate;
+            this.editDistance = editDistance;
+            this.cost = cost;
+            this.recommendation = recommendation;
+        }
+
+        /**
+         * @return the length of the common prefix of both sequences
+         */
+        public int getCommonPrefix() {
+            return commonPrefix;
+        }
+
+        /**
+         * @return the length of the common suffix of both sequences, not overlapping the prefix
+         */
+        public int getCommonSuffix() {
+            return commonSuffix;
+        }
+
+        /**
+         * @return the size of the original sequence without the common prefix and suffix
+         */
+        public int getOriginalSize() {
+            return originalSize;
+        }
+
+        /**
+         * @return the size of the revised sequence without the common prefix and suffix
+         */
+        public int getRevisedSize() {
+            return revisedSize;
+        }
+
+        /**
+         * @return one element in about this many was sampled, 1 if the estimate is exact
+         */
+        public int getSampleRate() {
+            return sampleRate;
+        }
+
+        /**
+         * @return the estimated number of inserted and deleted elements, D in the Myers paper
+         */
+        public int getEditDistance() {
+            return editDistance;
+        }
+
+        /**
+         * @return the projected number of comparisons, (N + M) * D of the trimmed sequences
+         */
+        public long getCost() {
+            return cost;
+        }
+
+        @Nonnull
+        public Recommendation getRecommendation() {
+            return recommendation;
+        }
+
+        @Override
+        public String toString() {
+            return recommendation + " [commonPrefix=" + commonPrefix + ", commonSuffix=" + commonSuffix
+                    + ", originalSize=" + originalSize + ", revisedSize=" + revisedSize + ", sampleRate="
+                    + sampleRate + ", editDistance=" + editDistance + ", cost=" + cost + "]";
+        }
+    }
+
+    /**
+     * This class used for building a DiffEstimator.
+     */
+    public static class Builder {
+        private int sampleSize = 256;
+        private long primitiveCost = 1000000;
+        private long maxCost = 100000000;
+
+        /**
+         * Larger samples give better estimates of large inputs, at a higher cost. Default: 256.
+         *
+         * @param sampleSize about the number of elements sampled from each sequence
+         * @return builder with configured sample size
+         */
+        public Builder sampleSize(int sampleSize) {
+            if (sampleSize <= 0) {
+                throw new IllegalArgumentException("sampleSize must be positive");
+            }
+            this.sampleSize = sampleSize;
+            return this;
+        }
+
+        /**
+         * Above this cost, {@link Recommendation#PRIMITIVE} is recommended. Default: 10^6.
+         *
+         * @param primitiveCost the projected number of comparisons
+         * @return builder with configured cost
+         */
+        public Builder primitiveCost(@Nonnegative long primitiveCost) {
+            if (primitiveCost < 0) {
+                throw new IllegalArgumentException("primitiveCost must not be negative");
+            }
+            this.primitiveCost = primitiveCost;
+            return this;
+        }
+
+        /**
+         * Above this cost, {@link Recommendation#BACKGROUND} is recommended. Default: 10^8.
+         *
+         * @param maxCost the projected number of comparisons
+         * @return builder with configured cost
+         */
+        public Builder maxCost(@Nonnegative long maxCost) {
+            if (maxCost < 0) {
+                throw new IllegalArgumentException("maxCost must not be negative");
+            }
+            this.maxCost = maxCost;
+            return this;
+        }
+
+        public DiffEstimator build() {
+            return new DiffEstimator(this);
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package difflib.myers;
+
+import java.util.Arrays;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+
+import difflib.EditScript;
+
+/**
+ * Holds the arrays of {@link PrimitiveDiff} and of the keyed line diff between calls, so a thread
+ * which runs many small diffs does not allocate them again for each diff. The arrays only grow,
+ * to the size needed by the largest diff so far; once they are large enough, a diff allocates
+ * only its resulting {@link EditScript}. The exception is the trace of the diff path, which grows
+ * quadratically with the edit distance: a trace larger than 256 KB is dropped after the diff
+ * which needed it, so one large diff does not stay in memory for the life of the workspace.
+ *
+ * <p>
+ * A workspace must be confined to one thread at a time, e.g. be a field of a worker or be taken
+ * from a pool for the duration of a diff. It is not thread-safe. Example:
+ * <code>
+ *    DiffWorkspace workspace = new DiffWorkspace();
+ *    for (...) {
+ *        EditScript script = DiffUtils.diffRanges(original, revised, modes, workspace);
+ *    }
+ * </code>
+ * </p>
+ */
+public final class DiffWorkspace {
+    /** The number of ints of the largest trace kept between diffs. */
+    private static final int MAX_RETAINED_TRACE = 1 << 16;
+
+    private int[] v = new int[0];
+    private int[] trace = new int[64];
+    private final EditScript.Builder script = new EditScript.Builder();
+    private int[] originalKeys = new int[0];
+    private int[] revisedKeys = new int[0];
+    private int[] originalIndexes = new int[0];
+    private int[] revisedIndexes = new int[0];
+
+    // open addressing table of the ids, with the used slots to clear only those
+    private Object[] idKeys = new Object[16];
+    private int[] ids = new int[16];
+    private int[] usedSlots = new int[8];
+    private int idCount;
+
+    /**
+     * @return the V vector of the Myers algorithm, of at least the given length, contents undefined
+     */
+    int[] v(int length) {
+        if (v.length < length) {
+            v = new int[length];
+        }
+        return v;
+    }
+
+    /**
+     * @return the trace of the V vectors, contents undefined. Replace it with
+     *         {@link #setTrace(int[])} when it was grown.
+     */
+    int[] trace() {
+        return trace;
+    }
+
+    /**
+     * Keeps the given trace for the next diff, unless it is too large.
+     */
+    void setTrace(int[] trace) {
+        this.trace = trace.length > MAX_RETAINED_TRACE ? new int[64] : trace;
+    }
+
+    /**
+     * @return the builder of the edit script, without deltas
+     */
+    EditScript.Builder script() {
+        return script.clear();
+    }
+
+    /**
+     * @param length the number of elements of the original sequence
+     * @return an array for the keys of the original sequence, of at least the given length,
+     *         contents undefined
+     */
+    @Nonnull
+    public int[] originalKeys(@Nonnegative int length) {
+        if (originalKeys.length < length) {
+            originalKeys = new int[length];
+        }
+        return originalKeys;
+    }
+
+    /**
+     * @param length the number of elements of the revised sequence
+     * @return an array for the keys of the revised sequence, of at least the given length,
+     *         contents undefined
+     */
+    @Nonnull
+    public int[] revisedKeys(@Nonnegative int length) {
+        if (revisedKeys.length < length) {
+            revisedKeys = new int[length];
+        }
+        return revisedKeys;
+    }
+
+    /**
+     * @param length the number of selected elements of the original sequence
+     * @return an array for the positions of selected elements of the original sequence, e.g. of
+     *         the lines which are not blank, of at least the given length, contents undefined
+     */
+    @Nonnull
+    public int[] originalIndexes(@Nonnegative int length) {
+        if (originalIndexes.length < length) {
+            originalIndexes = new int[length];
+        }
+        return originalIndexes;
+    }
+
+    /**
+     * @param length the number of selected elements of the revised sequence
+     * @return an array for the positions of selected elements of the revised sequence, of at
+     *         least the given length, contents undefined
+     */
+    @Nonnull
+    public int[] revisedIndexes(@Nonnegative int length) {
+        if (revisedIndexes.length < length) {
+            revisedIndexes = new int[length];
+        }
+        return revisedIndexes;
+    }
+
+    /**
+     * Assigns dense ids to keys: equal keys get equal ids, and the first new key since
+     * {@link #clearIds()} gets 0. The keys are held until then.
+     *
+     * @param key the key. Must not be {@code null}.
+     * @return the id of the key
+     */
+    @Nonnegative
+    public int idOf(@Nonnull Object key) {
+        if (key == null) {
+            throw new IllegalArgumentException("key must not be null");
+        }
+        int mask = idKeys.length - 1;
+        int slot = mix(key.hashCode()) & mask;
+        while (idKeys[slot] != null) {
+            if (idKeys[slot].equals(key)) {
+                return ids[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        if (idCount == usedSlots.length) {
+            usedSlots = Arrays.copyOf(usedSlots, idCount * 2);
+        }
+        idKeys[slot] = key;
+        ids[slot] = idCount;
+        usedSlots[idCount] = slot;
+        idCount++;
+        if (idCount * 2 > idKeys.length) {
+            rehash();
+        }
+        return idCount - 1;
+    }
+
+    /**
+     * @return the number of keys assigned an id since the last {@link #clearIds()}
+     */
+    @Nonnegative
+    public int getIdCount() {
+        return idCount;
+    }
+
+    /**
+     * Forgets all keys of {@link #idOf(Object)}. Takes time linear in their number, not in the
+     * size of the table.
+     */
+    public void clearIds() {
+        for (int i = 0; i < idCount; i++) {
+            idKeys[usedSlots[i]] = null;
+        }
+        idCount = 0;
+    }
+
+    private void rehash() {
+        Object[] oldKeys = idKeys;
+        int[] oldIds = ids;
+        idKeys = new Object[oldKeys.length * 2];
+        ids = new int[oldKeys.length * 2];
+        int mask = idKeys.length - 1;
+        for (int i = 0; i < idCount; i++) {
+            Object key = oldKeys[usedSlots[i]];
+            int slot = mix(key.hashCode()) & mask;
+            while (idKeys[slot] != null) {
+                slot = (slot + 1) & mask;
+            }
+            idKeys[slot] = key;
+            ids[slot] = oldIds[usedSlots[i]];
+            usedSlots[i] = slot;
+        }
+    }
+
+    private static int mix(int hash) {
+        hash *= 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+}
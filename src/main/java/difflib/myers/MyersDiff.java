@@ -58,11 +58,19 @@
 package difflib.myers;
 
 import difflib.*;
+import difflib.metrics.DiffEvent;
+import difflib.metrics.DiffEvent.Operation;
+import difflib.metrics.DiffMetrics;
+import difflib.metrics.DiffMetricsListener;
 
 import java.lang.reflect.Array;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+
+import javax.annotation.Nonnull;
 
 /**
  * A clean-room implementation of <a href="http://www.cs.arizona.edu/people/gene/">
@@ -71,10 +79,15 @@ import java.util.List;
  * <p> See the paper at <a href="http://www.cs.arizona.edu/people/gene/PAPERS/diff.ps">
  * http://www.cs.arizona.edu/people/gene/PAPERS/diff.ps</a></p>
  *
+ * <p>Instances hold no state besides the equalizer, so an instance can be shared between
+ * threads if its equalizer is thread-safe.</p>
+ *
  * @author <a href="mailto:juanco@suigeneris.org">Juanco Anez</a>
  * @param T The type of the compared elements in the 'lines'.
  */
 public class MyersDiff<T> implements DiffAlgorithm<T> {
+    /** Set while the current thread runs {@link #callInterruptibly}. */
+    private static final ThreadLocal<Boolean> INTERRUPTIBLE = new ThreadLocal<Boolean>();
     
 	/**	Default equalizer. */
 	private final Equalizer<T> DEFAULT_EQUALIZER = new Equalizer<T>() {
@@ -128,14 +141,56 @@ public class MyersDiff<T> implements DiffAlgorithm<T> {
     	}
         PathNode path;
         try {
-            path = buildPath(original, revised);
-            return buildRevision(path, original, revised);
+            DiffMetricsListener listener = DiffMetrics.getListener();
+            if (listener == null) {
+                path = buildPath(original, revised);
+                return buildRevision(path, original, revised);
+            }
+            long start = System.nanoTime();
+            DiffEvent.Builder event = new DiffEvent.Builder(Operation.DIFF, "MyersDiff");
+            path = buildPath(original, revised, event);
+            Patch<T> patch = buildRevision(path, original, revised);
+            listener.onEvent(event.deltas(patch.getDeltas().size()).nanos(System.nanoTime() - start).build());
+            return patch;
         } catch (DifferentiationFailedException e) {
             e.printStackTrace();
         }
         return new Patch<T>();
     }
 
+    /**
+     * Computes the difference between the original and revised sequences like
+     * {@link #diff(List, List)}, but returns only the index ranges of the deltas.
+     * No chunk and no copy of the affected elements is created; use
+     * {@link EditScript#toPatch(List, List)} if they are needed later.
+     *
+     * @param original The original sequence. Must not be {@code null}.
+     * @param revised The revised sequence. Must not be {@code null}.
+     * @return The edit script. Empty if the difference could not be computed.
+     */
+    public EditScript diffRanges(final List<T> original, final List<T> revised) {
+    	if (original == null) {
+    		throw new IllegalArgumentException("original list must not be null");
+    	}
+    	if (revised == null) {
+    		throw new IllegalArgumentException("revised list must not be null");
+    	}
+        try {
+            DiffMetricsListener listener = DiffMetrics.getListener();
+            if (listener == null) {
+                return buildEditScript(buildPath(original, revised));
+            }
+            long start = System.nanoTime();
+            DiffEvent.Builder event = new DiffEvent.Builder(Operation.DIFF, "MyersDiff");
+            EditScript script = buildEditScript(buildPath(original, revised, event));
+            listener.onEvent(event.deltas(script.size()).nanos(System.nanoTime() - start).build());
+            return script;
+        } catch (DifferentiationFailedException e) {
+            e.printStackTrace();
+        }
+        return new EditScript.Builder().build();
+    }
+
     /**
      * Computes the minimum diffpath that expresses de differences
      * between the original and revised sequences, according
@@ -145,9 +200,20 @@ public class MyersDiff<T> implements DiffAlgorithm<T> {
      * @param rev The revised sequence.
      * @return A minimum {@link PathNode Path} accross the differences graph.
      * @throws DifferentiationFailedException if a diff path could not be found.
+     * @throws java.util.concurrent.CancellationException if the thread was interrupted while
+     *             running {@link #callInterruptibly}.
      */
     public PathNode buildPath(final List<T> orig, final List<T> rev)
             throws DifferentiationFailedException {
+        return buildPath(orig, rev, null);
+    }
+
+    /**
+     * Like {@link #buildPath(List, List)}, and records the sizes and the shape of the path in the
+     * given event, if any.
+     */
+    private PathNode buildPath(final List<T> orig, final List<T> rev, DiffEvent.Builder event)
+            throws DifferentiationFailedException {
         if (orig == null)
             throw new IllegalArgumentException("original sequence is null");
         if (rev == null)
@@ -163,8 +229,14 @@ public class MyersDiff<T> implements DiffAlgorithm<T> {
         final PathNode diagonal[] = new PathNode[size];
 
         diagonal[middle + 1] = new Snake(0, -1, null);
+        // counted for the metrics only
+        long diagonals = 0;
+        long snakeLength = 0;
+        long nodes = 1;
         for (int d = 0; d < MAX; d++) {
+            checkInterrupted();
             for (int k = -d; k <= d; k += 2) {
+                diagonals++;
                 final int kmiddle = middle + k;
                 final int kplus = kmiddle + 1;
                 final int kminus = kmiddle - 1;
@@ -192,12 +264,19 @@ public class MyersDiff<T> implements DiffAlgorithm<T> {
                     i++;
                     j++;
                 }
-                if (i > node.i)
+                nodes++;
+                if (i > node.i) {
+                    snakeLength += i - node.i;
+                    nodes++;
                     node = new Snake(i, j, node);
+                }
 
                 diagonal[kmiddle] = node;
 
                 if (i >= N && j >= M) {
+                    if (event != null) {
+                        event.sizes(N, M).path(d, diagonals, snakeLength, nodes);
+                    }
                     return diagonal[kmiddle];
                 }
             }
@@ -208,6 +287,44 @@ public class MyersDiff<T> implements DiffAlgorithm<T> {
         throw new DifferentiationFailedException("could not find a diff path");
     }
 
+    /**
+     * Runs the given task, e.g. a diff, so that the diffs of this class and of
+     * {@link PrimitiveDiff} on the current thread end with a {@link CancellationException} when
+     * the thread is interrupted. Other diffs run to completion even if the interrupt flag is set.
+     * {@link difflib.DiffUtils#diffAsync} runs its diffs this way, so cancelling the future stops
+     * them.
+     *
+     * @param task the task to run
+     * @return the result of the task
+     * @throws Exception if the task throws it
+     */
+    public static <V> V callInterruptibly(@Nonnull Callable<V> task) throws Exception {
+        if (task == null) {
+            throw new IllegalArgumentException("task must not be null");
+        }
+        Boolean previous = INTERRUPTIBLE.get();
+        INTERRUPTIBLE.set(Boolean.TRUE);
+        try {
+            return task.call();
+        } finally {
+            if (previous == null) {
+                INTERRUPTIBLE.remove();
+            }
+        }
+    }
+
+    /**
+     * Ends a diff run by {@link #callInterruptibly} whose thread was interrupted, e.g. because its
+     * future was cancelled. The interrupt flag is kept.
+     *
+     * @throws CancellationException if the current thread is interrupted
+     */
+    static void checkInterrupted() {
+        if (Thread.currentThread().isInterrupted() && INTERRUPTIBLE.get() != null) {
+            throw new CancellationException("diff interrupted");
+        }
+    }
+
     private boolean equals(T orig, T rev) {
         return equalizer.equals(orig, rev);
     }
@@ -261,6 +378,35 @@ public class MyersDiff<T> implements DiffAlgorithm<T> {
         return patch;
     }
 
+    /**
+     * Constructs an {@link EditScript} from a difference path. It describes the
+     * same deltas as {@link #buildRevision(PathNode, List, List)}.
+     *
+     * @param path The path.
+     * @return An {@link EditScript} corresponding to the path.
+     */
+    public EditScript buildEditScript(PathNode path) {
+        if (path == null)
+            throw new IllegalArgumentException("path is null");
+
+        EditScript.Builder script = new EditScript.Builder();
+        if (path.isSnake())
+            path = path.prev;
+        while (path != null && path.prev != null && path.prev.j >= 0) {
+            if (path.isSnake())
+                throw new IllegalStateException("bad diffpath: found snake when looking for diff");
+            int i = path.i;
+            int j = path.j;
+
+            path = path.prev;
+            script.add(path.i, i, path.j, j);
+
+            if (path.isSnake())
+                path = path.prev;
+        }
+        return script.build();
+    }
+
     /**
      * Creates a new list containing the elements returned by {@link List#subList(int, int)}.
      * @param original The original sequence. Must not be {@code null}.
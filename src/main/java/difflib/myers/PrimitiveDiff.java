@@ -0,0 +1,443 @@
+package difflib.myers;
+
+import java.util.Arrays;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import difflib.EditScript;
+import difflib.metrics.DiffEvent;
+import difflib.metrics.DiffEvent.Operation;
+import difflib.metrics.DiffMetrics;
+import difflib.metrics.DiffMetricsListener;
+
+/**
+ * Implements the Myers differencing algorithm for arrays of primitives, without boxing and without
+ * an {@link Equalizer}.
+ *
+ * <p>
+ * All entry points map their input to int keys and run the same loop over int arrays: chars and
+ * bytes are widened, longs are replaced by dense ids. The common prefix and suffix are stripped
+ * before the diff path is searched. The path is recorded in a trace of quadratic size in the edit
+ * distance D, up to D = 512; beyond, the diff continues with the linear space variant of the
+ * algorithm, which takes about twice as long. The result is an {@link EditScript}, which can be
+ * turned into a {@link difflib.Patch} when the elements are needed, e.g.
+ * <code>
+ *    PrimitiveDiff.diff(a, b).toPatch(Ints.asList(a), Ints.asList(b));
+ * </code>
+ * A thread which runs many diffs can pass a {@link DiffWorkspace}, so the arrays of the diff are
+ * reused.
+ * </p>
+ */
+public final class PrimitiveDiff {
+    /**
+     * Above this edit distance the diff continues in linear space, so the trace, which holds
+     * (D + 1)^2 ints, stays below about 1 MB.
+     */
+    static final int TRACE_LIMIT = 512;
+
+    private PrimitiveDiff() {
+    }
+
+    /**
+     * Computes the difference between the given arrays.
+     *
+     * @param original The original sequence. Must not be {@code null}.
+     * @param revised The revised sequence. Must not be {@code null}.
+     * @return The edit script turning the original into the revised sequence.
+     */
+    @Nonnull
+    public static EditScript diff(@Nonnull int[] original, @Nonnull int[] revised) {
+        checkNotNull(original, revised);
+        return diff(original, 0, original.length, revised, 0, revised.length, null);
+    }
+
+    /**
+     * Computes the difference between the given arrays.
+     *
+     * @param original The original sequence. Must not be {@code null}.
+     * @param revised The revised sequence. Must not be {@code null}.
+     * @return The edit script turning the original into the revised sequence.
+     */
+    @Nonnull
+    public static EditScript diff(@Nonnull long[] original, @Nonnull long[] revised) {
+        checkNotNull(original, revised);
+        LongIds ids = new LongIds(original.length + revised.length);
+        return diff(ids.toIds(original), ids.toIds(revised));
+    }
+
+    /**
+     * Computes the difference between the given arrays.
+     *
+     * @param original The original sequence. Must not be {@code null}.
+     * @param revised The revised sequence. Must not be {@code null}.
+     * @return The edit script turning the original into the revised sequence.
+     */
+    @Nonnull
+    public static EditScript diff(@Nonnull char[] original, @Nonnull char[] revised) {
+        checkNotNull(original, revised);
+        int[] a = new int[original.length];
+        for (int i = 0; i < a.length; i++) {
+            a[i] = original[i];
+        }
+        int[] b = new int[revised.length];
+        for (int i = 0; i < b.length; i++) {
+            b[i] = revised[i];
+        }
+        return diff(a, b);
+    }
+
+    /**
+     * Computes the difference between the chars of the given sequences.
+     *
+     * @param original The original sequence. Must not be {@code null}.
+     * @param revised The revised sequence. Must not be {@code null}.
+     * @return The edit script turning the original into the revised sequence.
+     */
+    @Nonnull
+    public static EditScript diff(@Nonnull CharSequence original, @Nonnull CharSequence revised) {
+        checkNotNull(original, revised);
+        int[] a = new int[original.length()];
+        for (int i = 0; i < a.length; i++) {
+            a[i] = original.charAt(i);
+        }
+        int[] b = new int[revised.length()];
+        for (int i = 0; i < b.length; i++) {
+            b[i] = revised.charAt(i);
+        }
+        return diff(a, b);
+    }
+
+    /**
+     * Computes the difference between the given arrays.
+     *
+     * @param original The original sequence. Must not be {@code null}.
+     * @param revised The revised sequence. Must not be {@code null}.
+     * @return The edit script turning the original into the revised sequence.
+     */
+    @Nonnull
+    public static EditScript diff(@Nonnull byte[] original, @Nonnull byte[] revised) {
+        checkNotNull(original, revised);
+        int[] a = new int[original.length];
+        for (int i = 0; i < a.length; i++) {
+            a[i] = original[i];
+        }
+        int[] b = new int[revised.length];
+        for (int i = 0; i < b.length; i++) {
+            b[i] = revised[i];
+        }
+        return diff(a, b);
+    }
+
+    /**
+     * Like {@link #diff(int[], int[])}, but reports nothing to the {@link DiffMetrics} listener.
+     * Meant for diffs which are part of another operation, e.g. the inline diffs of the rows of a
+     * patch, so they do not show up as diffs of their own.
+     *
+     * @param original The original sequence. Must not be {@code null}.
+     * @param revised The revised sequence. Must not be {@code null}.
+     * @return The edit script turning the original into the revised sequence.
+     */
+    @Nonnull
+    public static EditScript diffUnreported(@Nonnull int[] original, @Nonnull int[] revised) {
+        checkNotNull(original, revised);
+        return compute(original, 0, original.length, revised, 0, revised.length, null, null);
+    }
+
+    private static void checkNotNull(Object original, Object revised) {
+        if (original == null) {
+            throw new IllegalArgumentException("original must not be null");
+        }
+        if (revised == null) {
+            throw new IllegalArgumentException("revised must not be null");
+        }
+    }
+
+    /**
+     * Computes the difference between the given ranges of the key arrays. The positions in the
+     * script are relative to the arrays, not to the ranges.
+     *
+     * @param a the keys of the original sequence. Must not be {@code null}.
+     * @param aFrom the start of the original range
+     * @param aTo the end (exclusive) of the original range
+     * @param b the keys of the revised sequence. Must not be {@code null}.
+     * @param bFrom the start of the revised range
+     * @param bTo the end (exclusive) of the revised range
+     * @param workspace the arrays to reuse, or null to allocate new ones
+     * @return The edit script turning the original into the revised range.
+     */
+    @Nonnull
+    public static EditScript diff(@Nonnull int[] a, int aFrom, int aTo, @Nonnull int[] b, int bFrom, int bTo,
+            @Nullable DiffWorkspace workspace) {
+        checkNotNull(a, b);
+        if (aFrom < 0 || aFrom > aTo || aTo > a.length) {
+            throw new IndexOutOfBoundsException("original range: " + aFrom + "-" + aTo + ", length: " + a.length);
+        }
+        if (bFrom < 0 || bFrom > bTo || bTo > b.length) {
+            throw new IndexOutOfBoundsException("revised range: " + bFrom + "-" + bTo + ", length: " + b.length);
+        }
+        DiffMetricsListener listener = DiffMetrics.getListener();
+        if (listener == null) {
+            return compute(a, aFrom, aTo, b, bFrom, bTo, null, workspace);
+        }
+        long start = System.nanoTime();
+        DiffEvent.Builder event = new DiffEvent.Builder(Operation.DIFF, "PrimitiveDiff")
+                .sizes(aTo - aFrom, bTo - bFrom);
+        EditScript script = compute(a, aFrom, aTo, b, bFrom, bTo, event, workspace);
+        listener.onEvent(event.deltas(script.size()).nanos(System.nanoTime() - start).build());
+        return script;
+    }
+
+    /**
+     * Like {@link #diff(int[], int, int, int[], int, int, DiffWorkspace)}, but reports nothing to
+     * the {@link DiffMetrics} listener itself. The statistics of the path are added to the event,
+     * if given.
+     */
+    static EditScript compute(int[] a, int aFrom, int aTo, int[] b, int bFrom, int bTo,
+            @Nullable DiffEvent.Builder event, @Nullable DiffWorkspace workspace) {
+        int trimmed = 0;
+        // strip the common prefix and suffix, they never take part in a delta
+        while (aFrom < aTo && bFrom < bTo && a[aFrom] == b[bFrom]) {
+            aFrom++;
+            bFrom++;
+            trimmed++;
+        }
+        while (aFrom < aTo && bFrom < bTo && a[aTo - 1] == b[bTo - 1]) {
+            aTo--;
+            bTo--;
+            trimmed++;
+        }
+        EditScript.Builder script = workspace == null ? new EditScript.Builder() : workspace.script();
+        if (aFrom == aTo || bFrom == bTo) {
+            if (event != null) {
+                event.path(aTo - aFrom + bTo - bFrom, 0, trimmed, 0);
+            }
+            return script.add(aFrom, aTo, bFrom, bTo).build();
+        }
+
+        final int n = aTo - aFrom;
+        final int m = bTo - bFrom;
+        final int max = n + m;
+        final int offset = max + 1;
+        final int[] v = workspace == null ? new int[2 * max + 3] : workspace.v(2 * max + 3);
+        // the trace holds v[-d..d] after each step d, starting at index d * d
+        int[] trace = workspace == null ? new int[64] : workspace.trace();
+        v[offset + 1] = 0;
+        // counted for the metrics only
+        long diagonals = 0;
+        long snakeLength = trimmed;
+        int d = 0;
+        search: for (; d <= max; d++) {
+            MyersDiff.checkInterrupted();
+            if (d > TRACE_LIMIT) {
+                // the trace would grow quadratically, diff in linear space instead
+                long[] stats = { diagonals, snakeLength };
+                int[] vs = workspace == null ? new int[2 * vectorLength(n, m)] : workspace.v(2 * vectorLength(n, m));
+                int editDistance = linearSpace(a, aFrom, aTo, b, bFrom, bTo, vs, vectorLength(n, m), script, stats);
+                if (event != null) {
+                    event.path(editDistance, stats[0], stats[1], (long) d * d);
+                }
+                if (workspace != null) {
+                    workspace.setTrace(trace);
+                }
+                return script.build();
+            }
+            for (int k = -d; k <= d; k += 2) {
+                diagonals++;
+                int x;
+                if (k == -d || (k != d && v[offset + k - 1] < v[offset + k + 1])) {
+                    x = v[offset + k + 1];
+                } else {
+                    x = v[offset + k - 1] + 1;
+                }
+                int y = x - k;
+                int snakeStart = x;
+                while (x < n && y < m && a[aFrom + x] == b[bFrom + y]) {
+                    x++;
+                    y++;
+                }
+                snakeLength += x - snakeStart;
+                v[offset + k] = x;
+                if (x >= n && y >= m) {
+                    trace = record(trace, v, offset, d);
+                    break search;
+                }
+            }
+            trace = record(trace, v, offset, d);
+        }
+
+        if (event != null) {
+            event.path(d, diagonals, snakeLength, (long) (d + 1) * (d + 1));
+        }
+        if (workspace != null) {
+            workspace.setTrace(trace);
+        }
+
+        // walk the path backwards, from (n, m) to (0, 0)
+        int x = n;
+        int y = m;
+        for (; d > 0; d--) {
+            int k = x - y;
+            int prev = (d - 1) * (d - 1) + (d - 1);
+            int prevK;
+            if (k == -d || (k != d && trace[prev + k - 1] < trace[prev + k + 1])) {
+                prevK = k + 1;
+            } else {
+                prevK = k - 1;
+            }
+            int prevX = trace[prev + prevK];
+            int prevY = prevX - prevK;
+            // skip the snake, then record the single insertion or deletion before it
+            if (prevK == k + 1) {
+                script.add(aFrom + prevX, aFrom + prevX, bFrom + prevY, bFrom + prevY + 1);
+            } else {
+                script.add(aFrom + prevX, aFrom + prevX + 1, bFrom + prevY, bFrom + prevY);
+            }
+            x = prevX;
+            y = prevY;
+        }
+        return script.build();
+    }
+
+    /**
+     * @return the length of each of the two V vectors of {@link #linearSpace}
+     */
+    private static int vectorLength(int n, int m) {
+        return 2 * ((n + m + 1) / 2) + 3;
+    }
+
+    /**
+     * Diffs the given ranges in linear space, by the divide and conquer variant of the Myers
+     * paper: the middle snake of an optimal path splits the ranges, and both halves are diffed
+     * recursively. Adds the deltas to the script in ascending order.
+     *
+     * @param vs the forward V vector at [0, length), the reverse one at [length, 2 * length)
+     * @param stats the number of diagonals and the snake length, incremented
+     * @return the edit distance
+     */
+    private static int linearSpace(int[] a, int aFrom, int aTo, int[] b, int bFrom, int bTo, int[] vs, int length,
+            EditScript.Builder script, long[] stats) {
+        while (aFrom < aTo && bFrom < bTo && a[aFrom] == b[bFrom]) {
+            aFrom++;
+            bFrom++;
+        }
+        while (aFrom < aTo && bFrom < bTo && a[aTo - 1] == b[bTo - 1]) {
+            aTo--;
+            bTo--;
+        }
+        if (aFrom == aTo || bFrom == bTo) {
+            script.add(aFrom, aTo, bFrom, bTo);
+            return aTo - aFrom + bTo - bFrom;
+        }
+        // both ranges are non-empty and differ at both ends, so D >= 2 and both halves are smaller
+        final int n = aTo - aFrom;
+        final int m = bTo - bFrom;
+        final int delta = n - m;
+        final boolean odd = (delta & 1) != 0;
+        final int offset = length / 2;
+        final int reverse = length + offset;
+        vs[offset + 1] = 0;
+        vs[reverse + 1] = 0;
+        for (int d = 0; d <= (n + m + 1) / 2; d++) {
+            MyersDiff.checkInterrupted();
+            for (int k = -d; k <= d; k += 2) {
+                stats[0]++;
+                int x;
+                if (k == -d || (k != d && vs[offset + k - 1] < vs[offset + k + 1])) {
+                    x = vs[offset + k + 1];
+                } else {
+                    x = vs[offset + k - 1] + 1;
+                }
+                int y = x - k;
+                int startX = x;
+                while (x < n && y < m && a[aFrom + x] == b[bFrom + y]) {
+                    x++;
+                    y++;
+                }
+                stats[1] += x - startX;
+                vs[offset + k] = x;
+                // the reverse diagonal delta - k was searched up to d - 1
+                if (odd && delta - k >= -(d - 1) && delta - k <= d - 1 && x + vs[reverse + delta - k] >= n) {
+                    return linearSpace(a, aFrom, aFrom + startX, b, bFrom, bFrom + startX - k, vs, length, script, stats)
+                            + linearSpace(a, aFrom + x, aTo, b, bFrom + y, bTo, vs, length, script, stats);
+                }
+            }
+            for (int k = -d; k <= d; k += 2) {
+                stats[0]++;
+                // x and y count from the ends of the ranges
+                int x;
+                if (k == -d || (k != d && vs[reverse + k - 1] < vs[reverse + k + 1])) {
+                    x = vs[reverse + k + 1];
+                } else {
+                    x = vs[reverse + k - 1] + 1;
+                }
+                int y = x - k;
+                int startX = x;
+                while (x < n && y < m && a[aTo - 1 - x] == b[bTo - 1 - y]) {
+                    x++;
+                    y++;
+                }
+                stats[1] += x - startX;
+                vs[reverse + k] = x;
+                if (!odd && delta - k >= -d && delta - k <= d && x + vs[offset + delta - k] >= n) {
+                    return linearSpace(a, aFrom, aTo - x, b, bFrom, bTo - y, vs, length, script, stats)
+                            + linearSpace(a, aTo - startX, aTo, b, bTo - (startX - k), bTo, vs, length, script, stats);
+                }
+            }
+        }
+        throw new IllegalStateException("no middle snake found");
+    }
+
+    /**
+     * Appends v[-d..d] to the trace, growing it if needed.
+     */
+    private static int[] record(int[] trace, int[] v, int offset, int d) {
+        int start = d * d;
+        int length = 2 * d + 1;
+        if (start + length > trace.length) {
+            // at most the size needed at d = TRACE_LIMIT
+            int size = Math.min(Math.max(trace.length * 2, start + length), (TRACE_LIMIT + 1) * (TRACE_LIMIT + 1));
+            trace = Arrays.copyOf(trace, size);
+        }
+        System.arraycopy(v, offset - d, trace, start, length);
+        return trace;
+    }
+
+    /**
+     * Assigns dense int ids to long values, so equal values get equal ids.
+     */
+    private static final class LongIds {
+        private long[] keys;
+        private int[] ids;
+        private int size;
+
+        LongIds(int expectedSize) {
+            int capacity = Integer.highestOneBit(Math.max(expectedSize, 4) * 2 - 1) * 2;
+            keys = new long[capacity];
+            ids = new int[capacity];
+        }
+
+        int[] toIds(long[] values) {
+            int[] result = new int[values.length];
+            for (int i = 0; i < values.length; i++) {
+                result[i] = idOf(values[i]);
+            }
+            return result;
+        }
+
+        private int idOf(long value) {
+            int mask = keys.length - 1;
+            long h = value * 0x9E3779B97F4A7C15L;
+            int slot = (int) (h ^ (h >>> 32)) & mask;
+            while (ids[slot] != 0) {
+                if (keys[slot] == value) {
+                    return ids[slot];
+                }
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = value;
+            ids[slot] = ++size;
+            return size;
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package difflib.render;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.google.common.base.Function;
+
+import difflib.Delta;
+import difflib.DiffRow.Tag;
+import difflib.EditScript;
+import difflib.InlineDiff;
+import difflib.InlineTokenizers;
+import difflib.Patch;
+
+/**
+ * Base class of renderers which write a patch as sequence of rows, like the
+ * {@link difflib.DiffRow DiffRows} of {@link difflib.DiffRowGenerator}.
+ *
+ * <p>
+ * The patch is walked once and not modified. Unchanged lines outside the context of the changes
+ * are collapsed into one skip row. The inline diffs of a changed block are passed as marks, i.e.
+ * char offsets into the unmodified lines, so each subclass does its own escaping and markup.
+ * </p>
+ */
+public abstract class AbstractDiffRenderer implements DiffRenderer {
+    /** The marks of a line without inline diffs. */
+    protected static final int[] NO_MARKS = InlineDiff.NO_MARKS;
+
+    private final int contextSize;
+    private final int maxInlineDeltas;
+    private final int maxInlineLength;
+    private final Function<String, List<String>> inlineTokenizer;
+
+    /**
+     * Constructs a renderer which computes inline diffs over chars, for changed blocks of up to
+     * {@link InlineDiff#DEFAULT_MAX_LENGTH} characters.
+     *
+     * @param contextSize the number of unchanged lines shown around each change. If negative, all
+     *            unchanged lines are shown.
+     * @param maxInlineDeltas the maximum number of inline deltas marked in a changed block. If
+     *            there are more, the block is shown without marks. 0 disables inline diffs.
+     */
+    protected AbstractDiffRenderer(int contextSize, int maxInlineDeltas) {
+        this(contextSize, maxInlineDeltas, InlineDiff.DEFAULT_MAX_LENGTH, InlineTokenizers.CHARACTERS);
+    }
+
+    /**
+     * @param contextSize the number of unchanged lines shown around each change. If negative, all
+     *            unchanged lines are shown.
+     * @param maxInlineDeltas the maximum number of inline deltas marked in a changed block. If
+     *            there are more, the block is shown without marks. 0 disables inline diffs.
+     * @param maxInlineLength the maximum length of a changed block for which inline diffs are
+     *            computed, counting the characters of both sides. A longer block is marked as
+     *            changed as a whole, like in {@link difflib.DiffRowGenerator}.
+     * @param inlineTokenizer defines the granularity of the inline diffs, e.g.
+     *            {@link InlineTokenizers#WORDS}
+     */
+    protected AbstractDiffRenderer(int contextSize, int maxInlineDeltas, int maxInlineLength,
+            @Nonnull Function<String, List<String>> inlineTokenizer) {
+        if (maxInlineLength < 0) {
+            throw new IllegalArgumentException("maxInlineLength must not be negative");
+        }
+        if (inlineTokenizer == null) {
+            throw new IllegalArgumentException("inlineTokenizer must not be null");
+        }
+        this.contextSize = contextSize;
+        this.maxInlineDeltas = maxInlineDeltas;
+        this.maxInlineLength = maxInlineLength;
+        this.inlineTokenizer = inlineTokenizer;
+    }
+
+    @Override
+    public void render(@Nonnull List<String> original, @Nonnull List<String> revised,
+            @Nonnull Patch<String> patch, @Nonnull Appendable out) throws IOException {
+        begin(out);
+        List<Delta<String>> deltas = patch.getDeltas();
+        int endPos = 0;
+        // the run before the first delta has no head context, even if a delta ends at 0
+        boolean started = false;
+        for (Delta<String> delta : deltas) {
+            int position = delta.getOriginal().getPosition();
+            renderEqual(original, endPos, position, !started, false, out);
+            renderDelta(delta, out);
+            endPos = position + delta.getOriginal().size();
+            started = true;
+        }
+        renderEqual(original, endPos, original.size(), !started, true, out);
+        end(out);
+    }
+
+    private void renderEqual(List<String> original, int from, int to, boolean leading,
+            boolean trailing, Appendable out) throws IOException {
+        if (contextSize < 0) {
+            for (int i = from; i < to; i++) {
+                writeRow(Tag.EQUAL, original.get(i), NO_MARKS, original.get(i), NO_MARKS, out);
+            }
+            return;
+        }
+        int headEnd = leading ? from : Math.min(to, from + contextSize);
+        int tailStart = trailing ? to : Math.max(headEnd, to - contextSize);
+        for (int i = from; i < headEnd; i++) {
+            writeRow(Tag.EQUAL, original.get(i), NO_MARKS, original.get(i), NO_MARKS, out);
+        }
+        if (tailStart > headEnd) {
+            writeSkip(tailStart - headEnd, out);
+        }
+        for (int i = tailStart; i < to; i++) {
+            writeRow(Tag.EQUAL, original.get(i), NO_MARKS, original.get(i), NO_MARKS, out);
+        }
+    }
+
+    private void renderDelta(Delta<String> delta, Appendable out) throws IOException {
+        List<String> origLines = delta.getOriginal().getLines();
+        List<String> revLines = delta.getRevised().getLines();
+        switch (delta.getType()) {
+        case INSERT:
+            for (String line : revLines) {
+                writeRow(Tag.INSERT, null, NO_MARKS, line, NO_MARKS, out);
+            }
+            break;
+        case DELETE:
+            for (String line : origLines) {
+                writeRow(Tag.DELETE, line, NO_MARKS, null, NO_MARKS, out);
+            }
+            break;
+        default:
+            List<int[]> origMarks = Collections.nCopies(origLines.size(), NO_MARKS);
+            List<int[]> revMarks = Collections.nCopies(revLines.size(), NO_MARKS);
+            if (maxInlineDeltas > 0) {
+                EditScript inline = InlineDiff.diff(origLines, revLines, inlineTokenizer, maxInlineLength);
+                if (inline.size() <= maxInlineDeltas) {
+                    origMarks = InlineDiff.lineMarks(origLines, inline, true);
+                    revMarks = InlineDiff.lineMarks(revLines, inline, false);
+                }
+            }
+            writeChange(origLines, origMarks, revLines, revMarks, out);
+        }
+    }
+
+    /**
+     * Called before the first row. Does nothing by default.
+     */
+    protected void begin(@Nonnull Appendable out) throws IOException {
+    }
+
+    /**
+     * Called after the last row. Does nothing by default.
+     */
+    protected void end(@Nonnull Appendable out) throws IOException {
+    }
+
+    /**
+     * Writes one row.
+     *
+     * @param tag the kind of the row, never {@link Tag#SKIP}
+     * @param oldLine the line of the original text, {@code null} for an {@link Tag#INSERT} row and
+     *            for the missing lines of a changed block
+     * @param oldMarks the inline diffs of the old line as pairs of start and end offset
+     * @param newLine the line of the revised text, {@code null} for a {@link Tag#DELETE} row and
+     *            for the missing lines of a changed block
+     * @param newMarks the inline diffs of the new line as pairs of start and end offset
+     * @param out the output
+     */
+    protected abstract void writeRow(@Nonnull Tag tag, @Nullable String oldLine, @Nonnull int[] oldMarks,
+            @Nullable String newLine, @Nonnull int[] newMarks, @Nonnull Appendable out) throws IOException;
+
+    /**
+     * Writes the row which stands for the given number of unchanged lines.
+     */
+    protected abstract void writeSkip(int skippedLines, @Nonnull Appendable out) throws IOException;
+
+    /**
+     * Writes a changed block. By default the old and new lines are paired into
+     * {@link Tag#CHANGE} rows, like {@link difflib.DiffRowGenerator} does.
+     */
+    protected void writeChange(@Nonnull List<String> oldLines, @Nonnull List<int[]> oldMarks,
+            @Nonnull List<String> newLines, @Nonnull List<int[]> newMarks, @Nonnull Appendable out)
+            throws IOException {
+        for (int i = 0; i < Math.max(oldLines.size(), newLines.size()); i++) {
+            boolean hasOld = i < oldLines.size();
+            boolean hasNew = i < newLines.size();
+            writeRow(Tag.CHANGE, hasOld ? oldLines.get(i) : null, hasOld ? oldMarks.get(i) : NO_MARKS,
+                    hasNew ? newLines.get(i) : null, hasNew ? newMarks.get(i) : NO_MARKS, out);
+        }
+    }
+
+    /**
+     * Writes the given line with {@link #writeText} for its text and {@link #startMark} and
+     * {@link #endMark} around its marks.
+     */
+    protected void writeMarkedLine(@Nonnull String line, @Nonnull int[] marks, boolean original,
+            @Nonnull Appendable out) throws IOException {
+        int pos = 0;
+        for (int i = 0; i < marks.length; i += 2) {
+            writeText(line, pos, marks[i], out);
+            startMark(original, out);
+            writeText(line, marks[i], marks[i + 1], out);
+            endMark(original, out);
+            pos = marks[i + 1];
+        }
+        writeText(line, pos, line.length(), out);
+    }
+
+    /**
+     * Writes the given part of a line. Appends it unchanged by default.
+     */
+    protected void writeText(@Nonnull String line, int start, int end, @Nonnull Appendable out)
+            throws IOException {
+        out.append(line, start, end);
+    }
+
+    /**
+     * Writes the start of an inline diff. Does nothing by default.
+     */
+    protected void startMark(boolean original, @Nonnull Appendable out) throws IOException {
+    }
+
+    /**
+     * Writes the end of an inline diff. Does nothing by default.
+     */
+    protected void endMark(boolean original, @Nonnull Appendable out) throws IOException {
+    }
+}
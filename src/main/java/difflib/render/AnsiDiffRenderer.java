@@ -0,0 +1,116 @@
+package difflib.render;
+
+import java.io.IOException;
+import java.util.List;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.google.common.base.Function;
+
+import difflib.DiffRow.Tag;
+
+/**
+ * Writes the patch for a terminal with ANSI escape sequences, in the style of
+ * <code>git diff --color</code>: removed lines in red with a '-' prefix, added lines in green with
+ * a '+' prefix and the inline diffs in reverse video. A changed block is written as all of its old
+ * lines followed by all of its new lines. Control characters of the text are replaced by '?', so
+ * they cannot change the state of the terminal.
+ */
+public class AnsiDiffRenderer extends AbstractDiffRenderer {
+    private static final String LINE_SEPARATOR = "\n";
+    private static final String RED = "\u001B[31m";
+    private static final String GREEN = "\u001B[32m";
+    private static final String CYAN = "\u001B[36m";
+    private static final String RESET = "\u001B[0m";
+    private static final String REVERSE = "\u001B[7m";
+    private static final String REVERSE_OFF = "\u001B[27m";
+
+    /**
+     * Constructs a renderer which shows 3 unchanged lines around each change and up to 2 inline
+     * diffs per changed block.
+     */
+    public AnsiDiffRenderer() {
+        this(3, 2);
+    }
+
+    /**
+     * @see AbstractDiffRenderer#AbstractDiffRenderer(int, int)
+     */
+    public AnsiDiffRenderer(int contextSize, int maxInlineDeltas) {
+        super(contextSize, maxInlineDeltas);
+    }
+
+    /**
+     * @see AbstractDiffRenderer#AbstractDiffRenderer(int, int, int, Function)
+     */
+    public AnsiDiffRenderer(int contextSize, int maxInlineDeltas, int maxInlineLength,
+            @Nonnull Function<String, List<String>> inlineTokenizer) {
+        super(contextSize, maxInlineDeltas, maxInlineLength, inlineTokenizer);
+    }
+
+    @Override
+    protected void writeRow(@Nonnull Tag tag, @Nullable String oldLine, @Nonnull int[] oldMarks,
+            @Nullable String newLine, @Nonnull int[] newMarks, @Nonnull Appendable out) throws IOException {
+        if (tag == Tag.EQUAL) {
+            out.append(' ');
+            writeText(oldLine, 0, oldLine.length(), out);
+            out.append(LINE_SEPARATOR);
+            return;
+        }
+        if (oldLine != null) {
+            writeLine(oldLine, oldMarks, true, out);
+        }
+        if (newLine != null) {
+            writeLine(newLine, newMarks, false, out);
+        }
+    }
+
+    @Override
+    protected void writeChange(@Nonnull List<String> oldLines, @Nonnull List<int[]> oldMarks,
+            @Nonnull List<String> newLines, @Nonnull List<int[]> newMarks, @Nonnull Appendable out)
+            throws IOException {
+        for (int i = 0; i < oldLines.size(); i++) {
+            writeLine(oldLines.get(i), oldMarks.get(i), true, out);
+        }
+        for (int i = 0; i < newLines.size(); i++) {
+            writeLine(newLines.get(i), newMarks.get(i), false, out);
+        }
+    }
+
+    private void writeLine(String line, int[] marks, boolean original, Appendable out) throws IOException {
+        out.append(original ? RED + "-" : GREEN + "+");
+        writeMarkedLine(line, marks, original, out);
+        out.append(RESET).append(LINE_SEPARATOR);
+    }
+
+    @Override
+    protected void writeSkip(int skippedLines, @Nonnull Appendable out) throws IOException {
+        out.append(CYAN).append("@@ ").append(Integer.toString(skippedLines))
+                .append(skippedLines == 1 ? " unchanged line @@" : " unchanged lines @@").append(RESET).append(LINE_SEPARATOR);
+    }
+
+    @Override
+    protected void writeText(@Nonnull String line, int start, int end, @Nonnull Appendable out)
+            throws IOException {
+        int pos = start;
+        for (int i = start; i < end; i++) {
+            char c = line.charAt(i);
+            if (Character.isISOControl(c) && c != '\t') {
+                out.append(line, pos, i).append('?');
+                pos = i + 1;
+            }
+        }
+        out.append(line, pos, end);
+    }
+
+    @Override
+    protected void startMark(boolean original, @Nonnull Appendable out) throws IOException {
+        out.append(REVERSE);
+    }
+
+    @Override
+    protected void endMark(boolean original, @Nonnull Appendable out) throws IOException {
+        out.append(REVERSE_OFF);
+    }
+}
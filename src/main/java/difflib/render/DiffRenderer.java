@@ -0,0 +1,28 @@
+package difflib.render;
+
+import java.io.IOException;
+import java.util.List;
+
+import javax.annotation.Nonnull;
+
+import difflib.Patch;
+
+/**
+ * Writes a patch between two texts in some output format, e.g. as HTML table or colored terminal
+ * output. Unlike {@link difflib.DiffRowGenerator} a renderer writes its output directly and does
+ * not create intermediate rows. The renderers of this package keep no state between calls and can
+ * be shared between threads.
+ */
+public interface DiffRenderer {
+    /**
+     * Writes the given patch.
+     *
+     * @param original the original text
+     * @param revised the revised text
+     * @param patch the patch between both texts
+     * @param out the output to write to
+     * @throws IOException if the output cannot be written
+     */
+    void render(@Nonnull List<String> original, @Nonnull List<String> revised,
+            @Nonnull Patch<String> patch, @Nonnull Appendable out) throws IOException;
+}
@@ -0,0 +1,93 @@
+package difflib.render;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Locale;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.google.common.base.Function;
+
+import difflib.DiffRow.Tag;
+import difflib.StringUtills;
+
+/**
+ * Writes a side-by-side HTML table. Each row is a <code>tr</code> with the lower case name of its
+ * {@link Tag} as css class and a <code>td</code> per side, the inline diffs are
+ * <code>span</code>s with the css classes <code>editOldInline</code> and
+ * <code>editNewInline</code>, like the defaults of {@link difflib.DiffRowGenerator}. The text is
+ * HTML escaped, wrapping is left to the style sheet.
+ */
+public class HtmlDiffRenderer extends AbstractDiffRenderer {
+    private static final String LINE_SEPARATOR = "\n";
+
+    /**
+     * Constructs a renderer which shows all unchanged lines and up to 2 inline diffs per changed
+     * block.
+     */
+    public HtmlDiffRenderer() {
+        this(-1, 2);
+    }
+
+    /**
+     * @see AbstractDiffRenderer#AbstractDiffRenderer(int, int)
+     */
+    public HtmlDiffRenderer(int contextSize, int maxInlineDeltas) {
+        super(contextSize, maxInlineDeltas);
+    }
+
+    /**
+     * @see AbstractDiffRenderer#AbstractDiffRenderer(int, int, int, Function)
+     */
+    public HtmlDiffRenderer(int contextSize, int maxInlineDeltas, int maxInlineLength,
+            @Nonnull Function<String, List<String>> inlineTokenizer) {
+        super(contextSize, maxInlineDeltas, maxInlineLength, inlineTokenizer);
+    }
+
+    @Override
+    protected void begin(@Nonnull Appendable out) throws IOException {
+        out.append("<table class=\"diff\">").append(LINE_SEPARATOR);
+    }
+
+    @Override
+    protected void end(@Nonnull Appendable out) throws IOException {
+        out.append("</table>").append(LINE_SEPARATOR);
+    }
+
+    @Override
+    protected void writeRow(@Nonnull Tag tag, @Nullable String oldLine, @Nonnull int[] oldMarks,
+            @Nullable String newLine, @Nonnull int[] newMarks, @Nonnull Appendable out) throws IOException {
+        out.append("<tr class=\"").append(tag.name().toLowerCase(Locale.ROOT)).append("\"><td>");
+        if (oldLine != null) {
+            writeMarkedLine(oldLine, oldMarks, true, out);
+        }
+        out.append("</td><td>");
+        if (newLine != null) {
+            writeMarkedLine(newLine, newMarks, false, out);
+        }
+        out.append("</td></tr>").append(LINE_SEPARATOR);
+    }
+
+    @Override
+    protected void writeSkip(int skippedLines, @Nonnull Appendable out) throws IOException {
+        out.append("<tr class=\"skip\"><td colspan=\"2\">").append(Integer.toString(skippedLines))
+                .append(skippedLines == 1 ? " unchanged line" : " unchanged lines").append("</td></tr>").append(LINE_SEPARATOR);
+    }
+
+    @Override
+    protected void writeText(@Nonnull String line, int start, int end, @Nonnull Appendable out)
+            throws IOException {
+        StringUtills.escapeHtml(line, start, end, out);
+    }
+
+    @Override
+    protected void startMark(boolean original, @Nonnull Appendable out) throws IOException {
+        out.append(original ? "<span class=\"editOldInline\">" : "<span class=\"editNewInline\">");
+    }
+
+    @Override
+    protected void endMark(boolean original, @Nonnull Appendable out) throws IOException {
+        out.append("</span>");
+    }
+}
@@ -0,0 +1,173 @@
+package difflib.render;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Locale;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.google.common.base.Function;
+
+import difflib.DiffRow.Tag;
+import difflib.Patch;
+
+/**
+ * Writes the rows as JSON array, one object per row, e.g.
+ * <code>
+ *    {"tag":"change","old":"abc","new":"abd","oldMarks":[2,3],"newMarks":[2,3]}
+ *    {"tag":"skip","skipped":12}
+ * </code>
+ * The marks are pairs of start and end offset of the inline diffs in the line, in UTF-16 code
+ * units. A missing line is <code>null</code>, lines without marks have no marks property.
+ */
+public class JsonDiffRenderer extends AbstractDiffRenderer {
+
+    /**
+     * Constructs a renderer which writes all unchanged lines and up to 2 inline diffs per changed
+     * block.
+     */
+    public JsonDiffRenderer() {
+        this(-1, 2);
+    }
+
+    /**
+     * @see AbstractDiffRenderer#AbstractDiffRenderer(int, int)
+     */
+    public JsonDiffRenderer(int contextSize, int maxInlineDeltas) {
+        super(contextSize, maxInlineDeltas);
+    }
+
+    /**
+     * @see AbstractDiffRenderer#AbstractDiffRenderer(int, int, int, Function)
+     */
+    public JsonDiffRenderer(int contextSize, int maxInlineDeltas, int maxInlineLength,
+            @Nonnull Function<String, List<String>> inlineTokenizer) {
+        super(contextSize, maxInlineDeltas, maxInlineLength, inlineTokenizer);
+    }
+
+    @Override
+    public void render(@Nonnull List<String> original, @Nonnull List<String> revised,
+            @Nonnull Patch<String> patch, @Nonnull Appendable out) throws IOException {
+        // the state of one call, so an instance can be shared between threads
+        super.render(original, revised, patch, new RowOutput(out));
+    }
+
+    @Override
+    protected void begin(@Nonnull Appendable out) throws IOException {
+        out.append('[');
+    }
+
+    @Override
+    protected void end(@Nonnull Appendable out) throws IOException {
+        out.append(']');
+    }
+
+    @Override
+    protected void writeRow(@Nonnull Tag tag, @Nullable String oldLine, @Nonnull int[] oldMarks,
+            @Nullable String newLine, @Nonnull int[] newMarks, @Nonnull Appendable out) throws IOException {
+        startRow(tag, out);
+        out.append(",\"old\":");
+        writeString(oldLine, out);
+        out.append(",\"new\":");
+        writeString(newLine, out);
+        writeMarks("oldMarks", oldMarks, out);
+        writeMarks("newMarks", newMarks, out);
+        out.append('}');
+    }
+
+    @Override
+    protected void writeSkip(int skippedLines, @Nonnull Appendable out) throws IOException {
+        startRow(Tag.SKIP, out);
+        out.append(",\"skipped\":").append(Integer.toString(skippedLines)).append('}');
+    }
+
+    private static void startRow(Tag tag, Appendable out) throws IOException {
+        if (!(out instanceof RowOutput) || !((RowOutput) out).firstRow) {
+            out.append(',');
+        } else {
+            ((RowOutput) out).firstRow = false;
+        }
+        out.append("{\"tag\":\"").append(tag.name().toLowerCase(Locale.ROOT)).append('"');
+    }
+
+    private static void writeMarks(String name, int[] marks, Appendable out) throws IOException {
+        if (marks.length == 0) {
+            return;
+        }
+        out.append(",\"").append(name).append("\":[");
+        for (int i = 0; i < marks.length; i++) {
+            if (i > 0) {
+                out.append(',');
+            }
+            out.append(Integer.toString(marks[i]));
+        }
+        out.append(']');
+    }
+
+    private static void writeString(@Nullable String value, Appendable out) throws IOException {
+        if (value == null) {
+            out.append("null");
+            return;
+        }
+        out.append('"');
+        int pos = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\' || c < 0x20) {
+                out.append(value, pos, i);
+                switch (c) {
+                case '"':
+                    out.append("\\\"");
+                    break;
+                case '\\':
+                    out.append("\\\\");
+                    break;
+                case '\n':
+                    out.append("\\n");
+                    break;
+                case '\r':
+                    out.append("\\r");
+                    break;
+                case '\t':
+                    out.append("\\t");
+                    break;
+                default:
+                    out.append(String.format("\\u%04x", (int) c));
+                }
+                pos = i + 1;
+            }
+        }
+        out.append(value, pos, value.length()).append('"');
+    }
+
+    /**
+     * The output of one call of {@link #render}, which knows if a row has been written yet.
+     */
+    private static final class RowOutput implements Appendable {
+        private final Appendable out;
+        private boolean firstRow = true;
+
+        RowOutput(Appendable out) {
+            this.out = out;
+        }
+
+        @Override
+        public Appendable append(CharSequence csq) throws IOException {
+            out.append(csq);
+            return this;
+        }
+
+        @Override
+        public Appendable append(CharSequence csq, int start, int end) throws IOException {
+            out.append(csq, start, end);
+            return this;
+        }
+
+        @Override
+        public Appendable append(char c) throws IOException {
+            out.append(c);
+            return this;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package difflib.bytes;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.google.common.primitives.Bytes;
+
+import difflib.PatchFailedException;
+
+public class BinaryDiffTest {
+    private final byte[] source = random(new Random(42), 64 * 1024);
+    private final byte[] target = edit(source);
+
+    @Test
+    public void testApplyTo() throws PatchFailedException {
+        BinaryDelta delta = new BinaryDiff().diff(source, target);
+        assertArrayEquals(target, delta.applyTo(source));
+        assertTrue("literal bytes: " + delta.getLiteralLength(), delta.getLiteralLength() < 1024);
+    }
+
+    @Test
+    public void testEncodeAndStreamingApply() throws IOException, PatchFailedException {
+        BinaryDelta delta = new BinaryDiff(8).diff(source, target);
+        ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+        delta.encode(encoded);
+        assertTrue("encoded size: " + encoded.size(), encoded.size() < 2048);
+
+        BinaryDelta decoded = BinaryDelta.decode(new ByteArrayInputStream(encoded.toByteArray()));
+        assertThat(decoded.getInstructionCount(), is(delta.getInstructionCount()));
+        assertArrayEquals(target, decoded.applyTo(source));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BinaryDelta.apply(ByteBuffer.wrap(source).asReadOnlyBuffer(),
+                new ByteArrayInputStream(encoded.toByteArray()), out);
+        assertArrayEquals(target, out.toByteArray());
+    }
+
+    @Test
+    public void testToPatch() throws PatchFailedException {
+        BinaryDelta delta = new BinaryDiff().diff(source, target);
+        List<Byte> patched = delta.toPatch(source).applyTo(Bytes.asList(source));
+        assertArrayEquals(target, Bytes.toArray(patched));
+    }
+
+    @Test
+    public void testSmallInputs() throws PatchFailedException {
+        byte[] small = new byte[] { 1, 2, 3 };
+        assertArrayEquals(small, new BinaryDiff().diff(new byte[0], small).applyTo(new byte[0]));
+        assertArrayEquals(new byte[0], new BinaryDiff().diff(small, new byte[0]).applyTo(small));
+    }
+
+    @Test
+    public void testMalformedDelta_ExceedsTarget() throws PatchFailedException {
+        byte[][] deltas = {
+                // version 1, source 0, target 2, insert 5 bytes
+                { 1, 0, 2, 1, 5, 'a', 'b', 'c', 'd', 'e' },
+                // insert 2^31 - 1 bytes, which must not be allocated
+                { 1, 0, 2, 1, (byte) 0xff, (byte) 0xff, (byte) 0xff, (byte) 0xff, 0x07 },
+                // version 1, source 4, target 2, copy 3 bytes at 0
+                { 1, 4, 2, 0, 0, 3 } };
+        for (byte[] delta : deltas) {
+            try {
+                BinaryDelta.decode(new ByteArrayInputStream(delta));
+                fail("decoded a delta exceeding the target");
+            } catch (IOException e) {
+                assertThat(e.getMessage(), is("malformed binary delta: instruction exceeds the target length"));
+            }
+            try {
+                BinaryDelta.apply(ByteBuffer.wrap(new byte[delta[1]]), new ByteArrayInputStream(delta),
+                        new ByteArrayOutputStream());
+                fail("applied a delta exceeding the target");
+            } catch (IOException e) {
+                assertThat(e.getMessage(), is("malformed binary delta: instruction exceeds the target length"));
+            }
+        }
+    }
+
+    @Test(expected = PatchFailedException.class)
+    public void testWrongSource() throws PatchFailedException {
+        new BinaryDiff().diff(source, target).applyTo(new byte[10]);
+    }
+
+    private static byte[] random(Random random, int length) {
+        byte[] result = new byte[length];
+        random.nextBytes(result);
+        return result;
+    }
+
+    /**
+     * Moves a block to the end, overwrites some bytes and inserts some bytes.
+     */
+    private static byte[] edit(byte[] source) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(source, 0, 1000);
+        out.write(source, 5000, source.length - 5000);
+        out.write(source, 1000, 4000);
+        byte[] result = out.toByteArray();
+        for (int i = 20000; i < 20100; i++) {
+            result[i] = (byte) i;
+        }
+        byte[] inserted = random(new Random(7), 300);
+        byte[] edited = new byte[result.length + inserted.length];
+        System.arraycopy(result, 0, edited, 0, 40000);
+        System.arraycopy(inserted, 0, edited, 40000, inserted.length);
+        System.arraycopy(result, 40000, edited, 40000 + inserted.length, result.length - 40000);
+        return edited;
+    }
+}
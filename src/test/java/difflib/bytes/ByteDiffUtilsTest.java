@@ -0,0 +1,65 @@
+package difflib.bytes;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.google.common.base.Charsets;
+
+import difflib.Patch;
+import difflib.PatchFailedException;
+
+public class ByteDiffUtilsTest {
+    private static final byte[] ORIGINAL = "café\nline 2\r\nline 3".getBytes(Charsets.ISO_8859_1);
+    private static final byte[] REVISED = "café\nline two\r\nline 3".getBytes(Charsets.ISO_8859_1);
+
+    @Test
+    public void testSplitKeepsLineTerminators() {
+        List<ByteBuffer> lines = ByteDiffUtils.split(ByteBuffer.wrap(ORIGINAL));
+        assertThat(lines.size(), is(3));
+        assertThat(lines.get(0).remaining(), is(5));
+        assertThat(lines.get(1).remaining(), is(8));
+        assertThat(lines.get(2).remaining(), is(6));
+    }
+
+    @Test
+    public void testPatchRestoresExactBytes() throws IOException, PatchFailedException {
+        List<ByteBuffer> original = ByteDiffUtils.split(ByteBuffer.wrap(ORIGINAL));
+        Patch<ByteBuffer> patch = ByteDiffUtils.diff(ByteBuffer.wrap(ORIGINAL), ByteBuffer.wrap(REVISED));
+        assertThat(patch.getDeltas().size(), is(1));
+        assertThat(patch.getDeltas().get(0).getOriginal().getPosition(), is(1));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ByteDiffUtils.writeLines(patch.applyTo(original), out);
+        assertArrayEquals(REVISED, out.toByteArray());
+    }
+
+    @Test
+    public void testIgnoreLineTerminator() {
+        byte[] unix = "a\nb\n".getBytes(Charsets.US_ASCII);
+        byte[] windows = "a\r\nb\r\n".getBytes(Charsets.US_ASCII);
+        assertThat(ByteDiffUtils.diff(ByteBuffer.wrap(unix), ByteBuffer.wrap(windows))
+                .getDeltas().size(), is(1));
+        assertThat(ByteDiffUtils.diff(ByteBuffer.wrap(unix), ByteBuffer.wrap(windows),
+                ByteLineEqualizer.IGNORE_LINE_TERMINATOR).getDeltas().size(), is(0));
+    }
+
+    @Test
+    public void testWriteUnifiedDiffInOriginalEncoding() throws IOException {
+        List<ByteBuffer> original = ByteDiffUtils.split(ByteBuffer.wrap(ORIGINAL));
+        Patch<ByteBuffer> patch = ByteDiffUtils.diff(ByteBuffer.wrap(ORIGINAL), ByteBuffer.wrap(REVISED));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ByteDiffUtils.writeUnifiedDiff("a.txt", "b.txt", original, patch, 1, out);
+
+        String expected = "--- a.txt\n+++ b.txt\n@@ -1,3 +1,3 @@\n café\n-line 2\r\n+line two\r\n"
+                + " line 3\n\\ No newline at end of file\n";
+        assertArrayEquals(expected.getBytes(Charsets.ISO_8859_1), out.toByteArray());
+    }
+}
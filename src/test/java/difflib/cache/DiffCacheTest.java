@@ -0,0 +1,106 @@
+package difflib.cache;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.io.Files;
+import com.google.common.util.concurrent.MoreExecutors;
+
+import difflib.Chunk;
+import difflib.DiffUtils;
+import difflib.InsertDelta;
+import difflib.Patch;
+import difflib.PatchFailedException;
+
+public class DiffCacheTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final List<String> original = Arrays.asList("a", "b", "c", "é");
+    private final List<String> revised = Arrays.asList("a", "x", "c", "d");
+
+    @Test
+    public void testHitAndMiss() {
+        DiffCache cache = new DiffCache.Builder().maximumSize(10).build();
+        Patch<String> patch = cache.diff(original, revised);
+        assertThat(cache.diff(original, revised), is(sameInstance(patch)));
+        assertThat(patch.isFrozen(), is(true));
+        assertThat(cache.diff(revised, original), is(not(sameInstance(patch))));
+        // same characters, split differently
+        cache.diff(Arrays.asList("ab", "c"), Arrays.asList("a", "bc"));
+        cache.diff(Arrays.asList("a", "bc"), Arrays.asList("ab", "c"));
+
+        assertThat(cache.stats().hitCount(), is(1L));
+        assertThat(cache.stats().missCount(), is(4L));
+    }
+
+    @Test
+    public void testSpill() throws IOException, PatchFailedException {
+        File directory = folder.newFolder();
+        DiffCache cache = new DiffCache.Builder().maximumSize(1).spillDirectory(directory, MoreExecutors.sameThreadExecutor()).build();
+        Patch<String> patch = cache.diff(original, revised);
+        cache.diff(revised, original);
+        assertThat(directory.list().length, is(1));
+
+        Patch<String> spilled = cache.diff(original, revised);
+        assertThat(spilled, is(not(sameInstance(patch))));
+        assertThat(spilled.getDeltas(), is(patch.getDeltas()));
+        assertThat(spilled.applyTo(original), is(revised));
+        assertThat(spilled.isFrozen(), is(true));
+        assertThat(cache.spillHitCount(), is(1L));
+    }
+
+    @Test
+    public void testPruneSpilled() throws IOException {
+        File directory = folder.newFolder();
+        DiffCache cache = new DiffCache.Builder().maximumSize(1)
+                .spillDirectory(directory, MoreExecutors.sameThreadExecutor()).maximumSpillFiles(4).build();
+        for (int i = 0; i < 10; i++) {
+            cache.diff(original, Arrays.asList("a", Integer.toString(i)));
+        }
+        // 9 evicted patches, pruned to 3 at the fifth, seventh and ninth
+        assertThat(directory.list().length, is(3));
+    }
+
+    @Test
+    public void testCodec() throws IOException {
+        Patch<String> patch = DiffUtils.diff(original, revised);
+        patch.addDelta(new InsertDelta<String>(new Chunk<String>(4, new String[0]),
+                new Chunk<String>(4, new String[] { null, "" })));
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        PatchCodec.write(patch, new DataOutputStream(bytes));
+        Patch<String> decoded = PatchCodec.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())),
+                bytes.size());
+        assertThat(decoded.getDeltas(), is(patch.getDeltas()));
+    }
+
+    @Test
+    public void testCorruptSpillFile() throws IOException {
+        File directory = folder.newFolder();
+        DiffCache cache = new DiffCache.Builder().maximumSize(1).spillDirectory(directory, MoreExecutors.sameThreadExecutor()).build();
+        Patch<String> patch = cache.diff(original, revised);
+        cache.diff(revised, original);
+        // one delta whose original chunk has a line of 2^31 - 1 bytes
+        byte[] corrupt = { 1, 0, 0, 0, 1, 2, 0, 0, 0, 1, 0, 0, 0, 1, 0x7f, (byte) 0xff, (byte) 0xff, (byte) 0xff };
+        Files.write(corrupt, directory.listFiles()[0]);
+
+        // diffed again instead of failing
+        assertThat(cache.diff(original, revised).getDeltas(), is(patch.getDeltas()));
+        assertThat(cache.spillHitCount(), is(0L));
+    }
+}
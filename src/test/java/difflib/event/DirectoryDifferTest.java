@@ -0,0 +1,92 @@
+package difflib.event;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+
+import difflib.Patch;
+
+public class DirectoryDifferTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testDiffTrees() throws IOException {
+        File original = folder.newFolder("original");
+        File revised = folder.newFolder("revised");
+        write(original, "same.txt", "a\nb\n");
+        write(revised, "same.txt", "a\nb\n");
+        write(original, "sub/changed.txt", "a\nb\nc\n");
+        write(revised, "sub/changed.txt", "a\nx\nc\n");
+        write(original, "removed.txt", "gone\n");
+        write(revised, "added.txt", "new\n");
+
+        final List<String> visited = new ArrayList<String>();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            new DirectoryDiffer.Builder().executor(executor).maxPendingFiles(2).build()
+                    .diff(original, revised, new PatchHandler<String>() {
+                        @Override
+                        public void handle(String originalPath, String revisedPath,
+                                Patch<String> patch) {
+                            visited.add(originalPath + " " + revisedPath + " "
+                                    + patch.getDeltas().size());
+                        }
+                    });
+        } finally {
+            executor.shutdown();
+        }
+
+        assertThat(visited.size(), is(3));
+        assertThat(visited.get(0), is("/dev/null added.txt 1"));
+        assertThat(visited.get(1), is("removed.txt /dev/null 1"));
+        assertThat(visited.get(2), is("sub/changed.txt sub/changed.txt 1"));
+    }
+
+    @Test
+    public void testWriteMultiFilePatch() throws IOException {
+        File original = folder.newFolder("original");
+        File revised = folder.newFolder("revised");
+        write(original, "a.txt", "hello, world\n");
+        write(revised, "a.txt", "hello\n");
+        write(original, "b.txt", "hello! 1\nhello! 2\n");
+        write(revised, "b.txt", "hello\n");
+
+        StringWriter out = new StringWriter();
+        new DirectoryDiffer.Builder().build().diff(original, revised,
+                new UnifiedDiffWriter(original, out, 3));
+        File diff = folder.newFile("tree.diff");
+        Files.write(out.toString(), diff, Charsets.UTF_8);
+
+        final List<String> parsed = new ArrayList<String>();
+        new UnifiedPatchParser().parse(diff, new PatchHandler<String>() {
+            @Override
+            public void handle(String originalPath, String revisedPath, Patch<String> patch) {
+                parsed.add(originalPath + " " + patch.getDeltas().get(0).getRevised().getLines());
+            }
+        });
+        assertThat(parsed.size(), is(2));
+        assertThat(parsed.get(0), is("a.txt [hello]"));
+        assertThat(parsed.get(1), is("b.txt [hello]"));
+    }
+
+    private static void write(File root, String path, String content) throws IOException {
+        File file = new File(root, path);
+        Files.createParentDirs(file);
+        Files.write(content, file, Charsets.UTF_8);
+    }
+}
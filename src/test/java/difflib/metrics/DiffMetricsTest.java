@@ -0,0 +1,102 @@
+package difflib.metrics;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Test;
+
+import difflib.DiffRowGenerator;
+import difflib.DiffUtils;
+import difflib.InlineTokenizers;
+import difflib.Patch;
+import difflib.PatchFailedException;
+import difflib.metrics.DiffEvent.Operation;
+import difflib.myers.PrimitiveDiff;
+import difflib.render.HtmlDiffRenderer;
+
+public class DiffMetricsTest {
+    private final List<String> original = Arrays.asList("a", "b", "c", "d", "e");
+    private final List<String> revised = Arrays.asList("a", "x", "c", "d", "e", "f");
+
+    @After
+    public void tearDown() {
+        DiffMetrics.setListener(null);
+    }
+
+    @Test
+    public void testEvents() throws PatchFailedException {
+        final List<DiffEvent> events = new ArrayList<DiffEvent>();
+        DiffMetrics.setListener(new DiffMetricsListener() {
+            @Override
+            public void onEvent(DiffEvent event) {
+                events.add(event);
+            }
+        });
+        Patch<String> patch = DiffUtils.diff(original, revised);
+        patch.applyTo(original);
+        List<String> unifiedDiff = DiffUtils.generateUnifiedDiff("a", "b", original, patch, 1);
+        DiffUtils.parseUnifiedDiff(unifiedDiff);
+        PrimitiveDiff.diff("abcd", "axcd");
+
+        assertThat(events.size(), is(5));
+        DiffEvent diff = events.get(0);
+        assertThat(diff.getOperation(), is(Operation.DIFF));
+        assertThat(diff.getSource(), is("MyersDiff"));
+        assertThat(diff.getOriginalSize(), is(5));
+        assertThat(diff.getRevisedSize(), is(6));
+        assertThat(diff.getEditDistance(), is(3));
+        assertThat(diff.getSnakeLength(), is(4L));
+        assertThat(diff.getDeltas(), is(2));
+
+        assertThat(events.get(1).getOperation(), is(Operation.APPLY));
+        assertThat(events.get(1).getRevisedSize(), is(6));
+        assertThat(events.get(2).getOperation(), is(Operation.GENERATE_UNIFIED_DIFF));
+        assertThat(events.get(2).getRevisedSize(), is(unifiedDiff.size()));
+        assertThat(events.get(3).getOperation(), is(Operation.PARSE_UNIFIED_DIFF));
+        assertThat(events.get(4).getSource(), is("PrimitiveDiff"));
+        assertThat(events.get(4).getEditDistance(), is(2));
+    }
+
+    @Test
+    public void testInlineDiffsNotReported() throws IOException {
+        final List<DiffEvent> events = new ArrayList<DiffEvent>();
+        Patch<String> patch = DiffUtils.diff(original, revised);
+        DiffMetrics.setListener(new DiffMetricsListener() {
+            @Override
+            public void onEvent(DiffEvent event) {
+                events.add(event);
+            }
+        });
+        new DiffRowGenerator.Builder().showInlineDiffs(true).build().generateDiffRows(original, revised, patch);
+        new DiffRowGenerator.Builder().showInlineDiffs(true).inlineTokenizer(InlineTokenizers.WORDS).build()
+                .generateDiffRows(original, revised, patch);
+        new HtmlDiffRenderer().render(original, revised, patch, new StringBuilder());
+
+        assertThat(events.size(), is(2));
+        assertThat(events.get(0).getOperation(), is(Operation.GENERATE_DIFF_ROWS));
+        assertThat(events.get(1).getOperation(), is(Operation.GENERATE_DIFF_ROWS));
+    }
+
+    @Test
+    public void testHistogramRecorder() {
+        HistogramRecorder recorder = new HistogramRecorder();
+        DiffMetrics.setListener(recorder);
+        for (int i = 0; i < 10; i++) {
+            DiffUtils.diff(original, revised);
+        }
+        DiffMetrics.setListener(null);
+        DiffUtils.diff(original, revised);
+
+        assertThat(recorder.getNanos(Operation.DIFF).getCount(), is(10L));
+        assertThat(recorder.getInputSizes(Operation.DIFF).getMax(), is(11L));
+        assertThat(recorder.getInputSizes(Operation.DIFF).getPercentile(50), is(11L));
+        assertThat(recorder.getEditDistances(Operation.DIFF).getSum(), is(30L));
+        assertThat(recorder.getNanos(Operation.APPLY).getCount(), is(0L));
+    }
+}
@@ -0,0 +1,87 @@
+package difflib.metrics;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import difflib.DiffRowGenerator;
+import difflib.DiffUtils;
+import difflib.Patch;
+import difflib.metrics.DiffEvent.Operation;
+
+/**
+ * Runs only on a JVM with the {@code jdk.jfr} API, which is used via reflection like in the
+ * listener.
+ */
+public class JfrDiffMetricsListenerTest {
+    private final List<String> original = Arrays.asList("a", "b", "c", "d", "e");
+    private final List<String> revised = Arrays.asList("a", "x", "c", "d", "e", "f");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @After
+    public void tearDown() {
+        DiffMetrics.setListener(null);
+    }
+
+    @Test
+    public void testEvents() throws Exception {
+        assumeTrue(JfrDiffMetricsListener.isAvailable());
+        DiffMetrics.setListener(new JfrDiffMetricsListener.Builder()
+                .threshold(1, TimeUnit.HOURS)
+                .threshold(Operation.DIFF, 0, TimeUnit.NANOSECONDS)
+                .threshold(Operation.GENERATE_DIFF_ROWS, 0, TimeUnit.NANOSECONDS)
+                .build());
+
+        Object recording = Class.forName("jdk.jfr.Recording").newInstance();
+        invoke(recording, "start");
+        Patch<String> patch = DiffUtils.diff(original, revised);
+        patch.applyTo(original);
+        new DiffRowGenerator.Builder().build().generateDiffRows(original, revised, patch);
+        invoke(recording, "stop");
+        File file = folder.newFile("diff.jfr");
+        recording.getClass().getMethod("dump", Path.class).invoke(recording, file.toPath());
+        invoke(recording, "close");
+
+        List<String> names = new ArrayList<String>();
+        int originalSize = -1;
+        List<?> events = (List<?>) Class.forName("jdk.jfr.consumer.RecordingFile")
+                .getMethod("readAllEvents", Path.class).invoke(null, file.toPath());
+        for (Object event : events) {
+            Object type = invoke(event, "getEventType");
+            String name = (String) invoke(type, "getName");
+            if (name.startsWith("difflib.")) {
+                names.add(name);
+            }
+            if (name.equals("difflib.DiffComputed")) {
+                originalSize = (Integer) event.getClass().getMethod("getInt", String.class)
+                        .invoke(event, "originalSize");
+            }
+        }
+        // the patch is applied faster than the threshold
+        assertThat(names, is(Arrays.asList("difflib.DiffComputed", "difflib.DiffRowsRendered")));
+        assertThat(originalSize, is(5));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeThreshold() {
+        new JfrDiffMetricsListener.Builder().threshold(-1, TimeUnit.SECONDS);
+    }
+
+    private static Object invoke(Object target, String method) throws Exception {
+        return target.getClass().getMethod(method).invoke(target);
+    }
+}
@@ -0,0 +1,139 @@
+package difflib.render;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertThat;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+import difflib.DiffUtils;
+import difflib.InlineDiff;
+import difflib.InlineTokenizers;
+import difflib.Patch;
+import difflib.myers.PrimitiveDiff;
+
+public class DiffRendererTest {
+    private final List<String> original = Arrays.asList("a", "b", "c", "<x>", "e", "f", "g");
+    private final List<String> revised = Arrays.asList("a", "b", "c", "<y>", "e", "f", "g", "h");
+    private final Patch<String> patch = DiffUtils.diff(original, revised);
+
+    @Test
+    public void testHtml() throws IOException {
+        StringBuilder out = new StringBuilder();
+        new HtmlDiffRenderer(1, 2).render(original, revised, patch, out);
+        assertThat(out.toString(), is("<table class=\"diff\">\n"
+                + "<tr class=\"skip\"><td colspan=\"2\">2 unchanged lines</td></tr>\n"
+                + "<tr class=\"equal\"><td>c</td><td>c</td></tr>\n"
+                + "<tr class=\"change\"><td>&lt;<span class=\"editOldInline\">x</span>&gt;</td>"
+                + "<td>&lt;<span class=\"editNewInline\">y</span>&gt;</td></tr>\n"
+                + "<tr class=\"equal\"><td>e</td><td>e</td></tr>\n"
+                + "<tr class=\"skip\"><td colspan=\"2\">1 unchanged line</td></tr>\n"
+                + "<tr class=\"equal\"><td>g</td><td>g</td></tr>\n"
+                + "<tr class=\"insert\"><td></td><td>h</td></tr>\n"
+                + "</table>\n"));
+    }
+
+    @Test
+    public void testAnsi() throws IOException {
+        StringBuilder out = new StringBuilder();
+        new AnsiDiffRenderer(0, 2).render(original, revised, patch, out);
+        assertThat(out.toString(), is("\u001B[36m@@ 3 unchanged lines @@\u001B[0m\n"
+                + "\u001B[31m-<\u001B[7mx\u001B[27m>\u001B[0m\n"
+                + "\u001B[32m+<\u001B[7my\u001B[27m>\u001B[0m\n"
+                + "\u001B[36m@@ 3 unchanged lines @@\u001B[0m\n"
+                + "\u001B[32m+h\u001B[0m\n"));
+    }
+
+    @Test
+    public void testAnsi_InsertAtStart() throws IOException {
+        List<String> lines = Arrays.asList("l0", "l1", "l2", "l3", "l4", "l5", "l6", "l7", "l8", "l9");
+        List<String> inserted = new ArrayList<String>(lines);
+        inserted.add(0, "new");
+        StringBuilder out = new StringBuilder();
+        new AnsiDiffRenderer(2, 2).render(lines, inserted, DiffUtils.diff(lines, inserted), out);
+        // like DiffRowGenerator.Builder.contextSize(2)
+        assertThat(out.toString(), is("\u001B[32m+new\u001B[0m\n"
+                + " l0\n"
+                + " l1\n"
+                + "\u001B[36m@@ 8 unchanged lines @@\u001B[0m\n"));
+    }
+
+    @Test
+    public void testJson() throws IOException {
+        StringBuilder out = new StringBuilder();
+        new JsonDiffRenderer(0, 0).render(Arrays.asList("\"a\""), Arrays.asList("b\\"),
+                DiffUtils.diff(Arrays.asList("\"a\""), Arrays.asList("b\\")), out);
+        assertThat(out.toString(), is("[{\"tag\":\"change\",\"old\":\"\\\"a\\\"\",\"new\":\"b\\\\\"}]"));
+
+        out.setLength(0);
+        new JsonDiffRenderer(0, 2).render(original, revised, patch, out);
+        assertThat(out.toString(), is("[{\"tag\":\"skip\",\"skipped\":3},"
+                + "{\"tag\":\"change\",\"old\":\"<x>\",\"new\":\"<y>\",\"oldMarks\":[1,2],\"newMarks\":[1,2]},"
+                + "{\"tag\":\"skip\",\"skipped\":3},"
+                + "{\"tag\":\"insert\",\"old\":null,\"new\":\"h\"}]"));
+    }
+
+    @Test
+    public void testJson_InlineOptions() throws IOException {
+        List<String> old = Arrays.asList("the quick fox");
+        List<String> changed = Arrays.asList("the slow fox");
+        StringBuilder out = new StringBuilder();
+        new JsonDiffRenderer(0, 2, 100, InlineTokenizers.WORDS).render(old, changed, DiffUtils.diff(old, changed), out);
+        assertThat(out.toString(), is("[{\"tag\":\"change\",\"old\":\"the quick fox\",\"new\":\"the slow fox\","
+                + "\"oldMarks\":[4,9],\"newMarks\":[4,8]}]"));
+
+        // longer than maxInlineLength, marked as a whole
+        out.setLength(0);
+        new JsonDiffRenderer(0, 2, 20, InlineTokenizers.WORDS).render(old, changed, DiffUtils.diff(old, changed), out);
+        assertThat(out.toString(), is("[{\"tag\":\"change\",\"old\":\"the quick fox\",\"new\":\"the slow fox\","
+                + "\"oldMarks\":[0,13],\"newMarks\":[0,12]}]"));
+    }
+
+    @Test
+    public void testJson_SharedBetweenThreads() throws Exception {
+        final JsonDiffRenderer renderer = new JsonDiffRenderer(0, 2);
+        StringBuilder expected = new StringBuilder();
+        renderer.render(original, revised, patch, expected);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<String>> results = new ArrayList<Future<String>>();
+            for (int i = 0; i < 200; i++) {
+                results.add(executor.submit(new Callable<String>() {
+                    @Override
+                    public String call() throws IOException {
+                        StringBuilder out = new StringBuilder();
+                        renderer.render(original, revised, patch, out);
+                        return out.toString();
+                    }
+                }));
+            }
+            for (Future<String> result : results) {
+                assertThat(result.get(), is(expected.toString()));
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testLineMarks() {
+        List<String> lines = Arrays.asList("abc", "def");
+        // "abc\ndef" -> "aXc\nXef" and a change spanning the line break
+        List<int[]> marks = InlineDiff.lineMarks(lines, PrimitiveDiff.diff("abc\ndef", "aXc\nXef"), true);
+        assertArrayEquals(new int[] { 1, 2 }, marks.get(0));
+        assertArrayEquals(new int[] { 0, 1 }, marks.get(1));
+
+        marks = InlineDiff.lineMarks(lines, PrimitiveDiff.diff("abc\ndef", "aXef"), true);
+        assertArrayEquals(new int[] { 1, 3 }, marks.get(0));
+        assertArrayEquals(new int[] { 0, 1 }, marks.get(1));
+    }
+}
@@ -0,0 +1,97 @@
+package diffutils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import junit.framework.TestCase;
+import difflib.BatchDiff;
+import difflib.BatchDiff.Pair;
+import difflib.DiffUtils;
+import difflib.EditScript;
+import difflib.IgnoreMode;
+
+public class BatchDiffTest extends TestCase {
+
+    public void testRun_Sequential() {
+        List<Pair> pairs = randomPairs(500);
+        final List<EditScript> scripts = new ArrayList<EditScript>();
+        long count = new BatchDiff.Builder().maxInternedLines(10).build().run(pairs.iterator(),
+                new BatchDiff.Callback<Pair>() {
+                    @Override
+                    public void onDiff(Pair pair, EditScript script) {
+                        scripts.add(script);
+                    }
+                });
+        assertEquals(500, count);
+        for (int i = 0; i < pairs.size(); i++) {
+            assertEquals(DiffUtils.diffRanges(pairs.get(i).getOriginal(), pairs.get(i).getRevised(),
+                    EnumSet.noneOf(IgnoreMode.class)), scripts.get(i));
+        }
+    }
+
+    public void testRun_Parallel() {
+        List<Pair> pairs = randomPairs(1000);
+        final Map<Pair, EditScript> scripts = new ConcurrentHashMap<Pair, EditScript>();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            long count = new BatchDiff.Builder().ignore(IgnoreMode.CASE).executor(executor).parallelism(4).build()
+                    .run(pairs.iterator(), new BatchDiff.Callback<Pair>() {
+                        @Override
+                        public void onDiff(Pair pair, EditScript script) {
+                            scripts.put(pair, script);
+                        }
+                    });
+            assertEquals(1000, count);
+        } finally {
+            executor.shutdown();
+        }
+        for (Pair pair : pairs) {
+            assertEquals(DiffUtils.diffRanges(pair.getOriginal(), pair.getRevised(), EnumSet.of(IgnoreMode.CASE)),
+                    scripts.get(pair));
+        }
+    }
+
+    public void testRun_CallbackFails() {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            new BatchDiff.Builder().executor(executor).parallelism(2).build().run(randomPairs(1000).iterator(),
+                    new BatchDiff.Callback<Pair>() {
+                        @Override
+                        public void onDiff(Pair pair, EditScript script) {
+                            throw new IllegalStateException("failed");
+                        }
+                    });
+            fail("callback failure not propagated");
+        } catch (IllegalStateException e) {
+            assertEquals("failed", e.getMessage());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static List<Pair> randomPairs(int count) {
+        Random random = new Random(3);
+        List<String> lines = Arrays.asList("id", "name", "Name", "value", "", "comment");
+        List<Pair> result = new ArrayList<Pair>();
+        for (int i = 0; i < count; i++) {
+            result.add(BatchDiff.pair(randomLines(random, lines), randomLines(random, lines)));
+        }
+        return result;
+    }
+
+    private static List<String> randomLines(Random random, List<String> lines) {
+        List<String> result = new ArrayList<String>();
+        int size = 5 + random.nextInt(20);
+        for (int i = 0; i < size; i++) {
+            result.add(lines.get(random.nextInt(lines.size())) + " " + random.nextInt(3));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,77 @@
+package diffutils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+import difflib.myers.DiffEstimator;
+import difflib.myers.DiffEstimator.Estimate;
+import difflib.myers.DiffEstimator.Recommendation;
+
+public class DiffEstimatorTest extends TestCase {
+    private final DiffEstimator estimator = new DiffEstimator.Builder().build();
+
+    public void testEstimate_Exact() {
+        Estimate estimate = estimator.estimate(Arrays.asList("a", "b", "c", "d", "e"),
+                Arrays.asList("a", "x", "c", "d", "y"));
+        assertEquals(1, estimate.getCommonPrefix());
+        assertEquals(0, estimate.getCommonSuffix());
+        assertEquals(4, estimate.getOriginalSize());
+        assertEquals(1, estimate.getSampleRate());
+        assertEquals(4, estimate.getEditDistance());
+        assertEquals(32, estimate.getCost());
+        assertEquals(Recommendation.MYERS, estimate.getRecommendation());
+
+        assertEquals(0, estimator.estimate(Arrays.asList("a"), Arrays.asList("a")).getEditDistance());
+        assertEquals(2, estimator.estimate(new ArrayList<String>(), Arrays.asList("a", "b")).getEditDistance());
+    }
+
+    public void testEstimate_Sampled() {
+        List<String> original = lines("line", 0, 100000);
+        List<String> revised = new ArrayList<String>(original);
+        for (int i = 5; i < 100000; i += 10) {
+            revised.set(i, "changed " + i);
+        }
+        Estimate similar = estimator.estimate(original, revised);
+        assertTrue(similar.getSampleRate() > 1);
+        // exactly 20000
+        assertTrue(similar.toString(), similar.getEditDistance() > 10000 && similar.getEditDistance() < 30000);
+        assertEquals(Recommendation.BACKGROUND, similar.getRecommendation());
+
+        Estimate appended = estimator.estimate(original, lines("line", 0, 100100));
+        assertEquals(100000, appended.getCommonPrefix());
+        assertEquals(100, appended.getEditDistance());
+        assertEquals(Recommendation.MYERS, appended.getRecommendation());
+
+        Estimate disjoint = estimator.estimate(original, lines("other", 0, 100000));
+        assertTrue(disjoint.toString(), disjoint.getEditDistance() > 190000);
+        assertEquals(Recommendation.BACKGROUND, disjoint.getRecommendation());
+    }
+
+    public void testEstimate_Thresholds() {
+        List<String> original = lines("line", 0, 1000);
+        List<String> revised = lines("other", 0, 1000);
+        // exact: 2000 * 2000
+        assertEquals(Recommendation.PRIMITIVE, estimator.estimate(original, revised).getRecommendation());
+        DiffEstimator strict = new DiffEstimator.Builder().sampleSize(5000).maxCost(1000).build();
+        assertEquals(Recommendation.BACKGROUND, strict.estimate(original, revised).getRecommendation());
+    }
+
+    public void testEstimate_MovedBlock() {
+        List<String> original = lines("line", 0, 20000);
+        List<String> revised = new ArrayList<String>(original.subList(10000, 20000));
+        revised.addAll(original.subList(0, 10000));
+        Estimate estimate = estimator.estimate(original, revised);
+        // the sampled diff keeps the order, so the moved half counts as deleted and inserted
+        assertTrue(estimate.toString(), estimate.getEditDistance() > 15000);
+    }
+
+    private static List<String> lines(String prefix, int from, int to) {
+        List<String> result = new ArrayList<String>();
+        for (int i = from; i < to; i++) {
+            result.add(prefix + " " + i);
+        }
+        return result;
+    }
+}
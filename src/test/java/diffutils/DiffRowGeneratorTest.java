@@ -1,13 +1,27 @@
 package diffutils;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Pattern;
 
 import difflib.DiffRow;
+import difflib.DiffUtils;
+import difflib.IgnoreMode;
 import difflib.DiffRowGenerator;
+import difflib.InlineTokenizers;
+import difflib.Patch;
 
 import junit.framework.TestCase;
 
+import com.google.common.collect.Lists;
+
 public class DiffRowGeneratorTest  extends TestCase {
 
     public void testGenerator_Default() {
@@ -38,6 +52,116 @@ public class DiffRowGeneratorTest  extends TestCase {
         assertTrue(rows.get(0).getOldLine().indexOf("<span") > 0);
     }
 
+    public void testGenerator_InlineDiffAcrossLines() {
+        DiffRowGenerator generator = new DiffRowGenerator.Builder()
+            .showInlineDiffs(true)
+            .InlineOldCssClass(null)
+            .InlineNewCssClass(null)
+            .columnWidth(Integer.MAX_VALUE) // do not wrap
+            .build();
+        List<DiffRow> rows = generator.generateDiffRows(split("abc\ndef\nsame"), split("aZf\nsame"));
+        print(rows);
+
+        assertEquals(3, rows.size());
+        assertEquals("a<span>bc</span>", rows.get(0).getOldLine());
+        assertEquals("a<span>Z</span>f", rows.get(0).getNewLine());
+        assertEquals("<span>de</span>f", rows.get(1).getOldLine());
+        assertEquals(DiffRow.Tag.EQUAL, rows.get(2).getTag());
+    }
+
+    public void testGenerator_InlineDiffEscaped() {
+        DiffRowGenerator generator = new DiffRowGenerator.Builder()
+            .showInlineDiffs(true)
+            .maxInlineDeltas(4)
+            .InlineOldCssClass(null)
+            .InlineNewCssClass(null)
+            .columnWidth(Integer.MAX_VALUE) // do not wrap
+            .build();
+        List<DiffRow> rows = generator.generateDiffRows(split("x = \"a\";\na < b\na && b"),
+                split("x = 'a';\na > b\na & b"));
+        print(rows);
+
+        assertEquals(3, rows.size());
+        assertEquals("x = <span>&quot;</span>a<span>&quot;</span>;", rows.get(0).getOldLine());
+        assertEquals("x = <span>&#39;</span>a<span>&#39;</span>;", rows.get(0).getNewLine());
+        assertEquals("a <span>&lt;</span> b", rows.get(1).getOldLine());
+        assertEquals("a <span>&gt;</span> b", rows.get(1).getNewLine());
+        assertEquals("a <span>&amp;</span>&amp; b", rows.get(2).getOldLine());
+        assertEquals("a &amp; b", rows.get(2).getNewLine());
+    }
+
+    public void testGenerator_InlineDiffWrapped() {
+        DiffRowGenerator generator = new DiffRowGenerator.Builder()
+            .showInlineDiffs(true)
+            .InlineOldCssClass(null)
+            .InlineNewCssClass(null)
+            .columnWidth(3)
+            .build();
+        List<DiffRow> rows = generator.generateDiffRows(split("ab<def"), split("abXYef"));
+        print(rows);
+
+        assertEquals(1, rows.size());
+        assertEquals("ab<span>&lt;<br>d</span>ef", rows.get(0).getOldLine());
+        assertEquals("ab<span>X<br>Y</span>ef", rows.get(0).getNewLine());
+    }
+
+    public void testGenerator_InlineDiffByWords() {
+        DiffRowGenerator generator = new DiffRowGenerator.Builder()
+            .showInlineDiffs(true)
+            .inlineTokenizer(InlineTokenizers.WORDS)
+            .InlineOldCssClass(null)
+            .InlineNewCssClass(null)
+            .columnWidth(Integer.MAX_VALUE) // do not wrap
+            .build();
+        List<DiffRow> rows = generator.generateDiffRows(split("the quick brown fox"),
+                split("the slow brown cat"));
+        print(rows);
+
+        assertEquals(1, rows.size());
+        assertEquals("the <span>quick</span> brown <span>fox</span>", rows.get(0).getOldLine());
+        assertEquals("the <span>slow</span> brown <span>cat</span>", rows.get(0).getNewLine());
+    }
+
+    public void testGenerator_MaxInlineDeltas() {
+        DiffRowGenerator generator = new DiffRowGenerator.Builder()
+            .showInlineDiffs(true)
+            .inlineTokenizer(InlineTokenizers.regex(Pattern.compile("\\d+")))
+            .maxInlineDeltas(1)
+            .columnWidth(Integer.MAX_VALUE) // do not wrap
+            .build();
+        List<DiffRow> rows = generator.generateDiffRows(split("1,2,3"), split("1,5,6"));
+
+        assertEquals("1,2,3", rows.get(0).getOldLine());
+
+        try {
+            new DiffRowGenerator.Builder().maxInlineDeltas(-1);
+            fail("accepted a negative maxInlineDeltas");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    public void testGenerator_MaxInlineLength() {
+        StringBuilder first = new StringBuilder();
+        StringBuilder second = new StringBuilder();
+        Random random = new Random(3);
+        for (int i = 0; i < 6000; i++) {
+            first.append((char) ('a' + random.nextInt(26)));
+            second.append((char) ('a' + random.nextInt(26)));
+        }
+        DiffRowGenerator generator = new DiffRowGenerator.Builder()
+            .showInlineDiffs(true)
+            .InlineOldCssClass(null)
+            .InlineNewCssClass(null)
+            .columnWidth(Integer.MAX_VALUE) // do not wrap
+            .build();
+        List<DiffRow> rows = generator.generateDiffRows(split(first.toString()), split(second.toString()));
+
+        assertEquals(1, rows.size());
+        assertEquals("<span>" + first + "</span>", rows.get(0).getOldLine());
+        assertEquals("<span>" + second + "</span>", rows.get(0).getNewLine());
+    }
+
     public void testGenerator_IgnoreWhitespaces() {
         String first = "anything \n \nother\nmore lines";
         String second ="anything\n\nother\nsome more lines";
@@ -56,6 +180,182 @@ public class DiffRowGeneratorTest  extends TestCase {
         assertEquals(rows.get(3).getTag(), DiffRow.Tag.CHANGE);
     }
 
+    public void testIterateDiffRows_CollapseUnchangedLines() {
+        List<String> original = new ArrayList<String>();
+        for (int i = 0; i < 100; i++) {
+            original.add("line " + i);
+        }
+        List<String> revised = new ArrayList<String>(original);
+        revised.set(50, "changed");
+
+        DiffRowGenerator generator = new DiffRowGenerator.Builder().build();
+        List<DiffRow> rows = Lists.newArrayList(generator.iterateDiffRows(original, revised, 3));
+        print(rows);
+
+        assertEquals(9, rows.size());
+        assertEquals(DiffRow.Tag.SKIP, rows.get(0).getTag());
+        assertEquals(47, rows.get(0).getSkippedLines());
+        assertEquals("line 47", rows.get(1).getOldLine());
+        assertEquals(DiffRow.Tag.CHANGE, rows.get(4).getTag());
+        assertEquals("line 53", rows.get(7).getOldLine());
+        assertEquals(DiffRow.Tag.SKIP, rows.get(8).getTag());
+        assertEquals(46, rows.get(8).getSkippedLines());
+
+        assertEquals(100, Lists.newArrayList(generator.iterateDiffRows(original, revised, -1)).size());
+    }
+
+    public void testGenerator_ContextSize() {
+        List<String> original = split("a\nb\nc\nd\ne\nf\ng\nh\ni");
+        List<String> revised = split("a\nb\nc\nd\nE\nf\ng\nh\ni");
+
+        DiffRowGenerator generator = new DiffRowGenerator.Builder().contextSize(1).build();
+        List<DiffRow> rows = generator.generateDiffRows(original, revised);
+        print(rows);
+
+        assertEquals(5, rows.size());
+        assertEquals(new DiffRow(DiffRow.Tag.SKIP, "", "", 3), rows.get(0));
+        assertEquals(new DiffRow(DiffRow.Tag.EQUAL, "d", "d"), rows.get(1));
+        assertEquals(new DiffRow(DiffRow.Tag.CHANGE, "e", "E"), rows.get(2));
+        assertEquals(new DiffRow(DiffRow.Tag.EQUAL, "f", "f"), rows.get(3));
+        assertEquals(new DiffRow(DiffRow.Tag.SKIP, "", "", 3), rows.get(4));
+    }
+
+    public void testGenerator_PatchNotModified() {
+        List<String> original = split("<a>\ttext");
+        List<String> revised = split("<b>\ttext");
+        Patch<String> patch = DiffUtils.diff(original, revised);
+
+        DiffRowGenerator generator = new DiffRowGenerator.Builder().showInlineDiffs(true).build();
+        List<DiffRow> first = generator.generateDiffRows(original, revised, patch);
+        List<DiffRow> second = generator.generateDiffRows(original, revised, patch);
+        print(first);
+
+        assertEquals(first, second);
+        assertEquals(original, patch.getDeltas().get(0).getOriginal().getLines());
+        assertEquals(revised, patch.getDeltas().get(0).getRevised().getLines());
+    }
+
+    public void testGenerator_IgnoreModes() {
+        List<String> original = split("A\n\nb c\nd");
+        List<String> revised = split("a\nb  c\n\nD!");
+
+        DiffRowGenerator generator = new DiffRowGenerator.Builder()
+                .ignore(IgnoreMode.SPACE_CHANGE, IgnoreMode.BLANK_LINES, IgnoreMode.CASE).build();
+        List<DiffRow> rows = generator.generateDiffRows(original, revised);
+        print(rows);
+
+        assertEquals(5, rows.size());
+        assertEquals(new DiffRow(DiffRow.Tag.EQUAL, "A", "a"), rows.get(0));
+        // the blank lines of each side are kept, next to an empty cell
+        assertEquals(new DiffRow(DiffRow.Tag.EQUAL, "", ""), rows.get(1));
+        assertEquals(DiffRow.Tag.EQUAL, rows.get(2).getTag());
+        assertFalse(rows.get(2).getOldLine().equals(rows.get(2).getNewLine()));
+        assertEquals(new DiffRow(DiffRow.Tag.EQUAL, "", ""), rows.get(3));
+        assertEquals(new DiffRow(DiffRow.Tag.CHANGE, "d", "D!"), rows.get(4));
+    }
+
+    public void testGenerator_IgnoreBlankLinesWithContext() {
+        List<String> original = split("a\n\nb\nc\nd\ne\nf");
+        List<String> revised = split("a\nb\n\n\nc\nd\ne\nF");
+
+        DiffRowGenerator generator = new DiffRowGenerator.Builder().ignore(IgnoreMode.BLANK_LINES)
+                .contextSize(1).build();
+        List<DiffRow> rows = generator.generateDiffRows(original, revised);
+        print(rows);
+
+        // rows of the run: a/a, ""/-, b/b, -/"", -/"", c/c, d/d, e/e
+        assertEquals(3, rows.size());
+        assertEquals(new DiffRow(DiffRow.Tag.SKIP, "", "", 7), rows.get(0));
+        assertEquals(new DiffRow(DiffRow.Tag.EQUAL, "e", "e"), rows.get(1));
+        assertEquals(new DiffRow(DiffRow.Tag.CHANGE, "f", "F"), rows.get(2));
+
+        rows = new DiffRowGenerator.Builder().ignore(IgnoreMode.BLANK_LINES).build()
+                .generateDiffRows(original, revised);
+        assertEquals(9, rows.size());
+        assertEquals(new DiffRow(DiffRow.Tag.EQUAL, "b", "b"), rows.get(2));
+        assertEquals(new DiffRow(DiffRow.Tag.EQUAL, "", ""), rows.get(3));
+        assertEquals(new DiffRow(DiffRow.Tag.EQUAL, "c", "c"), rows.get(5));
+    }
+
+    public void testGenerator_Executor() {
+        List<String> original = new ArrayList<String>();
+        List<String> revised = new ArrayList<String>();
+        for (int i = 0; i < 1000; i++) {
+            original.add("line " + i);
+            revised.add(i % 3 == 0 ? "line " + i + " changed" : "line " + i);
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            DiffRowGenerator sequential = new DiffRowGenerator.Builder().showInlineDiffs(true).build();
+            DiffRowGenerator parallel = new DiffRowGenerator.Builder().showInlineDiffs(true)
+                    .executor(executor).maxPendingDeltas(8).build();
+            assertEquals(sequential.generateDiffRows(original, revised),
+                    parallel.generateDiffRows(original, revised));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    public void testGenerator_CloseIterator() {
+        List<String> original = new ArrayList<String>();
+        List<String> revised = new ArrayList<String>();
+        for (int i = 0; i < 100; i++) {
+            original.add("line " + i);
+            revised.add(i % 10 == 0 ? "line " + i + " changed" : "line " + i);
+        }
+        // runs the first task, keeps the others pending
+        final List<Future<?>> tasks = new ArrayList<Future<?>>();
+        Executor executor = new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                tasks.add((Future<?>) command);
+                if (tasks.size() == 1) {
+                    command.run();
+                }
+            }
+        };
+        DiffRowGenerator generator = new DiffRowGenerator.Builder().executor(executor).maxPendingDeltas(4).build();
+        DiffRowGenerator.DiffRowIterator rows = generator.iterateDiffRows(original, revised);
+        assertEquals(DiffRow.Tag.CHANGE, rows.next().getTag());
+        rows.close();
+
+        assertFalse(rows.hasNext());
+        assertEquals(4, tasks.size());
+        for (Future<?> task : tasks.subList(1, 4)) {
+            assertTrue(task.isCancelled());
+        }
+    }
+
+    public void testGenerator_FrozenPatchSharedBetweenThreads() throws Exception {
+        final List<String> original = new ArrayList<String>();
+        final List<String> revised = new ArrayList<String>();
+        for (int i = 0; i < 500; i++) {
+            original.add("line " + i);
+            revised.add(i % 7 == 0 ? "line " + i + " changed" : "line " + i);
+        }
+        final Patch<String> patch = DiffUtils.diff(original, revised).freeze();
+        final DiffRowGenerator generator = new DiffRowGenerator.Builder().showInlineDiffs(true).build();
+        List<DiffRow> expected = generator.generateDiffRows(original, revised, patch);
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<List<DiffRow>>> results = new ArrayList<Future<List<DiffRow>>>();
+            for (int i = 0; i < 16; i++) {
+                results.add(executor.submit(new Callable<List<DiffRow>>() {
+                    @Override
+                    public List<DiffRow> call() {
+                        return generator.generateDiffRows(original, revised, patch);
+                    }
+                }));
+            }
+            for (Future<List<DiffRow>> result : results) {
+                assertEquals(expected, result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
     private List<String> split(String content) {
         return Arrays.asList(content.split("\n"));
     }
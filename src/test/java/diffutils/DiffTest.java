@@ -1,12 +1,23 @@
 package diffutils;
 
 import difflib.*;
+import difflib.myers.Equalizer;
+import difflib.myers.MyersDiff;
+import difflib.myers.PrimitiveDiff;
 import junit.framework.TestCase;
 
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 public class DiffTest extends TestCase {
 
@@ -49,6 +60,44 @@ public class DiffTest extends TestCase {
         assertEquals(0, patch.getDeltas().size());
     }
 
+    public void testDiffRanges() {
+        final List<String> original = Arrays.asList("aaa", "bbb", "ccc", "ddd", "eee");
+        final List<String> revised = Arrays.asList("aaa", "zzz", "ccc", "eee", "fff");
+
+        final EditScript script = DiffUtils.diffRanges(original, revised);
+        assertEquals(3, script.size());
+        assertEquals(Delta.TYPE.CHANGE, script.getType(0));
+        assertEquals(Delta.TYPE.DELETE, script.getType(1));
+        assertEquals(Arrays.asList("ddd"), script.getOriginalLines(1, original));
+        assertEquals(Delta.TYPE.INSERT, script.getType(2));
+        assertEquals(Arrays.asList("fff"), script.getRevisedLines(2, revised));
+        assertEquals(DiffUtils.diff(original, revised).getDeltas(),
+                script.toPatch(original, revised).getDeltas());
+    }
+
+    public void testDiff_IgnoreModes() {
+        final List<String> original = Arrays.asList("int a = 1;", "", "  Foo  bar", "x");
+        final List<String> revised = Arrays.asList("int a=1;", "foo bar", "", "y");
+
+        assertEquals(2, DiffUtils.diff(original, revised, EnumSet.noneOf(IgnoreMode.class)).getDeltas().size());
+        final Patch<String> allSpace = DiffUtils.diff(original, revised, EnumSet.of(IgnoreMode.ALL_SPACE));
+        assertEquals(2, allSpace.getDeltas().size());
+        assertEquals(1, allSpace.getDeltas().get(0).getOriginal().getPosition());
+
+        final Patch<String> patch = DiffUtils.diff(original, revised,
+                EnumSet.of(IgnoreMode.ALL_SPACE, IgnoreMode.BLANK_LINES, IgnoreMode.CASE));
+        assertEquals(1, patch.getDeltas().size());
+        final Delta<String> delta = patch.getDeltas().get(0);
+        assertEquals(new Chunk<String>(3, Arrays.asList("x")), delta.getOriginal());
+        assertEquals(new Chunk<String>(3, Arrays.asList("y")), delta.getRevised());
+
+        // a change of the amount of whitespace is ignored, but not its removal
+        assertEquals(0, DiffUtils.diff(Arrays.asList(" a  b "), Arrays.asList("a b"),
+                EnumSet.of(IgnoreMode.SPACE_CHANGE)).getDeltas().size());
+        assertEquals(1, DiffUtils.diff(Arrays.asList("a b"), Arrays.asList("ab"),
+                EnumSet.of(IgnoreMode.SPACE_CHANGE)).getDeltas().size());
+    }
+
     public void testDiff_EmptyListWithNonEmpty() {
         final Patch<String> patch = DiffUtils.diff(new ArrayList<String>(), Arrays.asList("aaa"));
         assertNotNull(patch);
@@ -56,4 +105,69 @@ public class DiffTest extends TestCase {
         final Delta<String> delta = patch.getDeltas().get(0);
         assertEquals(InsertDelta.class, delta.getClass());
     }
+
+    public void testDiffAsync() throws Exception {
+        final List<String> original = Arrays.asList("aaa", "bbb", "ccc");
+        final List<String> revised = Arrays.asList("aaa", "xxx", "ccc", "ddd");
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Patch<String> patch = DiffUtils.diffAsync(original, revised, executor).get();
+            assertEquals(DiffUtils.diff(original, revised).getDeltas(), patch.getDeltas());
+            assertEquals(revised, DiffUtils.patchAsync(original, patch, executor).get());
+            List<String> unifiedDiff = DiffUtils.generateUnifiedDiffAsync("a", "b", original, patch, 1, executor).get();
+            assertEquals(revised, DiffUtils.parseUnifiedDiffAsync(unifiedDiff, executor).get().applyTo(original));
+            try {
+                DiffUtils.patchAsync(revised, patch, executor).get();
+                fail("patch applied to the revised text");
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof PatchFailedException);
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    public void testDiff_InterruptedThread() {
+        // only diffs started by diffAsync stop when their thread is interrupted
+        Thread.currentThread().interrupt();
+        try {
+            assertEquals(2, DiffUtils.diff(Arrays.asList("a", "b", "c"), Arrays.asList("x", "b", "z")).getDeltas().size());
+            assertEquals(2, PrimitiveDiff.diff("abc", "xbz").size());
+        } finally {
+            assertTrue(Thread.interrupted());
+        }
+    }
+
+    public void testDiffAsync_Cancel() throws Exception {
+        // no common lines, so the diff would take a long time
+        final List<String> original = new ArrayList<String>();
+        final List<String> revised = new ArrayList<String>();
+        for (int i = 0; i < 20000; i++) {
+            original.add("a" + i);
+            revised.add("b" + i);
+        }
+        final CountDownLatch started = new CountDownLatch(1);
+        MyersDiff<String> algorithm = new MyersDiff<String>(new Equalizer<String>() {
+            @Override
+            public boolean equals(String original, String revised) {
+                started.countDown();
+                return original.equals(revised);
+            }
+        });
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Patch<String>> future = DiffUtils.diffAsync(original, revised, algorithm, executor);
+            assertTrue(started.await(10, TimeUnit.SECONDS));
+            assertTrue(future.cancel(true));
+            // the single thread is free again only if the diff stopped
+            assertEquals("done", executor.submit(new Callable<String>() {
+                @Override
+                public String call() {
+                    return "done";
+                }
+            }).get(10, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
 }
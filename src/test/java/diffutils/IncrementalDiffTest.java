@@ -0,0 +1,187 @@
+package diffutils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.TestCase;
+import difflib.DiffUtils;
+import difflib.EditScript;
+import difflib.IgnoreMode;
+import difflib.IncrementalDiff;
+import difflib.PatchFailedException;
+
+public class IncrementalDiffTest extends TestCase {
+
+    public void testReplaceRevised() {
+        List<String> original = Arrays.asList("a", "b", "c", "d", "e", "f", "g", "h", "i", "j");
+        IncrementalDiff diff = new IncrementalDiff.Builder().context(1).build(original, original);
+        assertTrue(diff.getEditScript().isEmpty());
+
+        EditScript script = diff.replaceRevised(2, 3, Arrays.asList("x", "y"));
+        assertEquals(1, script.size());
+        assertEquals(2, script.getOriginalStart(0));
+        assertEquals(3, script.getOriginalEnd(0));
+        assertEquals(2, script.getRevisedStart(0));
+        assertEquals(4, script.getRevisedEnd(0));
+
+        // after the first delta, shifted by one line
+        script = diff.replaceRevised(8, 9, Collections.<String>emptyList());
+        assertEquals(2, script.size());
+        assertEquals(7, script.getOriginalStart(1));
+        assertEquals(8, script.getOriginalEnd(1));
+        assertEquals(8, script.getRevisedStart(1));
+        assertEquals(8, script.getRevisedEnd(1));
+
+        // undo the first edit
+        script = diff.replaceRevised(2, 4, Arrays.asList("c"));
+        assertEquals(1, script.size());
+        assertEquals(7, script.getOriginalStart(0));
+        assertEquals(7, script.getRevisedStart(0));
+        assertEquals(Arrays.asList("a", "b", "c", "d", "e", "f", "g", "i", "j"), diff.getRevised());
+    }
+
+    public void testReplaceOriginal() {
+        IncrementalDiff diff = new IncrementalDiff.Builder().build(Arrays.asList("a", "b", "c"),
+                Arrays.asList("a", "x", "c"));
+        EditScript script = diff.replaceOriginal(1, 2, Arrays.asList("x"));
+        assertTrue(script.isEmpty());
+        assertTrue(diff.getPatch().getDeltas().isEmpty());
+        assertEquals(Arrays.asList("a", "x", "c"), diff.getOriginal());
+    }
+
+    public void testIgnoreModes() {
+        IncrementalDiff diff = new IncrementalDiff.Builder().ignore(IgnoreMode.CASE).build(
+                Arrays.asList("a", "b", "c"), Arrays.asList("a", "b", "c"));
+        assertTrue(diff.replaceRevised(1, 2, Arrays.asList("B")).isEmpty());
+        assertEquals(1, diff.replaceRevised(1, 2, Arrays.asList("d")).size());
+    }
+
+    public void testRandomEdits() throws PatchFailedException {
+        Random random = new Random(7);
+        for (int context : new int[] { 0, 8 }) {
+            List<String> original = randomLines(random, 300);
+            List<String> revised = new ArrayList<String>(original);
+            IncrementalDiff diff = new IncrementalDiff.Builder().context(context).build(original, revised);
+            for (int round = 0; round < 200; round++) {
+                boolean revisedSide = random.nextBoolean();
+                List<String> edited = revisedSide ? revised : original;
+                int from = random.nextInt(edited.size() + 1);
+                int to = Math.min(edited.size(), from + random.nextInt(4));
+                List<String> lines = randomLines(random, random.nextInt(4));
+                edited.subList(from, to).clear();
+                edited.addAll(from, lines);
+                if (revisedSide) {
+                    diff.replaceRevised(from, to, lines);
+                } else {
+                    diff.replaceOriginal(from, to, lines);
+                }
+                assertEquals(original, diff.getOriginal());
+                assertEquals(revised, diff.getRevised());
+                assertEquals(revised, diff.getPatch().applyTo(original));
+            }
+            // the local diffs never align lines across regions, so they are never smaller
+            int fullDistance = distance(DiffUtils.diffRanges(original, revised, EnumSet.noneOf(IgnoreMode.class)));
+            assertTrue(distance(diff.getEditScript()) >= fullDistance);
+        }
+    }
+
+    public void testBlankLines() {
+        IncrementalDiff diff = new IncrementalDiff.Builder().ignore(IgnoreMode.BLANK_LINES).context(0).build(
+                Arrays.asList("x", "", "", "a", "b"), Arrays.asList("y", "a", "b"));
+        EditScript script = diff.replaceRevised(2, 3, Arrays.asList("c"));
+        assertEquals(2, script.size());
+        assertEquals(0, script.getOriginalStart(0));
+        assertEquals(1, script.getOriginalEnd(0));
+        assertEquals(0, script.getRevisedStart(0));
+        assertEquals(1, script.getRevisedEnd(0));
+        assertEquals(4, script.getOriginalStart(1));
+        assertEquals(5, script.getOriginalEnd(1));
+        assertEquals(2, script.getRevisedStart(1));
+        assertEquals(3, script.getRevisedEnd(1));
+
+        assertTrue(diff.replaceOriginal(0, 5, Arrays.asList("", "y", "a", " ", "c", "")).isEmpty());
+    }
+
+    public void testRandomEdits_BlankLines() {
+        Random random = new Random(9);
+        for (int context : new int[] { 0, 8 }) {
+            List<String> original = randomLinesWithBlanks(random, 300);
+            List<String> revised = new ArrayList<String>(original);
+            IncrementalDiff diff = new IncrementalDiff.Builder().ignore(IgnoreMode.BLANK_LINES).context(context)
+                    .build(original, revised);
+            for (int round = 0; round < 200; round++) {
+                boolean revisedSide = random.nextBoolean();
+                List<String> edited = revisedSide ? revised : original;
+                int from = random.nextInt(edited.size() + 1);
+                int to = Math.min(edited.size(), from + random.nextInt(4));
+                List<String> lines = randomLinesWithBlanks(random, random.nextInt(4));
+                edited.subList(from, to).clear();
+                edited.addAll(from, lines);
+                EditScript script = revisedSide ? diff.replaceRevised(from, to, lines)
+                        : diff.replaceOriginal(from, to, lines);
+                assertEquals(revised, diff.getRevised());
+                assertEqualOutsideDeltas(original, revised, script);
+            }
+            assertEqualOutsideDeltas(original, revised, diff.getEditScript());
+        }
+    }
+
+    /**
+     * Asserts that the lines between the deltas are equal on both sides, apart from blank lines.
+     */
+    private static void assertEqualOutsideDeltas(List<String> original, List<String> revised, EditScript script) {
+        int originalPos = 0;
+        int revisedPos = 0;
+        for (int i = 0; i <= script.size(); i++) {
+            int originalEnd = i < script.size() ? script.getOriginalStart(i) : original.size();
+            int revisedEnd = i < script.size() ? script.getRevisedStart(i) : revised.size();
+            assertTrue(originalPos <= originalEnd && revisedPos <= revisedEnd);
+            assertEquals(nonBlank(original.subList(originalPos, originalEnd)),
+                    nonBlank(revised.subList(revisedPos, revisedEnd)));
+            if (i < script.size()) {
+                originalPos = script.getOriginalEnd(i);
+                revisedPos = script.getRevisedEnd(i);
+            }
+        }
+    }
+
+    private static List<String> nonBlank(List<String> lines) {
+        List<String> result = new ArrayList<String>();
+        for (String line : lines) {
+            if (!line.trim().isEmpty()) {
+                result.add(line);
+            }
+        }
+        return result;
+    }
+
+    private static List<String> randomLinesWithBlanks(Random random, int count) {
+        List<String> result = new ArrayList<String>();
+        for (int i = 0; i < count; i++) {
+            int kind = random.nextInt(4);
+            result.add(kind == 0 ? "" : kind == 1 ? "  " : "line " + random.nextInt(20));
+        }
+        return result;
+    }
+
+    private static int distance(EditScript script) {
+        int result = 0;
+        for (int i = 0; i < script.size(); i++) {
+            result += script.getOriginalEnd(i) - script.getOriginalStart(i) + script.getRevisedEnd(i)
+                    - script.getRevisedStart(i);
+        }
+        return result;
+    }
+
+    private static List<String> randomLines(Random random, int count) {
+        List<String> result = new ArrayList<String>();
+        for (int i = 0; i < count; i++) {
+            result.add("line " + random.nextInt(20));
+        }
+        return result;
+    }
+}
@@ -45,4 +45,38 @@ public class PatchTest extends TestCase {
             fail(e.getMessage());
         }
     }
+
+    public void testPatch_Freeze() throws PatchFailedException {
+        final List<String> from = Arrays.asList("aaa", "bbb", "ccc", "ddd");
+        final List<String> to = Arrays.asList("xxx", "aaa", "bxb", "ddd");
+
+        final Patch<String> patch = DiffUtils.diff(from, to);
+        assertFalse(patch.isFrozen());
+        assertSame(patch, patch.freeze());
+        assertTrue(patch.isFrozen());
+        assertEquals(to, patch.applyTo(from));
+        assertEquals(from, patch.restore(to));
+        assertEquals(0, patch.getDeltas().get(0).getOriginal().getPosition());
+
+        try {
+            patch.getDeltas().clear();
+            fail("deltas are modifiable");
+        } catch (UnsupportedOperationException e) {
+        }
+        try {
+            patch.getDeltas().get(0).getRevised().getLines().set(0, "yyy");
+            fail("lines are modifiable");
+        } catch (UnsupportedOperationException e) {
+        }
+        try {
+            patch.getDeltas().get(0).getRevised().setLines(Arrays.asList("yyy"));
+            fail("chunk is modifiable");
+        } catch (IllegalStateException e) {
+        }
+        try {
+            patch.addDelta(patch.getDeltas().get(0));
+            fail("patch is modifiable");
+        } catch (IllegalStateException e) {
+        }
+    }
 }
@@ -0,0 +1,164 @@
+package diffutils;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+import com.google.common.primitives.Chars;
+import com.google.common.primitives.Ints;
+
+import difflib.Delta;
+import difflib.DiffUtils;
+import difflib.EditScript;
+import difflib.IgnoreMode;
+import difflib.Patch;
+import difflib.PatchFailedException;
+import difflib.myers.DiffWorkspace;
+import difflib.myers.PrimitiveDiff;
+
+public class PrimitiveDiffTest extends TestCase {
+
+    public void testDiff_Ints() {
+        EditScript script = PrimitiveDiff.diff(new int[] { 1, 2, 3, 4 }, new int[] { 1, 5, 3, 4, 6 });
+        assertEquals(2, script.size());
+        assertEquals(Delta.TYPE.CHANGE, script.getType(0));
+        assertEquals(1, script.getOriginalStart(0));
+        assertEquals(2, script.getOriginalEnd(0));
+        assertEquals(Delta.TYPE.INSERT, script.getType(1));
+        assertEquals(4, script.getRevisedStart(1));
+        assertEquals(5, script.getRevisedEnd(1));
+    }
+
+    public void testDiff_Longs() {
+        EditScript script = PrimitiveDiff.diff(new long[] { Long.MAX_VALUE, 7L, -1L },
+                new long[] { Long.MAX_VALUE, -1L });
+        assertEquals(1, script.size());
+        assertEquals(Delta.TYPE.DELETE, script.getType(0));
+        assertEquals(1, script.getOriginalStart(0));
+    }
+
+    public void testDiff_Empty() {
+        assertTrue(PrimitiveDiff.diff(new byte[0], new byte[0]).isEmpty());
+        assertEquals(Delta.TYPE.INSERT, PrimitiveDiff.diff("", "abc").getType(0));
+        assertEquals(Delta.TYPE.DELETE, PrimitiveDiff.diff("abc", "").getType(0));
+    }
+
+    public void testDiff_SameEditDistanceAsMyersDiff() throws PatchFailedException {
+        Random random = new Random(1);
+        for (int round = 0; round < 200; round++) {
+            char[] original = randomChars(random);
+            char[] revised = randomChars(random);
+            List<Character> originalList = Chars.asList(original);
+            List<Character> revisedList = Chars.asList(revised);
+
+            Patch<Character> patch = PrimitiveDiff.diff(original, revised)
+                    .toPatch(originalList, revisedList);
+            assertEquals(revisedList, patch.applyTo(originalList));
+            assertEquals(editDistance(DiffUtils.diff(originalList, revisedList)), editDistance(patch));
+        }
+    }
+
+    public void testDiff_LargeEditDistance() throws PatchFailedException {
+        Random random = new Random(5);
+        DiffWorkspace workspace = new DiffWorkspace();
+        for (int round = 0; round < 5; round++) {
+            // D is about 0.7 * (n + m), above the limit of the trace
+            int[] original = randomInts(random, 1500 + random.nextInt(500));
+            int[] revised = randomInts(random, 1500 + random.nextInt(500));
+            List<Integer> originalList = Ints.asList(original);
+            List<Integer> revisedList = Ints.asList(revised);
+            Patch<Integer> patch = PrimitiveDiff.diff(original, 0, original.length, revised, 0, revised.length,
+                    workspace).toPatch(originalList, revisedList);
+            assertEquals(revisedList, patch.applyTo(originalList));
+            assertEquals(editDistance(DiffUtils.diff(originalList, revisedList)), editDistance(patch));
+        }
+        // disjoint, D = 20000: a quadratic trace would need 1.6 GB
+        int[] original = new int[10000];
+        int[] revised = new int[10000];
+        Arrays.fill(revised, 1);
+        EditScript script = PrimitiveDiff.diff(original, revised);
+        assertEquals(1, script.size());
+        assertEquals(Delta.TYPE.CHANGE, script.getType(0));
+        assertEquals(10000, script.getOriginalEnd(0));
+        assertEquals(10000, script.getRevisedEnd(0));
+    }
+
+    public void testToPatch_Ints() throws PatchFailedException {
+        int[] original = { 1, 2, 3, 4, 5 };
+        int[] revised = { 0, 2, 4, 5, 6, 7 };
+        Patch<Integer> patch = PrimitiveDiff.diff(original, revised)
+                .toPatch(Ints.asList(original), Ints.asList(revised));
+        assertEquals(Ints.asList(revised), patch.applyTo(Ints.asList(original)));
+    }
+
+    public void testDiff_Workspace() {
+        DiffWorkspace workspace = new DiffWorkspace();
+        Random random = new Random(11);
+        for (int i = 0; i < 100; i++) {
+            int[] original = randomInts(random);
+            int[] revised = randomInts(random);
+            assertEquals(PrimitiveDiff.diff(original, revised),
+                    PrimitiveDiff.diff(original, 0, original.length, revised, 0, revised.length, workspace));
+        }
+        int[] keys = { 9, 1, 2, 3, 9 };
+        EditScript script = PrimitiveDiff.diff(keys, 1, 4, new int[] { 1, 3 }, 0, 2, workspace);
+        assertEquals(1, script.size());
+        assertEquals(Delta.TYPE.DELETE, script.getType(0));
+        assertEquals(2, script.getOriginalStart(0));
+    }
+
+    public void testWorkspace_Ids() {
+        DiffWorkspace workspace = new DiffWorkspace();
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i, workspace.idOf("line " + i));
+        }
+        assertEquals(42, workspace.idOf("line 42"));
+        workspace.clearIds();
+        assertEquals(0, workspace.idOf("line 42"));
+    }
+
+    public void testDiffRanges_Workspace() {
+        DiffWorkspace workspace = new DiffWorkspace();
+        List<String> original = Arrays.asList("a", "", "B", "c", "d");
+        List<String> revised = Arrays.asList("a", "b", "", "", "x", "d");
+        for (Set<IgnoreMode> modes : Arrays.asList(EnumSet.noneOf(IgnoreMode.class), EnumSet.of(IgnoreMode.CASE),
+                EnumSet.of(IgnoreMode.BLANK_LINES, IgnoreMode.CASE))) {
+            assertEquals(DiffUtils.diffRanges(original, revised, modes),
+                    DiffUtils.diffRanges(original, revised, modes, workspace));
+            assertEquals(DiffUtils.diffRanges(revised, original, modes),
+                    DiffUtils.diffRanges(revised, original, modes, workspace));
+        }
+    }
+
+    private static int[] randomInts(Random random) {
+        return randomInts(random, random.nextInt(40));
+    }
+
+    private static int[] randomInts(Random random, int length) {
+        int[] result = new int[length];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = random.nextInt(4);
+        }
+        return result;
+    }
+
+    private static char[] randomChars(Random random) {
+        char[] result = new char[random.nextInt(30)];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = (char) ('a' + random.nextInt(4));
+        }
+        return result;
+    }
+
+    private static int editDistance(Patch<?> patch) {
+        int result = 0;
+        for (Delta<?> delta : patch.getDeltas()) {
+            result += delta.getOriginal().size() + delta.getRevised().size();
+        }
+        return result;
+    }
+}
@@ -0,0 +1,41 @@
+package diffutils;
+
+import difflib.StringUtills;
+import junit.framework.TestCase;
+
+public class StringUtillsTest extends TestCase {
+
+    public void testWrapText() {
+        assertEquals("abc", StringUtills.wrapText("abc", 3));
+        assertEquals("abc<br>de", StringUtills.wrapText("abcde", 3));
+        assertEquals("abc<br>def<br>g", StringUtills.wrapText("abcdefg", 3));
+    }
+
+    public void testEscapeAndWrap() {
+        assertEquals("&lt;a href=&quot;x&quot;&gt;", escapeAndWrap("<a href=\"x\">", 80));
+        assertEquals("&amp;&#39;", escapeAndWrap("&'", 80));
+        assertEquals("    x", escapeAndWrap("\tx", 80));
+        // entities count as one character
+        assertEquals("&lt;&lt;&lt;<br>&gt;", escapeAndWrap("<<<>", 3));
+        assertEquals("abc", escapeAndWrap("abc", 3));
+        assertEquals("  <br>  <br>x", escapeAndWrap("\tx", 2));
+        // surrogate pairs are not split
+        assertEquals("😀<br>a", escapeAndWrap("😀a", 1));
+    }
+
+    public void testEscapeAndWrap_Marks() {
+        assertEquals("<m>&lt;</m><m>&gt;&amp;</m>", escapeAndWrap("<>&", 80, 0, 1, 1, 3));
+        assertEquals("a<m>    </m>b", escapeAndWrap("a\tb", 80, 1, 2));
+        // a mark is opened after a line break and closed before one
+        assertEquals("ab<br><m>cd</m>", escapeAndWrap("abcd", 2, 2, 4));
+        assertEquals("a<m>b</m><br>cd", escapeAndWrap("abcd", 2, 1, 2));
+    }
+
+    private static String escapeAndWrap(String line, int columnWidth, int... marks) {
+        return StringUtills.escapeAndWrap(line, columnWidth, marks, "<m>", "</m>", new StringBuilder()).toString();
+    }
+
+    private static String escapeAndWrap(String line, int columnWidth) {
+        return StringUtills.escapeAndWrap(line, columnWidth, new StringBuilder()).toString();
+    }
+}